@@ -0,0 +1,88 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A schedule made by ArenaScheduler: the game played at each table in each time
+ * slot, and who plays it.
+ */
+public final class ArenaSchedule {
+    /** The game at each table of each slot, null where the table is not used. */
+    private final BoardGame[][] games;
+    /** The players at each table of each slot. */
+    private final List<List<List<String>>> players;
+    /** The summed preference of the players for the games they play. */
+    private final double score;
+
+    /**
+     * Creates a schedule.
+     *
+     * @param games   the game at each table of each slot, null where not used.
+     * @param players the players at each table of each slot.
+     * @param score   the summed preference of the players.
+     */
+    ArenaSchedule(BoardGame[][] games, List<List<List<String>>> players, double score) {
+        this.games = games;
+        this.players = players;
+        this.score = score;
+    }
+
+    /** @return The number of time slots. */
+    public int getSlots() {
+        return games.length;
+    }
+
+    /** @return The number of tables. */
+    public int getTables() {
+        return games.length == 0 ? 0 : games[0].length;
+    }
+
+    /**
+     * Gets the game played at a table.
+     *
+     * @param slot  the time slot.
+     * @param table the table.
+     * @return the game, or null if the table is not used in that slot.
+     */
+    public BoardGame getGame(int slot, int table) {
+        return games[slot][table];
+    }
+
+    /**
+     * Gets the players at a table.
+     *
+     * @param slot  the time slot.
+     * @param table the table.
+     * @return the players, empty if the table is not used in that slot.
+     */
+    public List<String> getPlayers(int slot, int table) {
+        return players.get(slot).get(table);
+    }
+
+    /**
+     * Gets the players not seated at any table in a slot.
+     *
+     * @param slot       the time slot.
+     * @param allPlayers every player of the event.
+     * @return the players sitting the slot out.
+     */
+    public List<String> getBenched(int slot, List<String> allPlayers) {
+        List<String> benched = new ArrayList<>(allPlayers);
+        for (List<String> table : players.get(slot)) {
+            benched.removeAll(table);
+        }
+        return Collections.unmodifiableList(benched);
+    }
+
+    /**
+     * Gets the score of the schedule: each player's preference for each game they
+     * play, counted once however often they play it.
+     *
+     * @return the summed preference.
+     */
+    public double getScore() {
+        return score;
+    }
+}
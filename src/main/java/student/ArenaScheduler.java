@@ -0,0 +1,452 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Seats the players of an event at tables over a number of time slots, each table
+ * playing one of the event's games, to best match what the players want to play.
+ *
+ * Every table holds no more players than its game allows, and is either empty
+ * or has at least the game's minimum. Only games that fit in a slot are played.
+ * Each player says how much they want to play each game; a schedule scores the
+ * preference of each player for each game they play, once however often they
+ * play it, so players are spread over different games across the slots. A
+ * player may sit out a slot when no table has room for them.
+ *
+ * The schedule is found by simulated annealing: starting from a greedy seating,
+ * random changes (moving a player, swapping two players, or changing the game of
+ * a table) are kept if they improve the score, and sometimes even if not, less
+ * often as the deadline nears. Each change only rescores the tables and players
+ * it touches. Tables short of players are allowed during the search at a large
+ * cost, and are emptied at the end. Several searches with different random
+ * choices run in parallel, and the best schedule is kept.
+ */
+public final class ArenaScheduler {
+    /** Cost of each player missing from a table below its game's minimum. */
+    private static final double SHORT_PENALTY = 1000;
+    /** Acceptance temperature at the start of the search. */
+    private static final double START_TEMPERATURE = 2;
+    /** Acceptance temperature at the deadline. */
+    private static final double END_TEMPERATURE = 0.01;
+    /** Number of changes tried between looks at the clock. */
+    private static final int CHECK_EVERY = 1024;
+
+    /** The games that can be played, in name order. */
+    private final List<BoardGame> games;
+    /** The number of tables. */
+    private final int tables;
+    /** The number of time slots. */
+    private final int slots;
+
+    /**
+     * Creates a scheduler for an event.
+     *
+     * @param games       the games of the event, such as a games list.
+     * @param tables      the number of tables.
+     * @param slots       the number of time slots.
+     * @param slotMinutes the length of a time slot, in minutes.
+     * @throws IllegalArgumentException if tables, slots or slotMinutes are not
+     *                                  positive.
+     */
+    public ArenaScheduler(Collection<BoardGame> games, int tables, int slots, int slotMinutes) {
+        if (tables <= 0 || slots <= 0 || slotMinutes <= 0) {
+            throw new IllegalArgumentException("Invalid event: " + tables + " tables, " + slots
+                    + " slots of " + slotMinutes + " minutes");
+        }
+        this.tables = tables;
+        this.slots = slots;
+        this.games = games.stream()
+                .filter(game -> GameNightPlanner.playTime(game) <= slotMinutes
+                        && game.getMinPlayers() <= game.getMaxPlayers()
+                        && game.getMaxPlayers() > 0)
+                .sorted(GameCatalog.BY_NAME).toList();
+    }
+
+    /**
+     * Schedules the players.
+     *
+     * @param preferences     for each player, how much they want to play each game
+     *                        (by name, ignoring case). Games left out count as 0.
+     * @param timeLimitMillis how long to search for.
+     * @return the best schedule found.
+     * @throws IllegalArgumentException if the time limit is not positive.
+     */
+    public ArenaSchedule schedule(Map<String, ? extends Map<String, Double>> preferences,
+            long timeLimitMillis) {
+        if (timeLimitMillis <= 0) {
+            throw new IllegalArgumentException("Invalid time limit: " + timeLimitMillis);
+        }
+        List<String> players = new ArrayList<>(preferences.keySet());
+        Map<String, Integer> gameIds = new HashMap<>();
+        for (int g = 0; g < games.size(); g++) {
+            gameIds.put(games.get(g).getSortName(), g);
+        }
+        double[][] wants = new double[players.size()][games.size()];
+        for (int p = 0; p < players.size(); p++) {
+            for (Map.Entry<String, Double> want : preferences.get(players.get(p)).entrySet()) {
+                Integer g = gameIds.get(NameKey.fold(want.getKey()));
+                if (g != null && want.getValue() != null) {
+                    wants[p][g] = want.getValue();
+                }
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis);
+        Search best = IntStream.range(0, Runtime.getRuntime().availableProcessors()).parallel()
+                .mapToObj(seed -> new Search(wants, seed, deadline).run())
+                .max(Comparator.comparingDouble((Search search) -> search.score)
+                        .thenComparing(search -> -search.seed))
+                .orElseThrow();
+        return best.toSchedule(players);
+    }
+
+    /**
+     * One annealing search, holding the schedule it is changing.
+     */
+    private final class Search {
+        /** How much each player wants to play each game. */
+        private final double[][] wants;
+        /** Seed of the random choices, also telling searches apart. */
+        private final int seed;
+        /** When to stop, as System.nanoTime. */
+        private final long deadline;
+        /** The random choices. */
+        private final SplittableRandom random;
+        /** The game of each table in each slot. */
+        private int[][] gameAt;
+        /** The table of each player in each slot, -1 when sitting out. */
+        private int[][] seat;
+        /** Number of players at each table in each slot. */
+        private int[][] count;
+        /** Number of times each player plays each game. */
+        private final int[][] plays;
+        /** Score of the current schedule. */
+        private double score;
+
+        /**
+         * Creates a search.
+         *
+         * @param wants    how much each player wants to play each game.
+         * @param seed     seed of the random choices.
+         * @param deadline when to stop, as System.nanoTime.
+         */
+        private Search(double[][] wants, int seed, long deadline) {
+            this.wants = wants;
+            this.seed = seed;
+            this.deadline = deadline;
+            this.random = new SplittableRandom(seed);
+            this.gameAt = new int[slots][tables];
+            this.seat = new int[slots][wants.length];
+            this.count = new int[slots][tables];
+            this.plays = new int[wants.length][games.size()];
+        }
+
+        /**
+         * Runs the search until the deadline.
+         *
+         * @return this search, holding the best schedule it found.
+         */
+        private Search run() {
+            if (games.isEmpty() || wants.length == 0) {
+                for (int[] slot : seat) {
+                    Arrays.fill(slot, -1);
+                }
+                return this;
+            }
+            greedy();
+            int[][] bestGames = copy(gameAt);
+            int[][] bestSeats = copy(seat);
+            double bestScore = score;
+            long start = System.nanoTime();
+            double temperature = START_TEMPERATURE;
+            for (long tries = 1; ; tries++) {
+                if (tries % CHECK_EVERY == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    double done = (double) (now - start) / Math.max(1, deadline - start);
+                    temperature = START_TEMPERATURE
+                            * Math.pow(END_TEMPERATURE / START_TEMPERATURE, done);
+                }
+                if (step(temperature) && score > bestScore) {
+                    bestScore = score;
+                    bestGames = copy(gameAt);
+                    bestSeats = copy(seat);
+                }
+            }
+            load(bestGames, bestSeats);
+            emptyShortTables();
+            return this;
+        }
+
+        /**
+         * Builds the starting schedule: the games most wanted overall go to the
+         * tables, a different mix in each slot, and each player in turn takes the
+         * seat they gain the most from.
+         */
+        private void greedy() {
+            Integer[] byWant = new Integer[games.size()];
+            for (int g = 0; g < byWant.length; g++) {
+                byWant[g] = g;
+            }
+            Arrays.sort(byWant, Comparator.comparingDouble(g -> {
+                double total = 0;
+                for (double[] want : wants) {
+                    total -= want[g];
+                }
+                return total;
+            }));
+            List<Integer> order = new ArrayList<>(
+                    IntStream.range(0, wants.length).boxed().toList());
+            for (int s = 0; s < slots; s++) {
+                for (int t = 0; t < tables; t++) {
+                    gameAt[s][t] = byWant[(s * tables + t + seed) % byWant.length];
+                }
+                Arrays.fill(seat[s], -1);
+                Collections.shuffle(order, new Random(random.nextLong()));
+                for (int p : order) {
+                    int bestTable = -1;
+                    double bestGain = 0;
+                    for (int t = 0; t < tables; t++) {
+                        int g = gameAt[s][t];
+                        if (count[s][t] < games.get(g).getMaxPlayers()) {
+                            double gain = plays[p][g] == 0 ? wants[p][g] : 0;
+                            if (bestTable < 0 || gain > bestGain) {
+                                bestTable = t;
+                                bestGain = gain;
+                            }
+                        }
+                    }
+                    if (bestTable >= 0) {
+                        move(s, p, bestTable);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Tries one random change, keeping or undoing it.
+         *
+         * @param temperature how readily a worse schedule is kept.
+         * @return true if the change was kept.
+         */
+        private boolean step(double temperature) {
+            int s = random.nextInt(slots);
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                int p = random.nextInt(wants.length);
+                int from = seat[s][p];
+                int to = random.nextInt(tables + 1) - 1;
+                if (to == from || (to >= 0 && count[s][to] >= games.get(gameAt[s][to])
+                        .getMaxPlayers())) {
+                    return false;
+                }
+                if (accept(move(s, p, to), temperature)) {
+                    return true;
+                }
+                move(s, p, from);
+            } else if (kind < 9) {
+                int p = random.nextInt(wants.length);
+                int q = random.nextInt(wants.length);
+                int a = seat[s][p];
+                int b = seat[s][q];
+                if (a == b) {
+                    return false;
+                }
+                if (accept(move(s, p, b) + move(s, q, a), temperature)) {
+                    return true;
+                }
+                move(s, q, b);
+                move(s, p, a);
+            } else {
+                int t = random.nextInt(tables);
+                int from = gameAt[s][t];
+                int to = random.nextInt(games.size());
+                if (to == from || count[s][t] > games.get(to).getMaxPlayers()) {
+                    return false;
+                }
+                if (accept(change(s, t, to), temperature)) {
+                    return true;
+                }
+                change(s, t, from);
+            }
+            return false;
+        }
+
+        /**
+         * Decides whether to keep a change.
+         *
+         * @param delta       the change in score.
+         * @param temperature how readily a worse schedule is kept.
+         * @return true to keep it.
+         */
+        private boolean accept(double delta, double temperature) {
+            return delta >= 0 || random.nextDouble() < Math.exp(delta / temperature);
+        }
+
+        /**
+         * Moves a player to another table (or out of the slot).
+         *
+         * @param s  the slot.
+         * @param p  the player.
+         * @param to the table, -1 to sit out.
+         * @return the change in score.
+         */
+        private double move(int s, int p, int to) {
+            int from = seat[s][p];
+            double delta = 0;
+            if (from >= 0) {
+                delta += shortfall(s, from, count[s][from])
+                        - shortfall(s, from, count[s][from] - 1);
+                count[s][from]--;
+                plays[p][gameAt[s][from]]--;
+                if (plays[p][gameAt[s][from]] == 0) {
+                    delta -= wants[p][gameAt[s][from]];
+                }
+            }
+            seat[s][p] = to;
+            if (to >= 0) {
+                delta += shortfall(s, to, count[s][to]) - shortfall(s, to, count[s][to] + 1);
+                count[s][to]++;
+                plays[p][gameAt[s][to]]++;
+                if (plays[p][gameAt[s][to]] == 1) {
+                    delta += wants[p][gameAt[s][to]];
+                }
+            }
+            score += delta;
+            return delta;
+        }
+
+        /**
+         * Changes the game of a table, for the players already there.
+         *
+         * @param s  the slot.
+         * @param t  the table.
+         * @param to the new game.
+         * @return the change in score.
+         */
+        private double change(int s, int t, int to) {
+            int from = gameAt[s][t];
+            double delta = shortfall(s, t, count[s][t]);
+            gameAt[s][t] = to;
+            delta -= shortfall(s, t, count[s][t]);
+            for (int p = 0; p < wants.length && count[s][t] > 0; p++) {
+                if (seat[s][p] == t) {
+                    if (--plays[p][from] == 0) {
+                        delta -= wants[p][from];
+                    }
+                    if (++plays[p][to] == 1) {
+                        delta += wants[p][to];
+                    }
+                }
+            }
+            score += delta;
+            return delta;
+        }
+
+        /**
+         * Gets the cost of a table being short of players.
+         *
+         * @param s       the slot.
+         * @param t       the table.
+         * @param players the number of players at the table.
+         * @return the cost, 0 for an empty table or one with enough players.
+         */
+        private double shortfall(int s, int t, int players) {
+            int missing = games.get(gameAt[s][t]).getMinPlayers() - players;
+            return players == 0 || missing <= 0 ? 0 : missing * SHORT_PENALTY;
+        }
+
+        /**
+         * Sets the schedule, rebuilding the counts and score.
+         *
+         * @param newGames the game of each table in each slot.
+         * @param newSeats the table of each player in each slot.
+         */
+        private void load(int[][] newGames, int[][] newSeats) {
+            gameAt = newGames;
+            seat = newSeats;
+            count = new int[slots][tables];
+            for (int[] played : plays) {
+                Arrays.fill(played, 0);
+            }
+            score = 0;
+            int[][] seats = copy(newSeats);
+            for (int s = 0; s < slots; s++) {
+                Arrays.fill(seat[s], -1);
+                for (int p = 0; p < wants.length; p++) {
+                    if (seats[s][p] >= 0) {
+                        move(s, p, seats[s][p]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sends the players of tables short of players out of the slot.
+         */
+        private void emptyShortTables() {
+            for (int s = 0; s < slots; s++) {
+                for (int p = 0; p < wants.length; p++) {
+                    int t = seat[s][p];
+                    if (t >= 0 && count[s][t] < games.get(gameAt[s][t]).getMinPlayers()) {
+                        move(s, p, -1);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Builds the schedule found.
+         *
+         * @param players the names of the players.
+         * @return the schedule.
+         */
+        private ArenaSchedule toSchedule(List<String> players) {
+            BoardGame[][] played = new BoardGame[slots][tables];
+            List<List<List<String>>> seated = new ArrayList<>();
+            for (int s = 0; s < slots; s++) {
+                List<List<String>> atTables = new ArrayList<>();
+                for (int t = 0; t < tables; t++) {
+                    atTables.add(new ArrayList<>());
+                    if (count[s][t] > 0) {
+                        played[s][t] = games.get(gameAt[s][t]);
+                    }
+                }
+                for (int p = 0; p < players.size(); p++) {
+                    if (seat[s][p] >= 0) {
+                        atTables.get(seat[s][p]).add(players.get(p));
+                    }
+                }
+                seated.add(atTables.stream().map(Collections::unmodifiableList).toList());
+            }
+            return new ArenaSchedule(played, Collections.unmodifiableList(seated), score);
+        }
+    }
+
+    /**
+     * Copies a table of numbers.
+     *
+     * @param from the table.
+     * @return the copy.
+     */
+    private static int[][] copy(int[][] from) {
+        int[][] to = new int[from.length][];
+        for (int i = 0; i < from.length; i++) {
+            to[i] = from[i].clone();
+        }
+        return to;
+    }
+}
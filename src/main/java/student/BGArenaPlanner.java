@@ -1,5 +1,22 @@
 package student;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
 
 /**
  * Main entry point for the program.
@@ -7,6 +24,22 @@ package student;
 public final class BGArenaPlanner {
     /** default location of collection - relative to the resources directory. */
     private static final String DEFAULT_COLLECTION = "/collection.csv";
+    /** option to run a command script instead of the interactive console. */
+    private static final String BATCH_OPTION = "--batch";
+    /** option to load the collection from a file, and reload it when it changes. */
+    private static final String WATCH_OPTION = "--watch";
+    /** option to stream new and updated games into the collection while it is used. */
+    private static final String INGEST_OPTION = "--ingest";
+    /** option to serve part of the collection to a cluster coordinator. */
+    private static final String WORKER_OPTION = "--worker";
+    /** option to query a cluster of workers instead of a local collection. */
+    private static final String CLUSTER_OPTION = "--cluster";
+    /** option to compare two collection files and print the changes. */
+    private static final String DIFF_OPTION = "--diff";
+    /** how long the cluster coordinator waits for its workers, in milliseconds. */
+    private static final int CLUSTER_TIMEOUT_MILLIS = 2000;
+    /** script name meaning the commands come from standard input. */
+    private static final String STDIN = "-";
 
     /** private constructor as static class. */
     private BGArenaPlanner() {
@@ -16,15 +49,201 @@ public final class BGArenaPlanner {
     /**
      * Main entry point for the program.
      * 
-     * @param args command line arguments - not used at this time.
+     * With no arguments the interactive console is started. With
+     * {@code --batch [file|-]} the commands in the file (or standard input
+     * if - or no file is given) are run without prompting. With
+     * {@code --watch file} (before any other option) the collection is loaded
+     * from the file instead of the resources folder, and reloaded whenever
+     * the file changes. With {@code --ingest dir|file|-} (before any other
+     * option) new and updated games are streamed into the collection from a
+     * spool directory, a file or named pipe, or standard input (then give the
+     * commands with --batch file).
+     * 
+     * For a cluster, {@code --worker [host:]port shard shards} serves one of
+     * shards parts of the collection on a port of the loopback address, or of
+     * the given host (0.0.0.0 for every interface; workers do not authenticate
+     * anyone, so only do this on a trusted network), and
+     * {@code --cluster host:port,host:port,...} (before --batch) queries those
+     * workers instead of a local collection.
+     * 
+     * {@code --diff older newer} prints the games added, removed and changed
+     * between two collection files, one per line, and exits.
+     * 
+     * @param args command line arguments.
      */
     public static void main(String[] args) {
-        IPlanner planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+        if (args.length > 3 && args[0].equals(WORKER_OPTION)) {
+            runWorker(args[1], args[2], args[3]);
+            return;
+        }
+        if (args.length > 2 && args[0].equals(DIFF_OPTION)) {
+            runDiff(args[1], args[2]);
+            return;
+        }
+
+        int arg = 0;
+        IPlanner planner;
+        Closeable resource = null;
+        try {
+            if (args.length > 1 && args[0].equals(CLUSTER_OPTION)) {
+                arg = 2;
+                ClusterPlanner cluster = new ClusterPlanner(toAddresses(args[1]),
+                        CLUSTER_TIMEOUT_MILLIS);
+                planner = cluster;
+                resource = cluster;
+            } else if (args.length > 1 && args[0].equals(WATCH_OPTION)) {
+                Path file = Path.of(args[1]);
+                arg = 2;
+                LiveCatalog catalog = new LiveCatalog(GamesLoader.loadGamesFile(file));
+                resource = new CollectionWatcher(file, catalog);
+                planner = new Planner(catalog, false);
+            } else if (args.length > 1 && args[0].equals(INGEST_OPTION)) {
+                arg = 2;
+                LiveCatalog catalog = new LiveCatalog(
+                        GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+                GameIngest ingest = new GameIngest(catalog);
+                if (args[1].equals(STDIN)) {
+                    ingest.follow(System.in);
+                } else {
+                    ingest.follow(Path.of(args[1]));
+                }
+                resource = ingest;
+                planner = new Planner(catalog, false);
+            } else {
+                planner = new Planner(GamesLoader.loadGamesFile(DEFAULT_COLLECTION), false);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error starting planner: " + e.getMessage());
+            return;
+        }
+
         IGameList list = new GameList();
-        ConsoleApp app = new ConsoleApp(list, planner);
-        app.start();
+        if (args.length > arg && args[arg].equals(BATCH_OPTION)) {
+            runBatch(list, planner, args.length > arg + 1 ? args[arg + 1] : STDIN);
+        } else {
+            ConsoleApp app = new ConsoleApp(list, planner);
+            app.start();
+        }
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (IOException e) {
+                System.err.println("Error closing planner: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serves one part of the collection to a cluster coordinator, until the
+     * process is stopped.
+     * 
+     * The games are split by name order, so every worker started with the same
+     * collection and number of shards agrees on which games it owns.
+     * 
+     * @param port   the port to listen on, or host:port.
+     * @param shard  the part of the collection to serve, from 0.
+     * @param shards the number of parts.
+     */
+    private static void runWorker(String port, String shard, String shards) {
+        try {
+            int part = Integer.parseInt(shard);
+            int parts = Integer.parseInt(shards);
+            List<BoardGame> games = new ArrayList<>(GamesLoader.loadGamesFile(DEFAULT_COLLECTION));
+            games.sort(GameCatalog.BY_NAME.thenComparingInt(BoardGame::getId));
+            List<BoardGame> owned = new ArrayList<>();
+            for (int i = part; i < games.size(); i += parts) {
+                owned.add(games.get(i));
+            }
+            LiveCatalog catalog = new LiveCatalog(owned);
+            PlannerWorker worker = new PlannerWorker(toBindAddress(port),
+                    () -> new Planner(catalog, false));
+            System.out.println("Worker " + part + "/" + parts + " serving " + owned.size()
+                    + " games on port " + worker.getPort());
+            Thread.currentThread().join(); // serve until stopped
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error starting worker: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Prints the changes between two collection files, one per line, as they are found.
+     * 
+     * @param older the older file.
+     * @param newer the newer file.
+     */
+    private static void runDiff(String older, String newer) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try {
+            CatalogDiff.diff(Path.of(older), Path.of(newer), change -> {
+                try {
+                    out.write(change.toString());
+                    out.write(System.lineSeparator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.flush();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error comparing files: " + e.getMessage());
+        }
     }
 
+    /**
+     * Parses the address a worker listens on.
+     * 
+     * @param address a port, to listen on the loopback address only, or host:port,
+     *                such as 0.0.0.0:port to listen on every interface.
+     * @return the address.
+     * @throws IllegalArgumentException if the port is not a number.
+     */
+    static InetSocketAddress toBindAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    Integer.parseInt(address.trim()));
+        }
+        return new InetSocketAddress(address.substring(0, colon).trim(),
+                Integer.parseInt(address.substring(colon + 1).trim()));
+    }
 
+    /**
+     * Parses a comma separated list of worker addresses.
+     * 
+     * @param workers the addresses, as host:port,host:port,...
+     * @return the addresses.
+     * @throws IllegalArgumentException if an address is not host:port.
+     */
+    private static List<InetSocketAddress> toAddresses(String workers) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : workers.split(",")) {
+            int colon = worker.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid worker address: " + worker);
+            }
+            addresses.add(new InetSocketAddress(worker.substring(0, colon).trim(),
+                    Integer.parseInt(worker.substring(colon + 1).trim())));
+        }
+        return addresses;
+    }
+
+    /**
+     * Runs a command script through the console app.
+     * 
+     * @param list    the game list to manage.
+     * @param planner the planner to help filter games.
+     * @param script  the script file name, or - for standard input.
+     */
+    private static void runBatch(IGameList list, IPlanner planner, String script) {
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try (Reader in = STDIN.equals(script)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(script), StandardCharsets.UTF_8)) {
+            new ConsoleApp(list, planner, in, out, false).runBatch();
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        }
+    }
 
 }
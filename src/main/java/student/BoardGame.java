@@ -28,6 +28,14 @@ public class BoardGame implements Comparable<BoardGame> {
     private final double averageRating;
     /** The year the game was published. */
     private final int yearPublished;
+    /** The name as a key for comparing and sorting, ignoring case (see NameKey). */
+    private final String sortName;
+    /** The first characters of the sort name, packed for fast comparisons. */
+    private final long sortPrefix;
+    /** The extended columns of the file the game was loaded from, null if none. */
+    private final ExtendedColumns extended;
+    /** The row of the game in the extended columns. */
+    private final int row;
 
     /**
      * Constructs a new BoardGame object with the specified attributes.
@@ -46,6 +54,29 @@ public class BoardGame implements Comparable<BoardGame> {
     public BoardGame(String name, int id, int minPlayers, int maxPlayers, int minPlayTime,
                      int maxPlayTime, double difficulty, int rank,
                      double averageRating, int yearPublished) {
+        this(name, id, minPlayers, maxPlayers, minPlayTime, maxPlayTime, difficulty, rank,
+                averageRating, yearPublished, null, -1);
+    }
+
+    /**
+     * Constructs a BoardGame loaded from a file, with its extended columns.
+     *
+     * @param name The name of the game.
+     * @param id The unique identifier.
+     * @param minPlayers The minimum number of players required.
+     * @param maxPlayers The maximum number of players allowed.
+     * @param minPlayTime The minimum play time in minutes.
+     * @param maxPlayTime The maximum play time in minutes.
+     * @param difficulty The average difficulty rating.
+     * @param rank The ranking of the game.
+     * @param averageRating The average user rating.
+     * @param yearPublished The year the game was published.
+     * @param extended The extended columns of the file, null if there are none.
+     * @param row The row of the game in the extended columns.
+     */
+    BoardGame(String name, int id, int minPlayers, int maxPlayers, int minPlayTime,
+              int maxPlayTime, double difficulty, int rank, double averageRating,
+              int yearPublished, ExtendedColumns extended, int row) {
         this.name = name;
         this.id = id;
         this.minPlayers = minPlayers;
@@ -56,6 +87,10 @@ public class BoardGame implements Comparable<BoardGame> {
         this.rank = rank;
         this.averageRating = averageRating;
         this.yearPublished = yearPublished;
+        this.sortName = NameKey.fold(name);
+        this.sortPrefix = NameKey.prefix(sortName);
+        this.extended = extended;
+        this.row = row;
     }
 
     /** @return The name of the board game. */
@@ -126,6 +161,8 @@ public class BoardGame implements Comparable<BoardGame> {
             case MAX_TIME -> maxPlayTime;
             case YEAR -> yearPublished;
             case ID -> id;
+            case BEST_PLAYERS, MIN_AGE, OWNED, GEEK_RATING ->
+                    extended == null ? 0 : extended.number(row, col);
             default -> throw new IllegalArgumentException("Invalid numeric column: " + col);
         };
     }
@@ -141,6 +178,9 @@ public class BoardGame implements Comparable<BoardGame> {
         if (col == GameData.NAME) {
             return name;
         }
+        if (ExtendedColumns.isExtended(col) && !ExtendedColumns.isNumeric(col)) {
+            return extended == null ? "" : extended.text(row, col);
+        }
         throw new IllegalArgumentException("Invalid string column: " + col);
     }
 
@@ -161,6 +201,11 @@ public class BoardGame implements Comparable<BoardGame> {
             case MIN_TIME -> String.format("%s (%d min)", name, minPlayTime);
             case MAX_TIME -> String.format("%s (%d min)", name, maxPlayTime);
             case YEAR -> String.format("%s (%d)", name, yearPublished);
+            case BEST_PLAYERS, MIN_AGE, OWNED ->
+                    String.format("%s (%d)", name, (int) getNumericValue(col));
+            case GEEK_RATING -> String.format("%s (%.2f)", name, getNumericValue(col));
+            case LANGUAGE, ORIGINAL_NAME, COMMENT ->
+                    String.format("%s (%s)", name, getStringValue(col));
             default -> name;
         };
     }
@@ -225,6 +270,55 @@ public class BoardGame implements Comparable<BoardGame> {
      */
     @Override
     public int compareTo(BoardGame other) {
-        return this.name.compareToIgnoreCase(other.name);
+        return compareName(other);
+    }
+
+    /** @return The name as a key for comparing and sorting, ignoring case. */
+    String getSortName() {
+        return sortName;
+    }
+
+    /**
+     * Compares the names of two games, ignoring case, using their precomputed keys.
+     *
+     * @param other The other BoardGame object.
+     * @return A comparison result based on the game name.
+     */
+    int compareName(BoardGame other) {
+        return NameKey.compare(sortName, sortPrefix, other.sortName, other.sortPrefix);
+    }
+
+    /**
+     * Checks whether two versions of a game have the same value in every column,
+     * the extended columns included. Equals compares the base fields only.
+     *
+     * @param other The other BoardGame object.
+     * @return True if no column differs.
+     */
+    boolean sameValues(BoardGame other) {
+        if (!equals(other)) {
+            return false;
+        }
+        if (extended != null && other.extended != null) {
+            return extended.sameRow(row, other.extended, other.row);
+        }
+        for (GameData column : ExtendedColumns.columns()) {
+            if (ExtendedColumns.isNumeric(column)
+                    ? Double.compare(getNumericValue(column), other.getNumericValue(column)) != 0
+                    : !getStringValue(column).equals(other.getStringValue(column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether two games have the same name, ignoring case.
+     *
+     * @param other The other BoardGame object.
+     * @return True if the names are the same.
+     */
+    boolean sameName(BoardGame other) {
+        return sortPrefix == other.sortPrefix && sortName.equals(other.sortName);
     }
 }
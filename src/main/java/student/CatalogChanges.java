@@ -0,0 +1,198 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The games added, updated and removed between a version of the catalog and a
+ * newly loaded collection.
+ *
+ * Games are matched by objectid. BGA lists a few games under more than one name
+ * with the same objectid, so games with the same objectid and name (ignoring
+ * case) are matched first, and then any left over by objectid alone (a renamed
+ * game). Only a game with a value that differs from its match, in any column
+ * including the extended ones, counts as updated.
+ *
+ * The catalog games with each loaded objectid are found through the objectid
+ * index of the catalog version, so matching a small batch of upserts looks only
+ * at the games with its objectids rather than at the whole catalog.
+ */
+public final class CatalogChanges {
+    /** Games in the collection but not in the catalog. */
+    private final List<BoardGame> inserted;
+    /** New versions of games that changed. */
+    private final List<BoardGame> updated;
+    /** Catalog ordinals of the updated games, in the same order. */
+    private final int[] updatedOrdinals;
+    /** Games in the catalog but no longer in the collection. */
+    private final List<BoardGame> deleted;
+    /** Catalog ordinals of the deleted games, in the same order. */
+    private final int[] deletedOrdinals;
+
+    /**
+     * Creates a set of changes.
+     *
+     * @param inserted        games in the collection but not in the catalog.
+     * @param updated         new versions of games that changed.
+     * @param updatedOrdinals catalog ordinals of the updated games.
+     * @param deleted         games no longer in the collection.
+     * @param deletedOrdinals catalog ordinals of the deleted games.
+     */
+    CatalogChanges(List<BoardGame> inserted, List<BoardGame> updated, int[] updatedOrdinals,
+            List<BoardGame> deleted, int[] deletedOrdinals) {
+        this.inserted = List.copyOf(inserted);
+        this.updated = List.copyOf(updated);
+        this.updatedOrdinals = updatedOrdinals;
+        this.deleted = List.copyOf(deleted);
+        this.deletedOrdinals = deletedOrdinals;
+    }
+
+    /**
+     * Works out the changes that turn a version of the catalog into a collection.
+     *
+     * @param catalog the current version of the catalog.
+     * @param games   the newly loaded collection.
+     * @return the changes.
+     */
+    static CatalogChanges between(GameCatalog catalog, Collection<BoardGame> games) {
+        return compare(catalog, games, true);
+    }
+
+    /**
+     * Works out the changes that add or update a batch of games, leaving the other
+     * games of the catalog as they are.
+     *
+     * @param catalog the current version of the catalog.
+     * @param games   the new and updated games, at most one version of each.
+     * @return the changes, with no deleted games.
+     */
+    static CatalogChanges upserts(GameCatalog catalog, Collection<BoardGame> games) {
+        return compare(catalog, games, false);
+    }
+
+    /**
+     * Matches a set of games against a version of the catalog.
+     *
+     * @param catalog the current version of the catalog.
+     * @param games   the games.
+     * @param delete  true if catalog games without a match are deleted.
+     * @return the changes.
+     */
+    private static CatalogChanges compare(GameCatalog catalog, Collection<BoardGame> games,
+            boolean delete) {
+        Map<Integer, List<BoardGame>> loaded = new HashMap<>();
+        for (BoardGame game : games) {
+            loaded.computeIfAbsent(game.getId(), id -> new ArrayList<>(1)).add(game);
+        }
+
+        // only the catalog games with a loaded objectid are looked at, through the objectid
+        // index of the catalog: by objectid and name first, then by objectid (renamed games)
+        TreeMap<Integer, BoardGame> matches = new TreeMap<>();
+        for (Map.Entry<Integer, List<BoardGame>> candidates : loaded.entrySet()) {
+            int[] ordinals = catalog.ordinalsOf(candidates.getKey());
+            for (boolean byName : new boolean[] {true, false}) {
+                for (int ordinal : ordinals) {
+                    if (!matches.containsKey(ordinal) && !candidates.getValue().isEmpty()) {
+                        BoardGame match =
+                                takeMatch(catalog.get(ordinal), candidates.getValue(), byName);
+                        if (match != null) {
+                            matches.put(ordinal, match);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<BoardGame> updated = new ArrayList<>();
+        List<Integer> updatedAt = new ArrayList<>();
+        for (Map.Entry<Integer, BoardGame> match : matches.entrySet()) {
+            if (!match.getValue().sameValues(catalog.get(match.getKey()))) {
+                updated.add(match.getValue());
+                updatedAt.add(match.getKey());
+            }
+        }
+        List<BoardGame> deleted = new ArrayList<>();
+        List<Integer> deletedAt = new ArrayList<>();
+        if (delete) {
+            BitSet live = catalog.all();
+            for (int ordinal = live.nextSetBit(0); ordinal >= 0;
+                    ordinal = live.nextSetBit(ordinal + 1)) {
+                if (!matches.containsKey(ordinal)) {
+                    deleted.add(catalog.get(ordinal));
+                    deletedAt.add(ordinal);
+                }
+            }
+        }
+
+        List<BoardGame> inserted = new ArrayList<>();
+        loaded.values().forEach(inserted::addAll); // whatever was not matched is new
+        return new CatalogChanges(inserted, updated,
+                updatedAt.stream().mapToInt(Integer::intValue).toArray(), deleted,
+                deletedAt.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Takes the loaded game matching a catalog game out of the loaded games with
+     * the same objectid.
+     *
+     * @param current    the catalog game.
+     * @param candidates the loaded games with the same objectid, matches are removed.
+     * @param byName     true to only match a game with the same name.
+     * @return the match, or null if there is none.
+     */
+    private static BoardGame takeMatch(BoardGame current, List<BoardGame> candidates,
+            boolean byName) {
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!byName || candidates.get(i).sameName(current)) {
+                return candidates.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /** @return Games in the collection but not in the catalog. */
+    public List<BoardGame> getInserted() {
+        return inserted;
+    }
+
+    /** @return New versions of the games that changed. */
+    public List<BoardGame> getUpdated() {
+        return updated;
+    }
+
+    /** @return Games in the catalog but no longer in the collection. */
+    public List<BoardGame> getDeleted() {
+        return deleted;
+    }
+
+    /** @return True if nothing changed. */
+    public boolean isEmpty() {
+        return inserted.isEmpty() && updated.isEmpty() && deleted.isEmpty();
+    }
+
+    /** @return Catalog ordinals of the updated games, in the order of getUpdated. */
+    int[] updatedOrdinals() {
+        return updatedOrdinals;
+    }
+
+    /** @return Catalog ordinals of the deleted games, in the order of getDeleted. */
+    int[] deletedOrdinals() {
+        return deletedOrdinals;
+    }
+
+    /**
+     * Returns a short summary of the changes.
+     *
+     * @return the number of games inserted, updated and deleted.
+     */
+    @Override
+    public String toString() {
+        return "CatalogChanges{inserted=" + inserted.size() + ", updated=" + updated.size()
+                + ", deleted=" + deleted.size() + "}";
+    }
+}
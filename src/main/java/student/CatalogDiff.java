@@ -0,0 +1,499 @@
+package student;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Compares two collection files, such as two nightly exports, and reports the
+ * games added, removed and changed, with the fields that changed.
+ *
+ * Neither file is loaded as games. Each is read straight into one array per
+ * column it knows, row by row, leaving out columns it does not know, and its
+ * rows are ordered by objectid by sorting one long per row (the objectid in
+ * the high half, the row in the low half). The two orders are then merged, and
+ * each change is passed on as soon as it is found, in objectid order.
+ *
+ * Games are matched like CatalogChanges does: by objectid and name (ignoring
+ * case) first, then by objectid alone, so a renamed game is a change of its
+ * name. Every column found in both files is compared: the objectid and the nine
+ * numbers of a game by value, the others as text. Rows that GamesLoader would
+ * skip are skipped here too.
+ */
+public final class CatalogDiff {
+    /** Standard csv delim. */
+    private static final String DELIMITER = ",";
+    /** Half of a sort key, in bits. */
+    private static final int HALF = 32;
+    /** The rows a snapshot has room for before it grows. */
+    private static final int INITIAL_ROWS = 1024;
+
+    /** The kinds of change. */
+    public enum Kind {
+        /** A game only in the newer file. */
+        ADDED,
+        /** A game only in the older file. */
+        REMOVED,
+        /** A game in both files, with different values. */
+        CHANGED
+    }
+
+    /**
+     * One added, removed or changed game.
+     */
+    public static final class Change {
+        /** The kind of change. */
+        private final Kind kind;
+        /** The objectid of the game. */
+        private final int id;
+        /** The name of the game, the newer one if it changed. */
+        private final String name;
+        /** The old and new text of each changed field. */
+        private final Map<GameData, String[]> fields;
+
+        /**
+         * Creates a change.
+         *
+         * @param kind   the kind of change.
+         * @param id     the objectid of the game.
+         * @param name   the name of the game.
+         * @param fields the old and new text of each changed field.
+         */
+        private Change(Kind kind, int id, String name, Map<GameData, String[]> fields) {
+            this.kind = kind;
+            this.id = id;
+            this.name = name;
+            this.fields = fields;
+        }
+
+        /** @return The kind of change. */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /** @return The objectid of the game. */
+        public int getId() {
+            return id;
+        }
+
+        /** @return The name of the game, the newer one if it was renamed. */
+        public String getName() {
+            return name;
+        }
+
+        /** @return The fields that changed, empty unless the game changed. */
+        public Set<GameData> getFields() {
+            return Collections.unmodifiableSet(fields.keySet());
+        }
+
+        /**
+         * Gets the old value of a changed field.
+         *
+         * @param field the field.
+         * @return the text in the older file, null if the field did not change.
+         */
+        public String getBefore(GameData field) {
+            String[] values = fields.get(field);
+            return values == null ? null : values[0];
+        }
+
+        /**
+         * Gets the new value of a changed field.
+         *
+         * @param field the field.
+         * @return the text in the newer file, null if the field did not change.
+         */
+        public String getAfter(GameData field) {
+            String[] values = fields.get(field);
+            return values == null ? null : values[1];
+        }
+
+        /**
+         * Returns the change as one line, such as
+         * {@code changed 230802 Azul: average 7.75 -> 7.76}.
+         *
+         * @return the change.
+         */
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(kind.name().toLowerCase(Locale.ROOT)).append(' ')
+                    .append(id).append(' ').append(name);
+            String separator = ": ";
+            for (Map.Entry<GameData, String[]> field : fields.entrySet()) {
+                text.append(separator).append(field.getKey().getColumnName()).append(' ')
+                        .append(field.getValue()[0]).append(" -> ").append(field.getValue()[1]);
+                separator = ", ";
+            }
+            return text.toString();
+        }
+    }
+
+    /** private constructor to prevent instantiation. */
+    private CatalogDiff() {
+    }
+
+    /**
+     * Compares two collection files.
+     *
+     * @param before  the older file.
+     * @param after   the newer file.
+     * @param changes receives each change, in objectid order.
+     * @return the number of changes.
+     * @throws IOException if either file cannot be read.
+     */
+    public static long diff(Path before, Path after, Consumer<Change> changes)
+            throws IOException {
+        try (BufferedReader older = Files.newBufferedReader(before, StandardCharsets.UTF_8);
+                BufferedReader newer = Files.newBufferedReader(after, StandardCharsets.UTF_8)) {
+            return diff(older, newer, changes);
+        }
+    }
+
+    /**
+     * Compares two collections in csv form, header first.
+     *
+     * @param before  the older collection.
+     * @param after   the newer collection.
+     * @param changes receives each change, in objectid order.
+     * @return the number of changes.
+     * @throws IOException if either collection cannot be read.
+     */
+    public static long diff(Reader before, Reader after, Consumer<Change> changes)
+            throws IOException {
+        Snapshot older = new Snapshot(new BufferedReader(before));
+        Snapshot newer = new Snapshot(new BufferedReader(after));
+        List<GameData> columns = new ArrayList<>();
+        for (GameData column : GameData.values()) {
+            if (older.has(column) && newer.has(column)) {
+                columns.add(column);
+            }
+        }
+
+        long[] a = older.sortedKeys();
+        long[] b = newer.sortedKeys();
+        long count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int id = i == a.length ? id(b[j]) : j == b.length ? id(a[i])
+                    : Math.min(id(a[i]), id(b[j]));
+            int endA = i;
+            while (endA < a.length && id(a[endA]) == id) {
+                endA++;
+            }
+            int endB = j;
+            while (endB < b.length && id(b[endB]) == id) {
+                endB++;
+            }
+            count += merge(older, Arrays.copyOfRange(a, i, endA), newer,
+                    Arrays.copyOfRange(b, j, endB), columns, changes);
+            i = endA;
+            j = endB;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the objectid of a sort key.
+     *
+     * @param key the key.
+     * @return the objectid.
+     */
+    private static int id(long key) {
+        return (int) (key >> HALF);
+    }
+
+    /**
+     * Gets the row of a sort key.
+     *
+     * @param key the key.
+     * @return the row.
+     */
+    private static int row(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Compares the rows with one objectid, matching them by name first, then in
+     * file order.
+     *
+     * @param older   the older file.
+     * @param a       the keys of the rows in the older file.
+     * @param newer   the newer file.
+     * @param b       the keys of the rows in the newer file.
+     * @param columns the columns compared.
+     * @param changes receives each change.
+     * @return the number of changes.
+     */
+    private static int merge(Snapshot older, long[] a, Snapshot newer, long[] b,
+            List<GameData> columns, Consumer<Change> changes) {
+        int[] match = new int[a.length];
+        Arrays.fill(match, -1);
+        boolean[] taken = new boolean[b.length];
+        for (boolean byName : new boolean[] {true, false}) {
+            for (int x = 0; x < a.length; x++) {
+                for (int y = 0; y < b.length && match[x] < 0; y++) {
+                    if (!taken[y] && (!byName || older.foldedName(row(a[x]))
+                            .equals(newer.foldedName(row(b[y]))))) {
+                        match[x] = y;
+                        taken[y] = true;
+                    }
+                }
+            }
+        }
+
+        int count = 0;
+        for (int x = 0; x < a.length; x++) {
+            int rowA = row(a[x]);
+            if (match[x] < 0) {
+                changes.accept(new Change(Kind.REMOVED, older.id(rowA), older.name(rowA),
+                        Map.of()));
+                count++;
+                continue;
+            }
+            int rowB = row(b[match[x]]);
+            Map<GameData, String[]> fields = new EnumMap<>(GameData.class);
+            for (GameData column : columns) {
+                String before = older.text(rowA, column);
+                String after = newer.text(rowB, column);
+                if (!same(column, before, after)) {
+                    fields.put(column, new String[] {before, after});
+                }
+            }
+            if (!fields.isEmpty()) {
+                changes.accept(new Change(Kind.CHANGED, newer.id(rowB), newer.name(rowB),
+                        fields));
+                count++;
+            }
+        }
+        for (int y = 0; y < b.length; y++) {
+            if (!taken[y]) {
+                int rowB = row(b[y]);
+                changes.accept(new Change(Kind.ADDED, newer.id(rowB), newer.name(rowB),
+                        Map.of()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Compares two values of a column.
+     *
+     * @param column the column.
+     * @param before the older text.
+     * @param after  the newer text.
+     * @return true if they are the same value.
+     */
+    private static boolean same(GameData column, String before, String after) {
+        if (before.equals(after)) {
+            return true;
+        }
+        if (!isBaseNumber(column)) {
+            return false;
+        }
+        // both parsed when the rows were read, so neither can fail here
+        return Double.parseDouble(before) == Double.parseDouble(after);
+    }
+
+    /**
+     * Checks if a column is one of the numbers every game has.
+     *
+     * @param column the column.
+     * @return true for the objectid and the nine numeric columns of a game.
+     */
+    private static boolean isBaseNumber(GameData column) {
+        return column == GameData.ID
+                || (FilterClause.isNumericColumn(column) && !ExtendedColumns.isExtended(column));
+    }
+
+    /**
+     * One collection file, read into columns.
+     */
+    private static final class Snapshot {
+        /** The objectid of each row. */
+        private final int[] ids;
+        /** The text of each column, by row, null for columns not in the file. */
+        private final String[][] columns = new String[GameData.values().length][];
+        /** The number of rows. */
+        private final int rows;
+
+        /**
+         * Reads a collection, skipping rows GamesLoader would skip.
+         *
+         * @param reader the collection in csv form, header first.
+         * @throws IOException if it cannot be read.
+         */
+        private Snapshot(BufferedReader reader) throws IOException {
+            String header = reader.readLine();
+            int[] index = new int[GameData.values().length];
+            Arrays.fill(index, -1);
+            String[] names = header == null ? new String[0] : header.split(DELIMITER);
+            for (int i = 0; i < names.length; i++) {
+                for (GameData column : GameData.values()) {
+                    if (column.getColumnName().equals(names[i])) {
+                        index[column.ordinal()] = i;
+                    }
+                }
+            }
+            int needed = 0;
+            for (GameData column : GameData.values()) {
+                if (!ExtendedColumns.isExtended(column)) {
+                    needed = Math.max(needed, index[column.ordinal()]);
+                }
+            }
+
+            // each row goes straight into the columns the file has, so only one row
+            // is ever held split
+            int[] read = new int[INITIAL_ROWS];
+            String[][] text = new String[columns.length][];
+            for (GameData column : GameData.values()) {
+                if (index[column.ordinal()] >= 0) {
+                    text[column.ordinal()] = new String[INITIAL_ROWS];
+                }
+            }
+            int count = 0;
+            String line;
+            while ((line = GamesLoader.readRecord(reader)) != null) {
+                String[] values = GamesLoader.split(line);
+                if (!isValid(values, index, needed)) {
+                    continue;
+                }
+                if (count == read.length) {
+                    read = Arrays.copyOf(read, count * 2);
+                    for (int c = 0; c < text.length; c++) {
+                        if (text[c] != null) {
+                            text[c] = Arrays.copyOf(text[c], count * 2);
+                        }
+                    }
+                }
+                read[count] = Integer.parseInt(values[index[GameData.ID.ordinal()]]);
+                for (int c = 0; c < text.length; c++) {
+                    if (text[c] != null) {
+                        int at = index[c];
+                        text[c][count] = at < values.length ? values[at] : "";
+                    }
+                }
+                count++;
+            }
+            this.rows = count;
+            this.ids = Arrays.copyOf(read, count);
+            for (int c = 0; c < text.length; c++) {
+                if (text[c] != null) {
+                    columns[c] = Arrays.copyOf(text[c], count);
+                }
+            }
+        }
+
+        /**
+         * Checks a row has every column of a game, with numbers where they should be.
+         *
+         * @param values the values of the row.
+         * @param index  the place of each column in a row, -1 if missing.
+         * @param needed the last place of a column every game has.
+         * @return true if the row is a game.
+         */
+        private static boolean isValid(String[] values, int[] index, int needed) {
+            if (values.length < needed) {
+                return false;
+            }
+            for (GameData column : GameData.values()) {
+                if (ExtendedColumns.isExtended(column)) {
+                    continue;
+                }
+                int at = index[column.ordinal()];
+                if (at < 0 || at >= values.length) {
+                    return false;
+                }
+                try {
+                    if (column == GameData.RATING || column == GameData.DIFFICULTY) {
+                        Double.parseDouble(values[at]);
+                    } else if (column != GameData.NAME) {
+                        Integer.parseInt(values[at]);
+                    }
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Checks if the file has a column.
+         *
+         * @param column the column.
+         * @return true if it has.
+         */
+        private boolean has(GameData column) {
+            return columns[column.ordinal()] != null;
+        }
+
+        /**
+         * Orders the rows by objectid, and by row between equal objectids.
+         *
+         * @return the objectid in the high half and the row in the low half of
+         *         each key, sorted.
+         */
+        private long[] sortedKeys() {
+            long[] keys = new long[rows];
+            for (int row = 0; row < rows; row++) {
+                keys[row] = (long) ids[row] << HALF | row;
+            }
+            Arrays.sort(keys);
+            return keys;
+        }
+
+        /**
+         * Gets the objectid of a row.
+         *
+         * @param row the row.
+         * @return the objectid.
+         */
+        private int id(int row) {
+            return ids[row];
+        }
+
+        /**
+         * Gets the name of a row.
+         *
+         * @param row the row.
+         * @return the name.
+         */
+        private String name(int row) {
+            return columns[GameData.NAME.ordinal()][row];
+        }
+
+        /**
+         * Gets the name of a row as a key for comparing, ignoring case.
+         *
+         * @param row the row.
+         * @return the key.
+         */
+        private String foldedName(int row) {
+            return NameKey.fold(name(row));
+        }
+
+        /**
+         * Gets the text of a column of a row.
+         *
+         * @param row    the row.
+         * @param column the column, in the file.
+         * @return the text.
+         */
+        private String text(int row, GameData column) {
+            return columns[column.ordinal()][row];
+        }
+    }
+}
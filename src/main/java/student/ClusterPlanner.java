@@ -0,0 +1,393 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * A planner that coordinates PlannerWorkers, each owning part of the catalog,
+ * possibly in other processes or on other machines.
+ *
+ * Every call is sent to all workers in parallel. Each worker sorts its own
+ * results, and the coordinator merges them (see ShardedPlanner#merge), fetching
+ * further pages from a worker only as the merged stream is read.
+ *
+ * A worker that does not answer within the timeout, or whose connection fails,
+ * is left out: results then only hold the games of the workers that answered,
+ * and the failure is reported on System.err. The worker is tried again on a
+ * later call, once the timeout has passed again. As a reconnected worker starts a
+ * new session, the coordinator replays the filters, undos and redos of this
+ * session since its last reset to bring it back to the same state. A new session
+ * starts out reset, so nothing before the reset is kept, and undo stops at the
+ * last reset rather than undoing it.
+ *
+ * Like Planner, a ClusterPlanner is one session and is not meant to be shared
+ * between threads. A stream of results is only valid until the next call.
+ */
+public final class ClusterPlanner implements IPlanner, Closeable {
+    /** Number of games fetched from a worker at a time. */
+    static final int PAGE_SIZE = 100;
+
+    /** The workers. */
+    private final List<Connection> workers;
+    /** How long to wait for the workers (and to retry a failed one), in milliseconds. */
+    private final int timeoutMillis;
+    /** Sends calls to the workers in parallel. */
+    private final ExecutorService pool;
+    /** Calls that changed the state of the session since the last reset. */
+    private final List<Call<?>> log = new ArrayList<>();
+    /** Steps that can be undone since the last reset. */
+    private int undoable;
+    /** Steps that can be redone. */
+    private int redoable;
+
+    /**
+     * Creates a planner over a set of workers.
+     *
+     * @param addresses     the addresses of the workers.
+     * @param timeoutMillis how long to wait for the workers on each call.
+     * @throws IllegalArgumentException if there are no workers or the timeout is
+     *                                  not positive.
+     */
+    public ClusterPlanner(List<InetSocketAddress> addresses, int timeoutMillis) {
+        if (addresses.isEmpty() || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Need at least one worker and a positive timeout");
+        }
+        this.timeoutMillis = timeoutMillis;
+        this.workers = addresses.stream().map(Connection::new).toList();
+        this.pool = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "cluster-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter) {
+        return filter(filter, GameData.NAME, true);
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn) {
+        return filter(filter, sortOn, true);
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
+        List<Cursor> cursors = fanOut(worker -> worker.filter(filter, sortOn, ascending,
+                PAGE_SIZE));
+        if (filter != null && !filter.isEmpty()) {
+            log.add(worker -> worker.filter(filter, GameData.NAME, true, 0));
+            undoable++;
+            redoable = 0;
+        }
+        return ShardedPlanner.merge(cursors.stream().filter(cursor -> cursor != null).toList(),
+                Planner.resultOrder(sortOn, ascending));
+    }
+
+    @Override
+    public void reset() {
+        command(PlannerProtocol.RESET);
+        log.clear(); // a new session is already reset
+        undoable = 0;
+        redoable = 0;
+    }
+
+    @Override
+    public boolean undo() {
+        if (undoable == 0) {
+            return false;
+        }
+        command(PlannerProtocol.UNDO);
+        undoable--;
+        redoable++;
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (redoable == 0) {
+            return false;
+        }
+        command(PlannerProtocol.REDO);
+        redoable--;
+        undoable++;
+        return true;
+    }
+
+    /**
+     * Sends a command that changes the session to every worker, and logs it.
+     *
+     * @param command the command.
+     */
+    private void command(String command) {
+        Call<Boolean> call = worker -> worker.command(command);
+        fanOut(call);
+        log.add(call);
+    }
+
+    /**
+     * Makes a call on every worker in parallel, waiting for them up to the timeout.
+     *
+     * @param call the call.
+     * @param <T>  the type of the answer.
+     * @return the answer of each worker, null for workers that failed.
+     */
+    private <T> List<T> fanOut(Call<T> call) {
+        List<Call<?>> replay = List.copyOf(log);
+        List<Future<T>> futures = workers.stream().map(worker -> pool.submit(() -> {
+            worker.connect(replay);
+            return call.run(worker);
+        })).toList();
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        List<T> answers = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                answers.add(futures.get(i).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            } catch (ExecutionException e) {
+                workers.get(i).fail(e.getCause());
+                answers.add(null);
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                workers.get(i).fail(e);
+                answers.add(null);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                workers.get(i).fail(e);
+                answers.add(null);
+            }
+        }
+        return answers;
+    }
+
+    /**
+     * Stops using the workers, closing every connection.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        workers.forEach(Connection::disconnect);
+    }
+
+    /**
+     * A call made on a worker.
+     *
+     * @param <T> the type of the answer.
+     */
+    @FunctionalInterface
+    private interface Call<T> {
+        /**
+         * Makes the call.
+         *
+         * @param worker the worker.
+         * @return the answer.
+         * @throws IOException if the worker cannot be reached.
+         */
+        T run(Connection worker) throws IOException;
+    }
+
+    /**
+     * The connection to one worker.
+     */
+    private final class Connection {
+        /** The address of the worker. */
+        private final InetSocketAddress address;
+        /** The connection, null when not connected. */
+        private volatile Socket socket;
+        /** Reads answers from the worker. */
+        private DataInputStream in;
+        /** Writes calls to the worker. */
+        private DataOutputStream out;
+        /** The results of the last filter, the only ones that can be paged. */
+        private Cursor cursor;
+        /** When the worker may be tried again after failing, 0 if it has not failed. */
+        private long retryAt;
+
+        /**
+         * Creates a connection, connected on first use.
+         *
+         * @param address the address of the worker.
+         */
+        private Connection(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Connects to the worker, if not connected, and replays the session.
+         *
+         * @param calls the calls to replay.
+         * @throws IOException if the worker cannot be reached.
+         */
+        private void connect(List<Call<?>> calls) throws IOException {
+            if (socket != null) {
+                return;
+            }
+            if (System.currentTimeMillis() < retryAt) {
+                throw new IOException("waiting to retry");
+            }
+            Socket connection = new Socket();
+            try {
+                connection.connect(address, timeoutMillis);
+                connection.setSoTimeout(timeoutMillis);
+                connection.setTcpNoDelay(true);
+                in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+            socket = connection;
+            for (Call<?> call : calls) {
+                call.run(this);
+            }
+            retryAt = 0;
+        }
+
+        /**
+         * Filters on the worker, fetching the first page of results.
+         *
+         * @param filter    the filter.
+         * @param sortOn    the field to sort on.
+         * @param ascending true for ascending order.
+         * @param pageSize  the most games to fetch.
+         * @return the results.
+         * @throws IOException if the worker cannot be reached.
+         */
+        private Cursor filter(String filter, GameData sortOn, boolean ascending, int pageSize)
+                throws IOException {
+            out.writeUTF(PlannerProtocol.FILTER);
+            out.writeUTF(filter == null ? "" : filter);
+            out.writeUTF(sortOn.name());
+            out.writeBoolean(ascending);
+            out.writeInt(pageSize);
+            out.flush();
+            cursor = new Cursor(this);
+            cursor.more = PlannerProtocol.readPage(in, cursor.page);
+            return cursor;
+        }
+
+        /**
+         * Fetches the next page of the last filter.
+         *
+         * @param page the list to add the games to.
+         * @return true if there are more games after the page.
+         * @throws IOException if the worker cannot be reached.
+         */
+        private boolean next(List<BoardGame> page) throws IOException {
+            out.writeUTF(PlannerProtocol.NEXT);
+            out.writeInt(PAGE_SIZE);
+            out.flush();
+            return PlannerProtocol.readPage(in, page);
+        }
+
+        /**
+         * Sends a command that answers true or false.
+         *
+         * @param command the command.
+         * @return the answer.
+         * @throws IOException if the worker cannot be reached.
+         */
+        private boolean command(String command) throws IOException {
+            out.writeUTF(command);
+            out.flush();
+            return in.readBoolean();
+        }
+
+        /**
+         * Drops the connection after a failure, to try again later.
+         *
+         * @param cause why the worker failed.
+         */
+        private void fail(Throwable cause) {
+            if (retryAt == 0) {
+                System.err.println("Worker " + address + " unavailable, results are partial: "
+                        + (cause instanceof TimeoutException ? "timed out" : String.valueOf(cause)));
+            }
+            retryAt = System.currentTimeMillis() + timeoutMillis;
+            disconnect();
+        }
+
+        /**
+         * Closes the connection, if connected.
+         */
+        private void disconnect() {
+            Socket connection = socket;
+            socket = null;
+            cursor = null;
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException e) {
+                    // already closed
+                }
+            }
+        }
+    }
+
+    /**
+     * The results of a filter on one worker, fetched a page at a time.
+     */
+    private final class Cursor implements Iterator<BoardGame> {
+        /** The worker. */
+        private final Connection worker;
+        /** The current page. */
+        private List<BoardGame> page = new ArrayList<>();
+        /** Position in the current page. */
+        private int position;
+        /** Whether the worker has more games after the current page. */
+        private boolean more;
+
+        /**
+         * Creates the results of a filter.
+         *
+         * @param worker the worker.
+         */
+        private Cursor(Connection worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position < page.size()) {
+                return true;
+            }
+            if (!more || worker.cursor != this) {
+                return false; // done, or a later call replaced the results
+            }
+            page = new ArrayList<>();
+            position = 0;
+            try {
+                more = worker.next(page);
+            } catch (IOException e) {
+                worker.fail(e);
+                more = false;
+            }
+            return position < page.size();
+        }
+
+        @Override
+        public BoardGame next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(position++);
+        }
+    }
+}
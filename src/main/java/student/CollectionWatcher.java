@@ -0,0 +1,137 @@
+package student;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a collection csv file and reloads it into a LiveCatalog whenever it
+ * changes on disk.
+ *
+ * Editors and copy tools often write a file in several steps, so a reload waits
+ * until the file has been quiet for a short while. The reload itself only applies
+ * the games that changed (see LiveCatalog#reload), and runs on a background
+ * thread, so planners keep answering queries over the previous version meanwhile.
+ * Each reload that changed something is passed to an optional listener.
+ */
+public final class CollectionWatcher implements Closeable {
+    /** How long the file must be quiet before it is reloaded, in milliseconds. */
+    private static final long QUIET_MILLIS = 200;
+
+    /** The collection file watched. */
+    private final Path file;
+    /** The catalog to reload the file into. */
+    private final LiveCatalog catalog;
+    /** Receives the changes of each reload that changed something. */
+    private final Consumer<CatalogChanges> listener;
+    /** Watches the directory of the file. */
+    private final WatchService watcher;
+    /** The background thread reloading the file. */
+    private final Thread thread;
+
+    /**
+     * Starts watching a collection file.
+     *
+     * @param file    the collection csv file.
+     * @param catalog the catalog to reload the file into.
+     * @throws IOException if the directory of the file cannot be watched.
+     */
+    public CollectionWatcher(Path file, LiveCatalog catalog) throws IOException {
+        this(file, catalog, changes -> { });
+    }
+
+    /**
+     * Starts watching a collection file, telling a listener about each change.
+     *
+     * @param file     the collection csv file.
+     * @param catalog  the catalog to reload the file into.
+     * @param listener receives the changes of each reload that changed something,
+     *                 on the watcher thread.
+     * @throws IOException if the directory of the file cannot be watched.
+     */
+    public CollectionWatcher(Path file, LiveCatalog catalog, Consumer<CatalogChanges> listener)
+            throws IOException {
+        this.file = file.toAbsolutePath();
+        this.catalog = catalog;
+        this.listener = listener;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "collection-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Waits for changes to the file and reloads it, until closed.
+     */
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = drain(key);
+                // wait for the file to be quiet
+                while ((key = watcher.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Takes the events of a watch key.
+     *
+     * @param key the key with events.
+     * @return true if any of the events were about the watched file.
+     */
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Reloads the file into the catalog, keeping the current version if it cannot
+     * be read.
+     */
+    private void reload() {
+        try {
+            CatalogChanges changes = catalog.reload(GamesLoader.loadGamesFile(file));
+            if (!changes.isEmpty()) {
+                listener.accept(changes);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException if the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watcher.close();
+        thread.interrupt();
+    }
+}
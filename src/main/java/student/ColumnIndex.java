@@ -0,0 +1,178 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A sorted index over one numeric column of the catalog.
+ *
+ * Holds the ordinals of every game ordered by the column value, so any
+ * range of values (and so any comparison, BETWEEN or single value of an IN) is
+ * found with two binary searches, and turned into a selection without looking
+ * at the games themselves.
+ */
+final class ColumnIndex {
+    /** Ordinals of the games, ordered by value. */
+    private final int[] order;
+    /** The column values, in the same order. */
+    private final double[] values;
+
+    /**
+     * Builds the index for a column.
+     *
+     * @param games  the games by ordinal, null for removed games.
+     * @param size   the number of ordinals.
+     * @param column the numeric column to index.
+     */
+    ColumnIndex(IntFunction<BoardGame> games, int size, GameData column) {
+        this(sortByValue(IntStream.range(0, size).filter(i -> games.apply(i) != null).toArray(),
+                games, column), games, column);
+    }
+
+    /**
+     * Creates an index over ordinals already sorted by value.
+     *
+     * @param order  the ordinals, sorted by value.
+     * @param games  the games by ordinal.
+     * @param column the numeric column indexed.
+     */
+    private ColumnIndex(int[] order, IntFunction<BoardGame> games, GameData column) {
+        this.order = order;
+        this.values = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            values[i] = games.apply(order[i]).getNumericValue(column);
+        }
+    }
+
+    /**
+     * Sorts ordinals by the value of their game in a column.
+     *
+     * @param ordinals the ordinals to sort.
+     * @param games    the games by ordinal.
+     * @param column   the numeric column.
+     * @return the ordinals, sorted by value.
+     */
+    private static int[] sortByValue(int[] ordinals, IntFunction<BoardGame> games,
+            GameData column) {
+        return Arrays.stream(ordinals).boxed()
+                .sorted(Comparator.comparingDouble(i -> games.apply(i).getNumericValue(column)))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Builds the index for the next version of the catalog, by dropping the changed
+     * ordinals and merging back in the ones still in the catalog, rather than
+     * sorting everything again.
+     *
+     * @param games   the games by ordinal, in the next version.
+     * @param changed the ordinals added, updated or removed.
+     * @param column  the numeric column indexed.
+     * @return the index for the next version.
+     */
+    ColumnIndex apply(IntFunction<BoardGame> games, BitSet changed, GameData column) {
+        int[] added = sortByValue(changed.stream().filter(i -> games.apply(i) != null).toArray(),
+                games, column);
+        int[] merged = new int[order.length + added.length];
+        int at = 0;
+        int a = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (changed.get(order[i])) {
+                continue;
+            }
+            while (a < added.length
+                    && games.apply(added[a]).getNumericValue(column) < values[i]) {
+                merged[at++] = added[a++];
+            }
+            merged[at++] = order[i];
+        }
+        while (a < added.length) {
+            merged[at++] = added[a++];
+        }
+        return new ColumnIndex(Arrays.copyOf(merged, at), games, column);
+    }
+
+    /**
+     * Finds the first position in the index with a value at or above (or just
+     * above) the bound.
+     *
+     * @param bound     the lower bound.
+     * @param inclusive whether values equal to the bound are included.
+     * @return the first position in the range.
+     */
+    int lowerBound(double bound, boolean inclusive) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < bound || (!inclusive && values[mid] == bound)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the position just after the last value at or below (or just below)
+     * the bound.
+     *
+     * @param bound     the upper bound.
+     * @param inclusive whether values equal to the bound are included.
+     * @return the end (exclusive) of the range.
+     */
+    int upperBound(double bound, boolean inclusive) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < bound || (inclusive && values[mid] == bound)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the games between two positions of the index to a selection.
+     *
+     * @param from      the first position.
+     * @param to        the end position (exclusive).
+     * @param selection the selection to add to.
+     */
+    void select(int from, int to, BitSet selection) {
+        for (int i = from; i < to; i++) {
+            selection.set(order[i]);
+        }
+    }
+
+    /** @return The number of games in the index. */
+    int size() {
+        return order.length;
+    }
+
+    /**
+     * Gets the game at a position of the index.
+     *
+     * @param position the position, in value order.
+     * @return the ordinal of the game.
+     */
+    int ordinalAt(int position) {
+        return order[position];
+    }
+
+    /**
+     * Gets the value at a position of the index.
+     *
+     * @param position the position, in value order.
+     * @return the column value of the game there.
+     */
+    double valueAt(int position) {
+        return values[position];
+    }
+}
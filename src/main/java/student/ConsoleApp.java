@@ -1,10 +1,21 @@
 package student;
 
-import java.util.Collections;
-import java.util.List;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Properties;
 import java.util.Scanner;
-import java.util.stream.Stream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.Random;
 
 
@@ -15,16 +26,41 @@ import java.util.Random;
  * and for a client to build a list of games they want to play, and
  * save out that list. Most of the features are focused on
  * providing a progressive filter to find games, and then add them to the list.
+ * 
+ * The same commands can also be run as a batch (see {@link #runBatch()}), reading
+ * them from a script without prompting, which is useful for replaying large
+ * command files.
  */
 public class ConsoleApp {
-    /** Interaction with the system terminal/command line. */
-    private static final Scanner IN = new Scanner(System.in);
     /** Default name to save the game list to. */
     private static final String DEFAULT_FILENAME = "games_list.txt";
+    /** Default name to export the filtered games to. */
+    private static final String DEFAULT_EXPORT_FILENAME = "games.csv";
     /** random number generator only needs to be built once. */
     private static final Random RND = new Random();
+    /** Marks a comment line in a command script. */
+    private static final String COMMENT = "#";
+    /** number of filtered games requested from the planner at a time. */
+    private static final int PRINT_BATCH = 64;
+    /** number of games shown by the similar command. */
+    private static final int SIMILAR_COUNT = 10;
+    /** number of games shown by the search command, unless a number is given. */
+    private static final int SEARCH_COUNT = 10;
+    /** number of games shown when sorting by a score, unless a number is given. */
+    private static final int RANK_COUNT = 10;
+    /** how long the night command searches for the best games, in milliseconds. */
+    private static final long NIGHT_TIME_LIMIT = 2000;
+    /** the words of a text~= clause, up to the next separator, which keep their spaces. */
+    private static final Pattern TEXT_WORDS = Pattern.compile(
+            "(?i)" + TextClause.FIELD + "\\s*~=([^,|()]*)");
     /** scanner to help with processing the command string. */
     private Scanner current;
+    /** Where commands are read from, one per line. */
+    private final BufferedReader input;
+    /** Where all output goes, flushed when input is needed or at the end. */
+    private final PrintWriter output;
+    /** Whether a person is at the other end (prompts, welcome and goodbye). */
+    private final boolean interactive;
     /** The game list to manage. */
     private final IGameList gameList;
     /** The planner to help filter games. */
@@ -37,9 +73,28 @@ public class ConsoleApp {
      * @param planner  the planner to help filter games.
      */
     public ConsoleApp(IGameList gameList, IPlanner planner) {
+        this(gameList, planner, new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true);
+    }
+
+    /**
+     * Constructor for the console app, reading commands from and writing output to the
+     * given locations.
+     * 
+     * @param gameList    the game list to manage.
+     * @param planner     the planner to help filter games.
+     * @param in          where to read commands from.
+     * @param out         where to write output to.
+     * @param interactive true to prompt for each command, false to run as a script.
+     */
+    public ConsoleApp(IGameList gameList, IPlanner planner, Reader in, Writer out,
+            boolean interactive) {
         this.gameList = gameList;
         this.planner = planner;
-    }    
+        this.input = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        this.output = new PrintWriter(out instanceof BufferedWriter ? out : new BufferedWriter(out));
+        this.interactive = interactive;
+    }
 
     /**
      * Start the console application.
@@ -48,6 +103,27 @@ public class ConsoleApp {
      */
     public void start() {
         printOutput("%s%n", ConsoleText.WELCOME);
+        processCommands();
+        printOutput("%s%n", ConsoleText.GOODBYE);
+        output.flush();
+    }
+
+    /**
+     * Runs the commands as a batch, without the welcome or any prompts, until
+     * the end of the input or an exit command.
+     * 
+     * Blank lines and lines starting with # are skipped, and output is only
+     * flushed once the batch is done.
+     */
+    public void runBatch() {
+        processCommands();
+        output.flush();
+    }
+
+    /**
+     * Processes the main menu commands and redirects, until exit.
+     */
+    private void processCommands() {
         ConsoleText ct = nextCommand();
         while (ct != ConsoleText.CMD_EXIT) {
             switch (ct) {
@@ -64,6 +140,18 @@ public class ConsoleApp {
                 case CMD_EASTER_EGG:
                     randomNumber();
                     break;
+                case CMD_SIMILAR:
+                    processSimilar();
+                    break;
+                case CMD_NIGHT:
+                    processNight();
+                    break;
+                case CMD_SEARCH:
+                    processSearch();
+                    break;
+                case CMD_EXPORT:
+                    processExport();
+                    break;
                 case INVALID:
                 default:
                     printOutput("%s%n", ConsoleText.INVALID);
@@ -75,8 +163,6 @@ public class ConsoleApp {
             // get the next prompt
             ct = nextCommand();
         }
-
-        printOutput("%s%n", ConsoleText.GOODBYE);
     }
 
     /**
@@ -91,6 +177,91 @@ public class ConsoleApp {
         // else do nothing, not a secret easter egg if filter is empty.
     }
 
+    /**
+     * Process the similar command, showing the games most like a game out of the
+     * current filter.
+     */
+    private void processSimilar() {
+        String name = remainder();
+        if (name.isEmpty()) {
+            printOutput("%s%n", ConsoleText.INVALID);
+            return;
+        }
+        try {
+            printFilterStream(new GamePublisher(planner.similar(name, SIMILAR_COUNT)),
+                    GameData.NAME);
+        } catch (IllegalArgumentException e) {
+            printOutput("%s %s%n", ConsoleText.GAME_NOT_FOUND, name);
+        }
+    }
+
+    /**
+     * Process the search command, showing the games of the current filter that best
+     * match some words. A number at the end is the number of games to show, and the
+     * words can be in quotes.
+     */
+    private void processSearch() {
+        String query = remainder();
+        int count = SEARCH_COUNT;
+        int space = query.lastIndexOf(' ');
+        if (space > 0 && query.substring(space + 1).matches("\\d{1,9}")) {
+            count = Integer.parseInt(query.substring(space + 1));
+            query = query.substring(0, space).trim();
+        }
+        query = query.replace("\"", "");
+        if (TextIndex.tokens(query).isEmpty()) {
+            printOutput("%s%n", ConsoleText.INVALID);
+            return;
+        }
+        printFilterStream(new GamePublisher(planner.search(query, count)), GameData.NAME);
+    }
+
+    /**
+     * Process the export command, writing the games of the current filter to a file,
+     * as JSON for a .json file and as CSV otherwise.
+     */
+    private void processExport() {
+        String filename = remainder().trim();
+        if (filename.isEmpty()) {
+            filename = DEFAULT_EXPORT_FILENAME;
+        }
+        try {
+            long count = GameExporter.export(planner.filter(""), Path.of(filename));
+            printOutput("%s %d%n", ConsoleText.EXPORTED, count);
+        } catch (IOException | IllegalArgumentException e) {
+            printOutput("%s %s%n", ConsoleText.INVALID, e.getMessage());
+        }
+    }
+
+    /**
+     * Process the night command, choosing the best rated games out of the current
+     * filter (or the games list) that a group can play in the time they have.
+     */
+    private void processNight() {
+        String[] args = remainder().split("\\s+");
+        GameNight night;
+        try {
+            int players = Integer.parseInt(args[0]);
+            int minutes = Integer.parseInt(args[1]);
+            IGameList list = args.length > 2
+                    && ConsoleText.fromString(args[2]) == ConsoleText.CMD_LIST ? gameList : null;
+            night = new GameNightPlanner(planner.filter("").toList())
+                    .plan(players, minutes, list, BoardGame::getRating, NIGHT_TIME_LIMIT);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            printOutput("%s%n", ConsoleText.INVALID);
+            return;
+        }
+        int counter = 1;
+        for (BoardGame game : night.getGames()) {
+            printOutput("%d: %s%n", counter++, game.toStringWithInfo(GameData.MAX_TIME));
+        }
+        printOutput("%s %d, %.2f%n", ConsoleText.NIGHT_TOTAL, night.getMinutes(),
+                night.getScore());
+        if (!night.isOptimal()) {
+            printOutput("%s%n", ConsoleText.NIGHT_PARTIAL);
+        }
+    }
+
     /**
      * Process the help command.
      */
@@ -111,16 +282,36 @@ public class ConsoleApp {
         }
     }
 
+    /**
+     * Removes the spaces from a filter, except between the words of a text~=
+     * clause, which are matched one by one.
+     *
+     * @param filter the filter as typed.
+     * @return the filter without spaces.
+     */
+    static String removeSpaces(String filter) {
+        StringBuilder result = new StringBuilder();
+        Matcher words = TEXT_WORDS.matcher(filter);
+        int at = 0;
+        while (words.find()) {
+            result.append(filter.substring(at, words.start(1)).replaceAll("\\s", ""));
+            result.append(words.group(1).trim());
+            at = words.end(1);
+        }
+        result.append(filter.substring(at).replaceAll("\\s", ""));
+        return result.toString();
+    }
+
     /**
      * Process the filter command.
      */
     private void processFilter() {
-        Stream<BoardGame> result = null;
+        Flow.Publisher<BoardGame> result = null;
         GameData sortON = GameData.NAME; // default
 
         if (current.hasNext()) {
             String filter = remainder();
-            filter = filter.replaceAll("\\s", ""); // remove spaces
+            filter = removeSpaces(filter);
             filter = filter.toLowerCase(); // make it lower case
             if (filter.equalsIgnoreCase(ConsoleText.CMD_QUESTION.toString())) {
                 printOutput("%s%n", ConsoleText.FILTER_HELP);
@@ -132,10 +323,31 @@ public class ConsoleApp {
                 printOutput("%s%n", ConsoleText.FILTERED_CLEAR);
                 return; // leave early.
             }
+            if (filter.equalsIgnoreCase(ConsoleText.CMD_UNDO.toString())) {
+                if (planner.undo()) {
+                    printFilterStream(planner.publish(""), sortON);
+                } else {
+                    printOutput("%s%n", ConsoleText.NOTHING_TO_UNDO);
+                }
+                return; // leave early.
+            }
+            if (filter.equalsIgnoreCase(ConsoleText.CMD_REDO.toString())) {
+                if (planner.redo()) {
+                    printFilterStream(planner.publish(""), sortON);
+                } else {
+                    printOutput("%s%n", ConsoleText.NOTHING_TO_REDO);
+                }
+                return; // leave early.
+            }
             if (filter.contains(ConsoleText.CMD_SORT_OPTION.toString())) {
                 // break it up, figure out sort
                 boolean ascending = true; // default
                 String[] parts = filter.split(ConsoleText.CMD_SORT_OPTION.toString());
+                if (parts.length == 2
+                        && parts[1].startsWith(ConsoleText.CMD_SCORE_OPTION.toString())) {
+                    processRank(parts[0], parts[1]);
+                    return; // leave early.
+                }
                 if (parts.length == 2) {
                     String sort = parts[1];
                     if (sort.contains(ConsoleText.CMD_SORT_OPTION_DIRECTION_ASC.toString())) {
@@ -156,13 +368,13 @@ public class ConsoleApp {
                     }
                 }
 
-                result = planner.filter(parts[0], sortON, ascending);  // NOTICE: sortON and ascending are used here.
+                result = planner.publish(parts[0], sortON, ascending);  // NOTICE: sortON and ascending are used here.
             } else {
-                result = planner.filter(filter); // default sort
+                result = planner.publish(filter); // default sort
             }
         } else {
             printOutput("%s%n", ConsoleText.NO_FILTER);
-            result = planner.filter("");
+            result = planner.publish("");
         }
         printFilterStream(result, sortON);
     }
@@ -170,16 +382,73 @@ public class ConsoleApp {
     /**
      * Print the filtered stream of games.
      * 
-     * @param games  the stream of games to print.
+     * Games are requested a batch at a time and printed as they arrive, so the
+     * results are never all held in memory.
+     * 
+     * @param games  the published games to print.
      * @param sortON also is the column used for 'extra info' based on the sort
      *               type.
      */
-    private static void printFilterStream(Stream<BoardGame> games, GameData sortON) {
-        int counter = 1;
-        List<BoardGame> gameList = games != null ? games.toList() : Collections.emptyList();
-        for (BoardGame game : gameList) {
-            printOutput("%d: %s%n", counter++, game.toStringWithInfo(sortON));
+    private void printFilterStream(Flow.Publisher<BoardGame> games, GameData sortON) {
+        CountDownLatch finished = new CountDownLatch(1);
+        games.subscribe(new Flow.Subscriber<BoardGame>() {
+            /** The subscription to the games. */
+            private Flow.Subscription subscription;
+            /** Number of the next game printed. */
+            private int counter = 1;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(PRINT_BATCH);
+            }
+
+            @Override
+            public void onNext(BoardGame game) {
+                printOutput("%d: %s%n", counter, game.toStringWithInfo(sortON));
+                if (counter++ % PRINT_BATCH == 0) {
+                    subscription.request(PRINT_BATCH);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                System.err.println("Error reading results: " + error.getMessage());
+                finished.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                finished.countDown();
+            }
+        });
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Process a filter sorted by a score, such as {@code sort:score(rating*2-difficulty) 20},
+     * showing the highest scoring games.
+     *
+     * @param filter the filter.
+     * @param sort   the score option, with spaces removed.
+     */
+    private void processRank(String filter, String sort) {
+        int close = sort.lastIndexOf(')');
+        String count = close < 0 ? "" : sort.substring(close + 1);
+        Flow.Publisher<BoardGame> result;
+        try {
+            String score = sort.substring(ConsoleText.CMD_SCORE_OPTION.toString().length(), close);
+            int k = count.isEmpty() ? RANK_COUNT : Integer.parseInt(count);
+            result = new GamePublisher(planner.rank(filter, score, k));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            printOutput("%s%n", ConsoleText.INVALID);
+            return;
         }
+        printFilterStream(result, GameData.NAME);
     }
 
     /**
@@ -223,7 +492,6 @@ public class ConsoleApp {
                     String filename = remainder().trim();
                     if (filename.isEmpty()) {
                         filename = DEFAULT_FILENAME;
-                        break;
                     }
                     gameList.saveGame(filename);
                     break;
@@ -261,9 +529,16 @@ public class ConsoleApp {
      * @return the next command.
      */
     private ConsoleText nextCommand() {
-        if (current == null || !current.hasNext()) {
+        while (current == null || !current.hasNext()) {
             String line = getInput("%s", ConsoleText.PROMPT);
-            current = new Scanner(line.trim()); // now split up the line
+            if (line == null) {
+                return ConsoleText.CMD_EXIT; // end of input, same as exit
+            }
+            line = line.trim();
+            if (line.startsWith(COMMENT)) {
+                continue; // comment line in a script
+            }
+            current = new Scanner(line); // now split up the line
         }
         return ConsoleText.fromString(current.next()); // get the command
     }
@@ -283,32 +558,34 @@ public class ConsoleApp {
      * @param format the format string to print.
      * @param args   the arguments to the format string.
      * 
-     * @return the input from the client as a string, one line at a time.
+     * @return the input from the client as a string, one line at a time, or null at
+     *         the end of the input.
      */
-    private static String getInput(String format, Object... args) {
-        System.out.printf(format, args);
-        if (IN == null) {
-            return "";
+    private String getInput(String format, Object... args) {
+        if (interactive) {
+            printOutput(format, args);
+            output.flush(); // make sure the client sees everything before typing
         }
-        if (!IN.hasNextLine()) {
-            return "";
+        try {
+            return input.readLine();
+        } catch (IOException e) {
+            return null;
         }
-        return IN.nextLine();
     }
 
 
     /** 
      * Prints output to the client.
      * 
-     * We could call printf directly, but this gives us one location in case
-     * we want to change the output to a file or other location.
+     * All output goes through a single buffered writer, which is only flushed when
+     * input is needed from the client or the run is finished.
      * 
      * 
      * @param format the format string to print.
-     * @param output the output to print (array to match the format).
+     * @param args   the output to print (array to match the format).
      */
-    private static void printOutput(String format, Object... output) {
-        System.out.printf(format, output);
+    private void printOutput(String format, Object... args) {
+        output.printf(format, args);
     }
 
     /**
@@ -328,13 +605,16 @@ public class ConsoleApp {
         /** various commands and text. */
         WELCOME, HELP, INVALID, GOODBYE, PROMPT, NO_FILTER, NO_GAMES_LIST, FILTERED_CLEAR, LIST_HELP, FILTER_HELP,
         /** commands continued. */
-        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG,
+        INVALID_LIST, EASTER_EGG, CMD_EASTER_EGG, NOTHING_TO_UNDO, NOTHING_TO_REDO,
+        GAME_NOT_FOUND, NIGHT_TOTAL, NIGHT_PARTIAL, EXPORTED,
         /** commands general. */
-        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST,
+        CMD_EXIT, CMD_HELP, CMD_QUESTION, CMD_FILTER, CMD_LIST, CMD_SIMILAR, CMD_NIGHT, CMD_SEARCH,
+        CMD_EXPORT,
         /** commands specific to lists and filters. */
-        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE,
+        CMD_SHOW, CMD_ADD, CMD_REMOVE, CMD_CLEAR, CMD_SAVE, CMD_UNDO, CMD_REDO,
         /** more options on commands. */
-        CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC;
+        CMD_OPTION_ALL, CMD_SORT_OPTION, CMD_SORT_OPTION_DIRECTION_ASC, CMD_SORT_OPTION_DIRECTION_DESC,
+        CMD_SCORE_OPTION;
 
         /** load the files on class load. */
         private static final Properties CTEXT = new Properties();
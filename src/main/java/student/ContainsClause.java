@@ -0,0 +1,96 @@
+package student;
+
+import java.util.BitSet;
+
+/**
+ * A clause on a range of a game rather than a single column, such as
+ * {@code players==5}: the games whose minPlayers to maxPlayers range contains 5,
+ * or {@code playtime==45}: the games that can be played in 45 minutes.
+ *
+ * It is the same as {@code minPlayers<=5,maxPlayers>=5}, but is evaluated with
+ * one query of the range's IntervalIndex rather than two column probes.
+ * {@code !=} matches the games whose range does not contain the value. Other
+ * operators, or a value that is not a number, make the clause invalid, and like
+ * other invalid clauses it is ignored.
+ */
+final class ContainsClause implements FilterExpression {
+    /** Selections smaller than 1/SPARSE of the catalog are tested rather than queried. */
+    private static final int SPARSE = 16;
+
+    /** The range compared. */
+    private final IntervalIndex.Span span;
+    /** The value the range has to contain. */
+    private final double value;
+
+    /**
+     * Creates a clause.
+     *
+     * @param span  the range compared.
+     * @param value the value the range has to contain.
+     */
+    private ContainsClause(IntervalIndex.Span span, double value) {
+        this.span = span;
+        this.value = value;
+    }
+
+    /**
+     * Parses the operator and value of a clause on a range.
+     *
+     * @param span     the range compared.
+     * @param operator the operator.
+     * @param value    the value text.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid.
+     */
+    static FilterExpression parse(IntervalIndex.Span span, Operations operator, String value) {
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return ALL;
+        }
+        return switch (operator) {
+            case EQUALS -> new ContainsClause(span, number);
+            case NOT_EQUALS -> FilterExpression.not(new ContainsClause(span, number));
+            default -> ALL;
+        };
+    }
+
+    @Override
+    public boolean test(BoardGame game) {
+        return span.contains(game, value);
+    }
+
+    /**
+     * Evaluates the clause with a query of the interval index, unless only a few
+     * candidates are left, in which case testing them is cheaper.
+     *
+     * @param games      the catalog of games.
+     * @param candidates the games to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    @Override
+    public BitSet evaluate(GameCatalog games, BitSet candidates) {
+        if (candidates.cardinality() < games.count() / SPARSE) {
+            return FilterExpression.super.evaluate(games, candidates);
+        }
+        BitSet result = new BitSet(games.size());
+        games.intervals(span).stab(value, result);
+        result.and(candidates);
+        return result;
+    }
+
+    /**
+     * Evaluates the clause on the packed values, as low &lt;= value on one column
+     * and value &lt;= high on the other.
+     *
+     * @param games      the packed catalog of games.
+     * @param candidates the rows to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    @Override
+    public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+        double inf = Double.POSITIVE_INFINITY;
+        BitSet result = games.select(span.getLowColumn(), -inf, true, value, true, candidates);
+        return games.select(span.getHighColumn(), value, true, inf, true, result);
+    }
+}
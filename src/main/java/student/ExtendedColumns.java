@@ -0,0 +1,287 @@
+package student;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The extended columns of a loaded csv file, such as the geek rating or the
+ * language dependence, which most queries never use.
+ *
+ * When the file is loaded, the text of these columns is only copied, as UTF-8
+ * bytes, into one array with the offset where each value starts, as each row is
+ * read. The first time a column is read, the whole column is parsed into a typed
+ * vector (numbers or strings), and later reads are a single array access. Columns
+ * nobody uses are never parsed.
+ *
+ * Numeric columns read the number a value starts with (so an age of "8+" is 8),
+ * and empty values are 0, as elsewhere in the file.
+ */
+final class ExtendedColumns {
+    /** The extended columns, in the order they are stored. */
+    private static final GameData[] COLUMNS = {GameData.BEST_PLAYERS, GameData.MIN_AGE,
+        GameData.OWNED, GameData.GEEK_RATING, GameData.LANGUAGE, GameData.ORIGINAL_NAME,
+        GameData.COMMENT};
+
+    /** The number of rows. */
+    private int rows;
+    /** The text of every value, row by row, as UTF-8, once every row is added. */
+    private byte[] data;
+    /** Where each value starts in data, with one more for the end of the last. */
+    private int[] offsets;
+    /** Where each extended column is among the fields of a row, -1 if not in the file. */
+    private final int[] fieldOf;
+    /** The text of the rows added so far, until finish. */
+    private ByteArrayOutputStream loading;
+    /** The parsed columns (double[] or String[]), filled in on first use. */
+    private final AtomicReferenceArray<Object> parsed =
+            new AtomicReferenceArray<>(COLUMNS.length);
+
+    /**
+     * Starts the extended columns of a csv file, with no rows yet. Rows are added
+     * with add as the file is read, and finish is called before any is read.
+     *
+     * @param columnMap the index of each column in a row.
+     */
+    ExtendedColumns(Map<GameData, Integer> columnMap) {
+        this.offsets = new int[COLUMNS.length + 1];
+        this.fieldOf = new int[COLUMNS.length];
+        for (int slot = 0; slot < COLUMNS.length; slot++) {
+            fieldOf[slot] = columnMap.getOrDefault(COLUMNS[slot], -1);
+        }
+        this.loading = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Adds a row, copying the text of its extended columns from the fields the
+     * row was already split into.
+     *
+     * @param fields the fields of the row.
+     * @return the number of the row.
+     */
+    int add(String[] fields) {
+        int at = rows * COLUMNS.length;
+        if (at + COLUMNS.length >= offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2,
+                    at + COLUMNS.length + 1));
+        }
+        for (int slot = 0; slot < COLUMNS.length; slot++) {
+            offsets[at++] = loading.size();
+            int field = fieldOf[slot];
+            if (field >= 0 && field < fields.length) {
+                byte[] value = fields[field].getBytes(StandardCharsets.UTF_8);
+                loading.write(value, 0, value.length);
+            }
+        }
+        return rows++;
+    }
+
+    /**
+     * Ends the rows, dropping the room left for more. Called once every row is
+     * added, before any value is read.
+     */
+    void finish() {
+        offsets = Arrays.copyOf(offsets, rows * COLUMNS.length + 1);
+        offsets[rows * COLUMNS.length] = loading.size();
+        data = loading.toByteArray();
+        loading = null;
+    }
+
+    /**
+     * Creates extended columns from values that are already parsed, such as the
+     * games of a page read from a worker.
+     *
+     * @param rows   the number of rows.
+     * @param values the values of each column, in the order of columns(): a
+     *               double[] by row for numeric columns, a String[] otherwise.
+     */
+    ExtendedColumns(int rows, Object[] values) {
+        this.rows = rows;
+        this.offsets = new int[1];
+        this.data = new byte[0];
+        this.fieldOf = new int[0];
+        for (int slot = 0; slot < COLUMNS.length; slot++) {
+            parsed.set(slot, values[slot]);
+        }
+    }
+
+    /** @return The extended columns, in the order they are stored. */
+    static List<GameData> columns() {
+        return List.of(COLUMNS);
+    }
+
+    /**
+     * Checks if a column is an extended column.
+     *
+     * @param column the column.
+     * @return true if it is read through ExtendedColumns.
+     */
+    static boolean isExtended(GameData column) {
+        return slot(column) >= 0;
+    }
+
+    /**
+     * Checks if an extended column holds numbers.
+     *
+     * @param column the column.
+     * @return true for the numeric extended columns.
+     */
+    static boolean isNumeric(GameData column) {
+        return switch (column) {
+            case BEST_PLAYERS, MIN_AGE, OWNED, GEEK_RATING -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Finds where a column is stored.
+     *
+     * @param column the column.
+     * @return its place among the extended columns, -1 if it is not one.
+     */
+    private static int slot(GameData column) {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i] == column) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a number.
+     *
+     * @param row    the row.
+     * @param column the numeric extended column.
+     * @return the value, 0 if it is empty or not a number.
+     * @throws IllegalArgumentException if the column is not a numeric extended column.
+     */
+    double number(int row, GameData column) {
+        if (!isNumeric(column)) {
+            throw new IllegalArgumentException("Invalid numeric column: " + column);
+        }
+        return ((double[]) column(column))[row];
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @param row    the row.
+     * @param column the text extended column.
+     * @return the value, empty if there is none.
+     * @throws IllegalArgumentException if the column is not a text extended column.
+     */
+    String text(int row, GameData column) {
+        if (!isExtended(column) || isNumeric(column)) {
+            throw new IllegalArgumentException("Invalid string column: " + column);
+        }
+        return ((String[]) column(column))[row];
+    }
+
+    /**
+     * Compares a row with a row of other extended columns. Rows that were both
+     * copied from files are compared as text, so neither is parsed.
+     *
+     * @param row      the row.
+     * @param other    the other extended columns.
+     * @param otherRow the row in the other extended columns.
+     * @return true if every extended column has the same value in both rows.
+     */
+    boolean sameRow(int row, ExtendedColumns other, int otherRow) {
+        boolean copied = isCopied() && other.isCopied();
+        for (int slot = 0; slot < COLUMNS.length; slot++) {
+            GameData column = COLUMNS[slot];
+            if (copied) {
+                int at = row * COLUMNS.length + slot;
+                int otherAt = otherRow * COLUMNS.length + slot;
+                if (!Arrays.equals(data, offsets[at], offsets[at + 1],
+                        other.data, other.offsets[otherAt], other.offsets[otherAt + 1])) {
+                    return false;
+                }
+            } else if (isNumeric(column)
+                    ? Double.compare(number(row, column), other.number(otherRow, column)) != 0
+                    : !text(row, column).equals(other.text(otherRow, column))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** @return True if the values were copied from a file rather than parsed already. */
+    private boolean isCopied() {
+        return offsets.length > 1;
+    }
+
+    /**
+     * Gets a parsed column, parsing it on first use.
+     *
+     * @param column the extended column.
+     * @return the values, a double[] or String[] by row.
+     */
+    private Object column(GameData column) {
+        int slot = slot(column);
+        Object values = parsed.get(slot);
+        if (values == null) {
+            parsed.compareAndSet(slot, null, isNumeric(column) ? parseNumbers(slot)
+                    : parseText(slot));
+            values = parsed.get(slot);
+        }
+        return values;
+    }
+
+    /**
+     * Parses a numeric column.
+     *
+     * @param slot where the column is stored.
+     * @return the value of each row.
+     */
+    private double[] parseNumbers(int slot) {
+        double[] values = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            int start = offsets[row * COLUMNS.length + slot];
+            int end = offsets[row * COLUMNS.length + slot + 1];
+            int last = start;
+            while (last < end && (Character.isDigit(data[last]) || data[last] == '.'
+                    || (last == start && data[last] == '-'))) {
+                last++;
+            }
+            try {
+                values[row] = last == start ? 0
+                        : Double.parseDouble(new String(data, start, last - start,
+                                StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                values[row] = 0;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Decodes a text column.
+     *
+     * @param slot where the column is stored.
+     * @return the value of each row.
+     */
+    private String[] parseText(int slot) {
+        String[] values = new String[rows];
+        for (int row = 0; row < rows; row++) {
+            int start = offsets[row * COLUMNS.length + slot];
+            int end = offsets[row * COLUMNS.length + slot + 1];
+            values[row] = new String(data, start, end - start, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    /**
+     * Checks if a column has been parsed, for tests.
+     *
+     * @param column the extended column.
+     * @return true if the column was parsed.
+     */
+    boolean isParsed(GameData column) {
+        return parsed.get(slot(column)) != null;
+    }
+}
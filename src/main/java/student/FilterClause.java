@@ -0,0 +1,391 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single column comparison in a filter, such as {@code minPlayers>4},
+ * {@code name~=pandemic}, {@code year in 2010..2020} or {@code minPlayers in {1,2}}.
+ *
+ * String comparisons ignore case. Numeric comparisons are kept as a range of values
+ * (== is a range of one value, > a range open at the top), or a set of values for
+ * in, so they are evaluated with a probe of the column's sorted ColumnIndex rather
+ * than testing every game.
+ *
+ * Clauses that cannot be parsed (unknown column, missing operator or a value that
+ * is not a number for a numeric column) are ignored, and match every game.
+ */
+final class FilterClause implements FilterExpression {
+    /** Keyword between the column and the range or set of values. */
+    private static final String IN_KEYWORD = "in";
+    /** Separates the low and high values of a range. */
+    private static final String RANGE_SEPARATOR = "\\.\\.";
+
+    /** The column to compare. */
+    private final GameData column;
+    /** The comparison to make, BETWEEN for all numeric ranges. */
+    private final Operations operator;
+    /** The value to compare against for string columns (as a NameKey), null for numeric ones. */
+    private final String text;
+    /** Low end of the range (or the value for !=). */
+    private final double low;
+    /** Whether the low end is part of the range. */
+    private final boolean lowInclusive;
+    /** High end of the range. */
+    private final double high;
+    /** Whether the high end is part of the range. */
+    private final boolean highInclusive;
+    /** The sorted values for in. */
+    private final double[] values;
+
+    /**
+     * Creates a clause.
+     *
+     * @param column        the column to compare.
+     * @param operator      the comparison to make.
+     * @param text          the value for string columns.
+     * @param low           low end of the range.
+     * @param lowInclusive  whether the low end is part of the range.
+     * @param high          high end of the range.
+     * @param highInclusive whether the high end is part of the range.
+     * @param values        the sorted values for in.
+     */
+    private FilterClause(GameData column, Operations operator, String text, double low,
+            boolean lowInclusive, double high, boolean highInclusive, double[] values) {
+        this.column = column;
+        this.operator = operator;
+        this.text = text == null ? null : NameKey.fold(text);
+        this.low = low;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highInclusive = highInclusive;
+        this.values = values;
+    }
+
+    /**
+     * Creates a numeric range clause.
+     *
+     * @param column        the column to compare.
+     * @param low           low end of the range.
+     * @param lowInclusive  whether the low end is part of the range.
+     * @param high          high end of the range.
+     * @param highInclusive whether the high end is part of the range.
+     * @return the clause.
+     */
+    private static FilterClause range(GameData column, double low, boolean lowInclusive,
+            double high, boolean highInclusive) {
+        return new FilterClause(column, Operations.BETWEEN, null, low, lowInclusive, high,
+                highInclusive, null);
+    }
+
+    /**
+     * Parses a single clause.
+     *
+     * @param filter the clause text, such as {@code minPlayers > 4}.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid.
+     */
+    static FilterExpression parse(String filter) {
+        Operations operator = Operations.getOperatorFromStr(filter);
+        if (operator == null) {
+            return ALL;
+        }
+        if (operator == Operations.BETWEEN || operator == Operations.IN) {
+            return parseIn(filter, operator);
+        }
+
+        String[] parts = filter.split(operator.getOperator());
+        if (parts.length != 2) {
+            return ALL;
+        }
+
+        String field = parts[0].trim();
+        String value = parts[1].trim();
+
+        if (field.equalsIgnoreCase(TextClause.FIELD)) {
+            return TextClause.parse(operator, value);
+        }
+        IntervalIndex.Span span = IntervalIndex.Span.fromString(field);
+        if (span != null) {
+            return ContainsClause.parse(span, operator, value);
+        }
+
+        GameData column;
+        try {
+            column = GameData.fromString(field);
+        } catch (IllegalArgumentException e) {
+            return ALL;
+        }
+
+        if (!isNumericColumn(column)) {
+            return new FilterClause(column, operator, value, 0, false, 0, false, null);
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return ALL;
+        }
+        double inf = Double.POSITIVE_INFINITY;
+        return switch (operator) {
+            case EQUALS -> range(column, number, true, number, true);
+            case GREATER_THAN -> range(column, number, false, inf, true);
+            case GREATER_THAN_EQUALS -> range(column, number, true, inf, true);
+            case LESS_THAN -> range(column, -inf, true, number, false);
+            case LESS_THAN_EQUALS -> range(column, -inf, true, number, true);
+            case NOT_EQUALS -> new FilterClause(column, operator, null, number, true, number, true,
+                    null);
+            default -> ALL; // contains does not apply to numbers
+        };
+    }
+
+    /**
+     * Parses a range ({@code year in 2010..2020}, both ends included) or set
+     * ({@code minPlayers in {1,2}}) clause.
+     *
+     * As spaces may have been removed, the column is found by trying each in
+     * keyword until the text before it is a numeric column.
+     *
+     * @param filter   the clause text.
+     * @param operator BETWEEN or IN.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid.
+     */
+    private static FilterExpression parseIn(String filter, Operations operator) {
+        String lower = filter.toLowerCase();
+        for (int at = lower.indexOf(IN_KEYWORD); at > 0; at = lower.indexOf(IN_KEYWORD, at + 1)) {
+            GameData column;
+            try {
+                column = GameData.fromString(filter.substring(0, at).trim());
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (!isNumericColumn(column)) {
+                return ALL;
+            }
+            String value = filter.substring(at + IN_KEYWORD.length()).trim();
+            try {
+                return operator == Operations.BETWEEN ? parseRange(column, value)
+                        : parseSet(column, value);
+            } catch (NumberFormatException e) {
+                return ALL;
+            }
+        }
+        return ALL;
+    }
+
+    /**
+     * Parses the low..high value of a range clause.
+     *
+     * @param column the column to compare.
+     * @param value  the range text.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid.
+     * @throws NumberFormatException if either end is not a number.
+     */
+    private static FilterExpression parseRange(GameData column, String value) {
+        String[] bounds = value.split(RANGE_SEPARATOR);
+        if (bounds.length != 2) {
+            return ALL;
+        }
+        return range(column, Double.parseDouble(bounds[0].trim()), true,
+                Double.parseDouble(bounds[1].trim()), true);
+    }
+
+    /**
+     * Parses the {value,value,...} value of a set clause.
+     *
+     * @param column the column to compare.
+     * @param value  the set text.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid.
+     * @throws NumberFormatException if any value is not a number.
+     */
+    private static FilterExpression parseSet(GameData column, String value) {
+        if (!value.startsWith("{") || !value.endsWith("}")) {
+            return ALL;
+        }
+        double[] set = Arrays.stream(value.substring(1, value.length() - 1).split(","))
+                .map(String::trim).filter(v -> !v.isEmpty())
+                .mapToDouble(Double::parseDouble).sorted().distinct().toArray();
+        return new FilterClause(column, Operations.IN, null, 0, false, 0, false, set);
+    }
+
+    /**
+     * Checks if the field is numeric.
+     *
+     * @param column The field to check.
+     * @return True if the field is numeric, otherwise false.
+     */
+    static boolean isNumericColumn(GameData column) {
+        return switch (column) {
+            case RATING, DIFFICULTY, RANK, MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME, YEAR -> true;
+            default -> ExtendedColumns.isNumeric(column);
+        };
+    }
+
+    /**
+     * Merges numeric ranges on the same column that all have to match, so
+     * {@code year>=2010,year<=2020} becomes the single range 2010..2020. The merged
+     * range takes the place of the first one, everything else keeps its order.
+     *
+     * @param filters filters that all have to match.
+     * @return the filters with ranges merged.
+     */
+    static List<FilterExpression> mergeRanges(List<FilterExpression> filters) {
+        List<FilterExpression> merged = new ArrayList<>(filters.size());
+        Map<GameData, Integer> ranges = new EnumMap<>(GameData.class);
+        for (FilterExpression filter : filters) {
+            if (filter instanceof FilterClause clause && clause.operator == Operations.BETWEEN) {
+                Integer at = ranges.get(clause.column);
+                if (at != null) {
+                    merged.set(at, ((FilterClause) merged.get(at)).intersect(clause));
+                    continue;
+                }
+                ranges.put(clause.column, merged.size());
+            }
+            merged.add(filter);
+        }
+        return merged;
+    }
+
+    /**
+     * Intersects two ranges on the same column.
+     *
+     * @param other the other range.
+     * @return the range of values in both.
+     */
+    private FilterClause intersect(FilterClause other) {
+        double lo = low;
+        boolean loInclusive = lowInclusive;
+        if (other.low > lo || (other.low == lo && !other.lowInclusive)) {
+            lo = other.low;
+            loInclusive = other.lowInclusive;
+        }
+        double hi = high;
+        boolean hiInclusive = highInclusive;
+        if (other.high < hi || (other.high == hi && !other.highInclusive)) {
+            hi = other.high;
+            hiInclusive = other.highInclusive;
+        }
+        return range(column, lo, loInclusive, hi, hiInclusive);
+    }
+
+    @Override
+    public boolean test(BoardGame game) {
+        if (text != null) {
+            return testString(column == GameData.NAME ? game.getSortName()
+                    : NameKey.fold(game.getStringValue(column)));
+        }
+        double gameValue = game.getNumericValue(column);
+        return switch (operator) {
+            case IN -> Arrays.binarySearch(values, gameValue) >= 0;
+            case NOT_EQUALS -> gameValue != low;
+            default -> (gameValue > low || (lowInclusive && gameValue == low))
+                    && (gameValue < high || (highInclusive && gameValue == high));
+        };
+    }
+
+    /**
+     * Evaluates numeric clauses with a probe of the column index: each range (or
+     * value of a set) is two binary searches, and the games in it are added to the
+     * result without being looked at. If the probe would touch more games than
+     * there are candidates, testing the candidates is cheaper and is done instead.
+     *
+     * @param games      the catalog of games.
+     * @param candidates the games to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    @Override
+    public BitSet evaluate(GameCatalog games, BitSet candidates) {
+        if (text != null) {
+            return FilterExpression.super.evaluate(games, candidates);
+        }
+        ColumnIndex index = games.index(column);
+        int[] from;
+        int[] to;
+        if (operator == Operations.IN) {
+            from = new int[values.length];
+            to = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                from[i] = index.lowerBound(values[i], true);
+                to[i] = index.upperBound(values[i], true);
+            }
+        } else {
+            from = new int[] {index.lowerBound(low, lowInclusive)};
+            to = new int[] {index.upperBound(high, highInclusive)};
+        }
+
+        int matches = 0;
+        for (int i = 0; i < from.length; i++) {
+            matches += Math.max(0, to[i] - from[i]);
+        }
+        if (matches > candidates.cardinality()) {
+            return FilterExpression.super.evaluate(games, candidates);
+        }
+
+        BitSet result = new BitSet(games.size());
+        for (int i = 0; i < from.length; i++) {
+            index.select(from[i], to[i], result);
+        }
+        if (operator == Operations.NOT_EQUALS) {
+            BitSet rest = (BitSet) candidates.clone();
+            rest.andNot(result);
+            return rest;
+        }
+        result.and(candidates);
+        return result;
+    }
+
+    /**
+     * Evaluates the clause on a packed catalog. Numeric clauses compare the packed
+     * values of the column, and name clauses read only the names.
+     *
+     * @param games      the packed catalog of games.
+     * @param candidates the rows to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    @Override
+    public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+        if (text != null && column == GameData.NAME) {
+            return games.selectNames(name -> testString(NameKey.fold(name)), candidates);
+        }
+        if (text != null || !games.isPacked(column)) {
+            return FilterExpression.super.evaluate(games, candidates);
+        }
+        if (operator == Operations.IN) {
+            BitSet result = new BitSet(games.size());
+            for (double value : values) {
+                result.or(games.select(column, value, true, value, true, candidates));
+            }
+            return result;
+        }
+        BitSet result = games.select(column, low, lowInclusive, high, highInclusive, candidates);
+        if (operator == Operations.NOT_EQUALS) {
+            BitSet rest = (BitSet) candidates.clone();
+            rest.andNot(result);
+            return rest;
+        }
+        return result;
+    }
+
+    /**
+     * Applies a string comparison, ignoring case. Both values are already case
+     * folded keys, so they are compared as they are.
+     *
+     * @param gameValue the value of the game, as a NameKey.
+     * @return true if the value matches.
+     */
+    private boolean testString(String gameValue) {
+        return switch (operator) {
+            case EQUALS -> gameValue.equals(text);
+            case NOT_EQUALS -> !gameValue.equals(text);
+            case GREATER_THAN -> gameValue.compareTo(text) > 0;
+            case LESS_THAN -> gameValue.compareTo(text) < 0;
+            case GREATER_THAN_EQUALS -> gameValue.compareTo(text) >= 0;
+            case LESS_THAN_EQUALS -> gameValue.compareTo(text) <= 0;
+            case CONTAINS -> gameValue.contains(text);
+            default -> true;
+        };
+    }
+}
@@ -0,0 +1,273 @@
+package student;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * A parsed filter, as a tree of clauses combined with and, or and not.
+ *
+ * Filters are evaluated over selections of the catalog. A selection is a BitSet
+ * with a bit set for every game (by index in the GameCatalog) that is part of it. Combining filters is then set algebra: and is an
+ * intersection, or is a union and not is a complement, each only looking at the
+ * games still in question.
+ *
+ * @see FilterParser
+ */
+interface FilterExpression {
+
+    /** Matches every game, used for empty or invalid filters (they are ignored). */
+    FilterExpression ALL = new FilterExpression() {
+        @Override
+        public boolean test(BoardGame game) {
+            return true;
+        }
+
+        @Override
+        public BitSet evaluate(GameCatalog games, BitSet candidates) {
+            return (BitSet) candidates.clone();
+        }
+
+        @Override
+        public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+            return (BitSet) candidates.clone();
+        }
+    };
+
+    /**
+     * Tests a single game against the filter.
+     *
+     * @param game the game to test.
+     * @return true if the game matches the filter.
+     */
+    boolean test(BoardGame game);
+
+    /**
+     * Evaluates the filter over a selection of games.
+     *
+     * The default implementation tests each candidate in turn.
+     *
+     * @param games      the catalog of games.
+     * @param candidates the games to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    default BitSet evaluate(GameCatalog games, BitSet candidates) {
+        BitSet result = new BitSet(games.size());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (test(games.get(i))) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates the filter over a selection of rows of a packed catalog.
+     *
+     * The default implementation unpacks and tests each candidate in turn; clauses
+     * on numeric columns compare the packed values instead.
+     *
+     * @param games      the packed catalog of games.
+     * @param candidates the rows to consider, never modified.
+     * @return the candidates that match the filter, as a new selection.
+     */
+    default BitSet evaluate(PackedCatalog games, BitSet candidates) {
+        BitSet result = new BitSet(games.size());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            if (test(games.get(i))) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Combines filters so all of them have to match.
+     *
+     * Comparisons on the same numeric column are merged first, so
+     * {@code year>=2010,year<=2020} is a single range.
+     *
+     * @param filters the filters to combine.
+     * @return the combined filter.
+     */
+    static FilterExpression and(List<FilterExpression> filters) {
+        if (filters.isEmpty()) {
+            return ALL;
+        }
+        filters = FilterClause.mergeRanges(filters);
+        return filters.size() == 1 ? filters.get(0) : new And(filters);
+    }
+
+    /**
+     * Combines filters so any of them has to match.
+     *
+     * @param filters the filters to combine.
+     * @return the combined filter.
+     */
+    static FilterExpression or(List<FilterExpression> filters) {
+        return filters.size() == 1 ? filters.get(0) : new Or(filters);
+    }
+
+    /**
+     * Negates a filter.
+     *
+     * @param filter the filter to negate.
+     * @return a filter matching the games the filter does not.
+     */
+    static FilterExpression not(FilterExpression filter) {
+        return new Not(filter);
+    }
+
+    /**
+     * Intersection of filters. Each filter only looks at what the previous ones
+     * kept, and evaluation stops as soon as nothing is left.
+     */
+    final class And implements FilterExpression {
+        /** The filters that all have to match. */
+        private final List<FilterExpression> filters;
+
+        /**
+         * Creates the intersection.
+         *
+         * @param filters the filters that all have to match.
+         */
+        private And(List<FilterExpression> filters) {
+            this.filters = List.copyOf(filters);
+        }
+
+        @Override
+        public boolean test(BoardGame game) {
+            for (FilterExpression filter : filters) {
+                if (!filter.test(game)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public BitSet evaluate(GameCatalog games, BitSet candidates) {
+            return evaluate((filter, selection) -> filter.evaluate(games, selection), candidates);
+        }
+
+        @Override
+        public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+            return evaluate((filter, selection) -> filter.evaluate(games, selection), candidates);
+        }
+
+        /**
+         * Evaluates the intersection, whatever the filters are evaluated over.
+         *
+         * @param evaluate   evaluates one filter over a selection.
+         * @param candidates the games to consider, never modified.
+         * @return the candidates that match every filter, as a new selection.
+         */
+        private BitSet evaluate(BiFunction<FilterExpression, BitSet, BitSet> evaluate,
+                BitSet candidates) {
+            BitSet result = candidates;
+            for (FilterExpression filter : filters) {
+                result = evaluate.apply(filter, result);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            return result == candidates ? (BitSet) candidates.clone() : result;
+        }
+    }
+
+    /**
+     * Union of filters. Each filter only looks at the candidates no previous
+     * filter matched, and evaluation stops once every candidate matched.
+     */
+    final class Or implements FilterExpression {
+        /** The filters of which any has to match. */
+        private final List<FilterExpression> filters;
+
+        /**
+         * Creates the union.
+         *
+         * @param filters the filters of which any has to match.
+         */
+        private Or(List<FilterExpression> filters) {
+            this.filters = List.copyOf(filters);
+        }
+
+        @Override
+        public boolean test(BoardGame game) {
+            for (FilterExpression filter : filters) {
+                if (filter.test(game)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public BitSet evaluate(GameCatalog games, BitSet candidates) {
+            return evaluate((filter, selection) -> filter.evaluate(games, selection), candidates);
+        }
+
+        @Override
+        public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+            return evaluate((filter, selection) -> filter.evaluate(games, selection), candidates);
+        }
+
+        /**
+         * Evaluates the union, whatever the filters are evaluated over.
+         *
+         * @param evaluate   evaluates one filter over a selection.
+         * @param candidates the games to consider, never modified.
+         * @return the candidates that match any filter, as a new selection.
+         */
+        private BitSet evaluate(BiFunction<FilterExpression, BitSet, BitSet> evaluate,
+                BitSet candidates) {
+            BitSet result = new BitSet(candidates.length());
+            BitSet remaining = (BitSet) candidates.clone();
+            for (FilterExpression filter : filters) {
+                if (remaining.isEmpty()) {
+                    break;
+                }
+                BitSet matched = evaluate.apply(filter, remaining);
+                result.or(matched);
+                remaining.andNot(matched);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Complement of a filter within the candidates.
+     */
+    final class Not implements FilterExpression {
+        /** The filter to negate. */
+        private final FilterExpression filter;
+
+        /**
+         * Creates the complement.
+         *
+         * @param filter the filter to negate.
+         */
+        private Not(FilterExpression filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean test(BoardGame game) {
+            return !filter.test(game);
+        }
+
+        @Override
+        public BitSet evaluate(GameCatalog games, BitSet candidates) {
+            BitSet result = (BitSet) candidates.clone();
+            result.andNot(filter.evaluate(games, candidates));
+            return result;
+        }
+
+        @Override
+        public BitSet evaluate(PackedCatalog games, BitSet candidates) {
+            BitSet result = (BitSet) candidates.clone();
+            result.andNot(filter.evaluate(games, candidates));
+            return result;
+        }
+    }
+}
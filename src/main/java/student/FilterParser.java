@@ -0,0 +1,188 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the text filter language into a {@link FilterExpression}.
+ *
+ * The grammar, from lowest to highest precedence:
+ *
+ * <pre>
+ *  or     := and ('|' and)*
+ *  and    := unary (',' unary)*
+ *  unary  := '!' unary | '(' or ')' | clause
+ *  clause := column operator value    (see FilterClause)
+ *          | column in low..high | column in {value,value,...}
+ *          | range == value          (see ContainsClause)
+ *          | text ~= words           (see TextClause)
+ * </pre>
+ *
+ * For example {@code (minPlayers==1|maxPlayers==2),maxPlaytime<30,!name~=deluxe}.
+ * Like single clauses, the parser is forgiving: empty or invalid clauses are
+ * ignored (left out of whatever they are combined with), a missing closing
+ * parenthesis is assumed at the end, and a stray closing one is skipped.
+ */
+final class FilterParser {
+    /** Separates clauses that all have to match. */
+    private static final char AND = ',';
+    /** Separates clauses of which any has to match. */
+    private static final char OR = '|';
+    /** Negates the following clause or group. */
+    private static final char NOT = '!';
+    /** Opens a group. */
+    private static final char OPEN = '(';
+    /** Closes a group. */
+    private static final char CLOSE = ')';
+    /** Opens a set of values, which can contain commas. */
+    private static final char OPEN_SET = '{';
+    /** Closes a set of values. */
+    private static final char CLOSE_SET = '}';
+
+    /** The filter text being parsed. */
+    private final String text;
+    /** Current position in the text. */
+    private int pos;
+
+    /**
+     * Creates a parser over the filter text.
+     *
+     * @param text the filter text.
+     */
+    private FilterParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a filter.
+     *
+     * @param filter the filter text.
+     * @return the parsed filter.
+     */
+    static FilterExpression parse(String filter) {
+        FilterParser parser = new FilterParser(filter);
+        List<FilterExpression> parts = new ArrayList<>();
+        parts.add(parser.parseOr());
+        while (parser.pos < parser.text.length()) {
+            parser.pos++; // stray closing parenthesis, skip it and keep going
+            parts.add(parser.parseOr());
+        }
+        return FilterExpression.and(parts);
+    }
+
+    /**
+     * Parses clauses separated by or.
+     *
+     * @return the parsed filter.
+     */
+    private FilterExpression parseOr() {
+        List<FilterExpression> parts = new ArrayList<>();
+        FilterExpression first = parseAnd();
+        if (first != FilterExpression.ALL) {
+            parts.add(first);
+        }
+        while (peek() == OR) {
+            pos++;
+            FilterExpression next = parseAnd();
+            if (next != FilterExpression.ALL) {
+                parts.add(next);
+            }
+        }
+        return parts.isEmpty() ? FilterExpression.ALL : FilterExpression.or(parts);
+    }
+
+    /**
+     * Parses clauses separated by and.
+     *
+     * @return the parsed filter.
+     */
+    private FilterExpression parseAnd() {
+        List<FilterExpression> parts = new ArrayList<>();
+        FilterExpression first = parseUnary();
+        if (first != FilterExpression.ALL) {
+            parts.add(first);
+        }
+        while (peek() == AND) {
+            pos++;
+            FilterExpression next = parseUnary();
+            if (next != FilterExpression.ALL) {
+                parts.add(next);
+            }
+        }
+        return parts.isEmpty() ? FilterExpression.ALL : FilterExpression.and(parts);
+    }
+
+    /**
+     * Parses a negation, a group or a single clause.
+     *
+     * @return the parsed filter.
+     */
+    private FilterExpression parseUnary() {
+        skipSpaces();
+        if (pos < text.length() && text.charAt(pos) == NOT
+                && (pos + 1 >= text.length() || text.charAt(pos + 1) != '=')) {
+            pos++;
+            FilterExpression negated = parseUnary();
+            return negated == FilterExpression.ALL ? negated : FilterExpression.not(negated);
+        }
+        if (pos < text.length() && text.charAt(pos) == OPEN) {
+            pos++;
+            FilterExpression group = parseOr();
+            if (pos < text.length()) {
+                pos++; // the closing parenthesis
+            }
+            return group;
+        }
+        return FilterClause.parse(readClause());
+    }
+
+    /**
+     * Reads the text of a single clause, up to the next separator or closing
+     * parenthesis. Parentheses that are balanced within the clause (such as in a
+     * game name) and anything in a set of values are part of it.
+     *
+     * @return the clause text.
+     */
+    private String readClause() {
+        int start = pos;
+        int depth = 0;
+        boolean inSet = false;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == OPEN_SET || c == CLOSE_SET) {
+                inSet = c == OPEN_SET;
+            } else if (inSet) {
+                pos++;
+                continue; // commas in a set of values are part of the clause
+            } else if (c == OPEN) {
+                depth++;
+            } else if (c == CLOSE) {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if ((c == AND || c == OR) && depth == 0) {
+                break;
+            }
+            pos++;
+        }
+        return text.substring(start, pos).trim();
+    }
+
+    /**
+     * Looks at the next character that is not a space.
+     *
+     * @return the next character, or 0 at the end of the text.
+     */
+    private char peek() {
+        skipSpaces();
+        return pos < text.length() ? text.charAt(pos) : 0;
+    }
+
+    /** Moves past any spaces. */
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * One version of the catalog of games a Planner works over.
+ *
+ * Each game is known by its ordinal, its slot in the catalog, so a selection of
+ * games is a BitSet of ordinals. Ordinals are stable across versions: new games
+ * get new slots at the end and removed games leave an empty slot, so selections
+ * built over an older version stay meaningful and only the changed ordinals need
+ * another look (see {@link #changedSince(long)}).
+ *
+ * A catalog is never changed once built. {@link #apply(CatalogChanges)} builds the
+ * next version, carrying the name order, the objectid order and any indexes
+ * built so far (column, interval, similarity and text) over by merging in only
+ * the changed games. The games are kept in fixed size segments, and the next
+ * version shares every segment without a changed game with this one, so a small
+ * change only copies the segments it touches. Indexes are otherwise built the
+ * first time a query needs them, without locking: two queries racing to build the
+ * same index both build it, and the first one stored is kept.
+ */
+final class GameCatalog {
+    /** Orders games by name, ignoring case. */
+    static final Comparator<BoardGame> BY_NAME = BoardGame::compareName;
+    /** How many versions of changed ordinals are kept. */
+    private static final int CHANGE_HISTORY = 64;
+    /** Selections smaller than 1/SPARSE of the catalog are sorted rather than walked. */
+    private static final int SPARSE = 16;
+    /** Bits of an ordinal giving the position within its segment. */
+    private static final int SEGMENT_BITS = 8;
+    /** Number of games in a segment. */
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+
+    /** The games by ordinal, in segments, null for removed games. */
+    private final BoardGame[][] segments;
+    /** The number of ordinals in use. */
+    private final int size;
+    /** Ordinals of the games in the catalog. */
+    private final BitSet live;
+    /** Ordinals of the games in the catalog, in name order. */
+    private final int[] nameOrder;
+    /** Position of each ordinal in nameOrder, -1 for removed games. */
+    private final int[] nameRank;
+    /** The games in the catalog as objectid and ordinal keys (see idKey), sorted. */
+    private final long[] idOrder;
+    /** Version of the catalog, starting at 0. */
+    private final long version;
+    /** Ordinals changed by each of the most recent versions, oldest first. */
+    private final List<BitSet> changes;
+    /** Column indexes built so far, by column ordinal. */
+    private final AtomicReferenceArray<ColumnIndex> indexes;
+    /** The similarity index, once built. */
+    private final AtomicReference<SimilarityIndex> similarity = new AtomicReference<>();
+    /** The text index, once built. */
+    private final AtomicReference<TextIndex> text = new AtomicReference<>();
+    /** Interval indexes built so far, by span ordinal. */
+    private final AtomicReferenceArray<IntervalIndex> intervals =
+            new AtomicReferenceArray<>(IntervalIndex.Span.values().length);
+
+    /**
+     * Creates the first version of a catalog of games.
+     *
+     * @param games the games in the catalog.
+     */
+    GameCatalog(Collection<BoardGame> games) {
+        BoardGame[] sorted = games.toArray(new BoardGame[0]);
+        Arrays.sort(sorted, BY_NAME);
+        this.size = sorted.length;
+        this.segments = new BoardGame[(size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS][];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = Arrays.copyOfRange(sorted, i << SEGMENT_BITS,
+                    (i + 1) << SEGMENT_BITS);
+        }
+        this.live = new BitSet(size);
+        this.live.set(0, size);
+        this.nameOrder = IntStream.range(0, size).toArray();
+        this.nameRank = nameOrder.clone();
+        this.idOrder = new long[size];
+        for (int i = 0; i < size; i++) {
+            idOrder[i] = idKey(sorted[i].getId(), i);
+        }
+        Arrays.sort(idOrder);
+        this.version = 0;
+        this.changes = List.of();
+        this.indexes = new AtomicReferenceArray<>(GameData.values().length);
+    }
+
+    /**
+     * Creates a later version of a catalog.
+     *
+     * @param segments  the games by ordinal, in segments.
+     * @param size      the number of ordinals in use.
+     * @param live      ordinals of the games in the catalog.
+     * @param nameOrder ordinals of the games in the catalog, in name order.
+     * @param idOrder   the games in the catalog as objectid and ordinal keys, sorted.
+     * @param version   version of the catalog.
+     * @param changes   ordinals changed by each of the most recent versions.
+     * @param indexes   column indexes carried over.
+     */
+    private GameCatalog(BoardGame[][] segments, int size, BitSet live, int[] nameOrder,
+            long[] idOrder, long version, List<BitSet> changes,
+            AtomicReferenceArray<ColumnIndex> indexes) {
+        this.segments = segments;
+        this.size = size;
+        this.live = live;
+        this.nameOrder = nameOrder;
+        this.nameRank = new int[size];
+        Arrays.fill(nameRank, -1);
+        for (int i = 0; i < nameOrder.length; i++) {
+            nameRank[nameOrder[i]] = i;
+        }
+        this.idOrder = idOrder;
+        this.version = version;
+        this.changes = changes;
+        this.indexes = indexes;
+    }
+
+    /** @return The number of ordinals in use, including those of removed games. */
+    int size() {
+        return size;
+    }
+
+    /** @return The number of games in the catalog. */
+    int count() {
+        return nameOrder.length;
+    }
+
+    /** @return The version of the catalog. */
+    long version() {
+        return version;
+    }
+
+    /**
+     * Gets a game by its ordinal.
+     *
+     * @param ordinal the ordinal of the game.
+     * @return the game, or null if it was removed.
+     */
+    BoardGame get(int ordinal) {
+        return segments[ordinal >>> SEGMENT_BITS][ordinal & (SEGMENT_SIZE - 1)];
+    }
+
+    /**
+     * Finds the ordinal of the game a given game is a version of: the game with
+     * the same objectid and name (ignoring case) or, failing that, the only game
+     * with the same objectid.
+     *
+     * @param game the game to look for.
+     * @return the ordinal of the game, or -1 if there is none.
+     */
+    int find(BoardGame game) {
+        int[] sameId = ordinalsOf(game.getId());
+        for (int ordinal : sameId) {
+            if (get(ordinal).sameName(game)) {
+                return ordinal;
+            }
+        }
+        return sameId.length == 1 ? sameId[0] : -1;
+    }
+
+    /**
+     * Finds the games with an objectid, by binary search of the objectid order.
+     *
+     * @param id the objectid.
+     * @return the ordinals of the games with the objectid, in increasing order.
+     */
+    int[] ordinalsOf(int id) {
+        int low = 0;
+        int high = idOrder.length;
+        long first = idKey(id, 0);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (idOrder[mid] < first) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int end = low;
+        while (end < idOrder.length && (int) (idOrder[end] >> Integer.SIZE) == id) {
+            end++;
+        }
+        int[] ordinals = new int[end - low];
+        for (int i = low; i < end; i++) {
+            ordinals[i - low] = (int) idOrder[i];
+        }
+        return ordinals;
+    }
+
+    /**
+     * Makes the key of a game in the objectid order: the objectid in the high half
+     * and the ordinal in the low half, so keys sort by objectid and then ordinal.
+     *
+     * @param id      the objectid.
+     * @param ordinal the ordinal.
+     * @return the key.
+     */
+    private static long idKey(int id, int ordinal) {
+        return ((long) id << Integer.SIZE) | ordinal;
+    }
+
+    /** @return A new selection of every game. */
+    BitSet all() {
+        return (BitSet) live.clone();
+    }
+
+    /**
+     * Gets the sorted index of a numeric column, building it on first use.
+     *
+     * @param column the numeric column.
+     * @return the index of the column.
+     */
+    ColumnIndex index(GameData column) {
+        ColumnIndex index = indexes.get(column.ordinal());
+        if (index == null) {
+            indexes.compareAndSet(column.ordinal(), null, new ColumnIndex(this::get, size, column));
+            index = indexes.get(column.ordinal());
+        }
+        return index;
+    }
+
+    /**
+     * Gets the interval index of a range for this version, building it on first use.
+     *
+     * @param span the range.
+     * @return the index of the range.
+     */
+    IntervalIndex intervals(IntervalIndex.Span span) {
+        IntervalIndex index = intervals.get(span.ordinal());
+        if (index == null) {
+            intervals.compareAndSet(span.ordinal(), null, new IntervalIndex(this, span));
+            index = intervals.get(span.ordinal());
+        }
+        return index;
+    }
+
+    /**
+     * Gets the similarity index of this version, building it on first use.
+     *
+     * @return the similarity index.
+     */
+    SimilarityIndex similarity() {
+        SimilarityIndex index = similarity.get();
+        if (index == null) {
+            similarity.compareAndSet(null, new SimilarityIndex(this));
+            index = similarity.get();
+        }
+        return index;
+    }
+
+    /**
+     * Gets the text index of this version, building it on first use.
+     *
+     * @return the text index.
+     */
+    TextIndex text() {
+        TextIndex index = text.get();
+        if (index == null) {
+            text.compareAndSet(null, new TextIndex(this));
+            index = text.get();
+        }
+        return index;
+    }
+
+    /**
+     * Gets the place of a game in the name order.
+     *
+     * @param ordinal the ordinal of the game.
+     * @return its position in the name order, -1 for a removed game.
+     */
+    int nameRank(int ordinal) {
+        return nameRank[ordinal];
+    }
+
+    /**
+     * Finds a game by name, ignoring case, with a binary search of the name order.
+     *
+     * @param name the name of the game.
+     * @return the ordinal of the first game with the name, or -1 if there is none.
+     */
+    int findByName(String name) {
+        String key = NameKey.fold(name);
+        int low = 0;
+        int high = nameOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(nameOrder[mid]).getSortName().compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < nameOrder.length && get(nameOrder[low]).getSortName().equals(key)
+                ? nameOrder[low] : -1;
+    }
+
+    /**
+     * Finds the ordinals changed (added, updated or removed) after a version.
+     *
+     * @param since the version a selection was built over.
+     * @return the changed ordinals, or null if the version is too old to know.
+     */
+    BitSet changedSince(long since) {
+        BitSet changed = new BitSet(size);
+        long behind = version - since;
+        if (behind > changes.size()) {
+            return null;
+        }
+        for (int i = changes.size() - (int) behind; i < changes.size(); i++) {
+            changed.or(changes.get(i));
+        }
+        return changed;
+    }
+
+    /**
+     * Streams the games in a selection, in name order.
+     *
+     * Large selections walk the name order, keeping the selected games, so games
+     * are produced as they are found. Small selections sort just their ordinals by
+     * their place in the name order.
+     *
+     * @param selection the selection to stream, must not be modified afterwards.
+     * @param ascending true for ascending name order, false for descending.
+     * @return the games in the selection.
+     */
+    Stream<BoardGame> stream(BitSet selection, boolean ascending) {
+        return ordinals(selection, ascending).mapToObj(this::get);
+    }
+
+    /**
+     * Streams the ordinals of the games in a selection, in name order, as for stream.
+     *
+     * @param selection the selection to stream, must not be modified afterwards.
+     * @param ascending true for ascending name order, false for descending.
+     * @return the ordinals of the games in the selection.
+     */
+    IntStream ordinals(BitSet selection, boolean ascending) {
+        int selected = selection.cardinality();
+        if ((long) selected * SPARSE < nameOrder.length) {
+            long[] keys = new long[selected];
+            int k = 0;
+            for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+                keys[k++] = ((long) nameRank[i] << Integer.SIZE) | i;
+            }
+            Arrays.sort(keys);
+            return IntStream.range(0, selected)
+                    .map(i -> (int) keys[ascending ? i : selected - 1 - i]);
+        }
+        int last = nameOrder.length - 1;
+        return IntStream.rangeClosed(0, last).map(i -> nameOrder[ascending ? i : last - i])
+                .filter(selection::get);
+    }
+
+    /**
+     * Builds the next version of the catalog with the changes applied.
+     *
+     * Updated games keep their ordinal, removed games leave their slot empty and
+     * added games get new ordinals. The name order and any indexes built so far
+     * are carried over by merging in only the changed games.
+     *
+     * @param change the changes, computed against this version.
+     * @return the next version of the catalog.
+     */
+    GameCatalog apply(CatalogChanges change) {
+        List<BoardGame> inserted = change.getInserted();
+        int nextSize = size + inserted.size();
+        BoardGame[][] next = Arrays.copyOf(segments,
+                (nextSize + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        boolean[] copied = new boolean[next.length];
+        BitSet nextLive = (BitSet) live.clone();
+        BitSet touched = new BitSet(nextSize);
+
+        int[] updatedOrdinals = change.updatedOrdinals();
+        List<BoardGame> updated = change.getUpdated();
+        for (int i = 0; i < updatedOrdinals.length; i++) {
+            set(next, copied, updatedOrdinals[i], updated.get(i));
+            touched.set(updatedOrdinals[i]);
+        }
+        for (int ordinal : change.deletedOrdinals()) {
+            set(next, copied, ordinal, null);
+            nextLive.clear(ordinal);
+            touched.set(ordinal);
+        }
+        for (int i = 0; i < inserted.size(); i++) {
+            set(next, copied, size + i, inserted.get(i));
+            nextLive.set(size + i);
+            touched.set(size + i);
+        }
+        IntFunction<BoardGame> nextGames =
+                ordinal -> next[ordinal >>> SEGMENT_BITS][ordinal & (SEGMENT_SIZE - 1)];
+
+        int[] added = touched.stream().filter(i -> nextGames.apply(i) != null).boxed()
+                .sorted((a, b) -> BY_NAME.compare(nextGames.apply(a), nextGames.apply(b)))
+                .mapToInt(Integer::intValue).toArray();
+        int[] nextOrder = new int[nextLive.cardinality()];
+        int at = 0;
+        int a = 0;
+        for (int ordinal : nameOrder) {
+            if (touched.get(ordinal)) {
+                continue;
+            }
+            while (a < added.length
+                    && BY_NAME.compare(nextGames.apply(added[a]), get(ordinal)) < 0) {
+                nextOrder[at++] = added[a++];
+            }
+            nextOrder[at++] = ordinal;
+        }
+        while (a < added.length) {
+            nextOrder[at++] = added[a++];
+        }
+
+        long[] addedIds = Arrays.stream(added)
+                .mapToLong(ordinal -> idKey(nextGames.apply(ordinal).getId(), ordinal))
+                .sorted().toArray();
+        long[] nextIds = new long[nextOrder.length];
+        at = 0;
+        a = 0;
+        for (long key : idOrder) {
+            if (touched.get((int) key)) {
+                continue;
+            }
+            while (a < addedIds.length && addedIds[a] < key) {
+                nextIds[at++] = addedIds[a++];
+            }
+            nextIds[at++] = key;
+        }
+        while (a < addedIds.length) {
+            nextIds[at++] = addedIds[a++];
+        }
+
+        AtomicReferenceArray<ColumnIndex> nextIndexes =
+                new AtomicReferenceArray<>(indexes.length());
+        for (GameData column : GameData.values()) {
+            ColumnIndex index = indexes.get(column.ordinal());
+            if (index != null) {
+                nextIndexes.set(column.ordinal(), index.apply(nextGames, touched, column));
+            }
+        }
+
+        List<BitSet> nextChanges = new ArrayList<>(changes.subList(
+                Math.max(0, changes.size() - CHANGE_HISTORY + 1), changes.size()));
+        nextChanges.add(touched);
+        GameCatalog nextCatalog = new GameCatalog(next, nextSize, nextLive, nextOrder, nextIds,
+                version + 1, List.copyOf(nextChanges), nextIndexes);
+        TextIndex textIndex = text.get();
+        if (textIndex != null) {
+            nextCatalog.text.set(textIndex.apply(nextCatalog, touched));
+        }
+        SimilarityIndex similarityIndex = similarity.get();
+        if (similarityIndex != null) {
+            nextCatalog.similarity.set(similarityIndex.apply(nextCatalog, touched));
+        }
+        for (IntervalIndex.Span span : IntervalIndex.Span.values()) {
+            IntervalIndex index = intervals.get(span.ordinal());
+            if (index != null) {
+                nextCatalog.intervals.set(span.ordinal(), index.apply(nextCatalog, touched));
+            }
+        }
+        return nextCatalog;
+    }
+
+    /**
+     * Sets the game at an ordinal of the next version, copying its segment the
+     * first time it is changed (or creating it, past the end of this version).
+     *
+     * @param next    the segments of the next version.
+     * @param copied  which segments of the next version are already copies.
+     * @param ordinal the ordinal to set.
+     * @param game    the game, or null for a removed game.
+     */
+    private static void set(BoardGame[][] next, boolean[] copied, int ordinal, BoardGame game) {
+        int segment = ordinal >>> SEGMENT_BITS;
+        if (!copied[segment]) {
+            next[segment] = next[segment] == null ? new BoardGame[SEGMENT_SIZE]
+                    : next[segment].clone();
+            copied[segment] = true;
+        }
+        next[segment][ordinal & (SEGMENT_SIZE - 1)] = game;
+    }
+}
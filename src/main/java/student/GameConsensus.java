@@ -0,0 +1,191 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Counts how many of a group's game lists each game is on, such as the lists of
+ * every player in a lobby, to find the games they agree on.
+ *
+ * Each list is turned into a bitset over the catalog ordinals, and the bitsets
+ * are added into vertical counters: counter plane j holds bit j of every game's
+ * count, 64 games to a word, so adding a list is a ripple carry of a few word
+ * operations per 64 games rather than a pass over objects. Which games are on at
+ * least M lists is found the same way, comparing every count against M one plane
+ * at a time.
+ *
+ * Names on a list that are not in the catalog are ignored, and a game on a list
+ * twice is counted once.
+ */
+public final class GameConsensus {
+    /** The catalog version the lists are counted over. */
+    private final GameCatalog games;
+    /** The number of lists. */
+    private final int lists;
+    /** The counter planes, lowest bit first, each a bitset over the ordinals. */
+    private final long[][] planes;
+
+    /**
+     * Counts a group's lists over a set of games.
+     *
+     * @param games the set of available board games.
+     * @param lists the lists, one per player.
+     */
+    public GameConsensus(Collection<BoardGame> games, List<? extends IGameList> lists) {
+        this(new LiveCatalog(games), lists);
+    }
+
+    /**
+     * Counts a group's lists over the latest version of a catalog.
+     *
+     * @param catalog the catalog of games.
+     * @param lists   the lists, one per player.
+     */
+    public GameConsensus(LiveCatalog catalog, List<? extends IGameList> lists) {
+        this.games = catalog.current();
+        this.lists = lists.size();
+        int words = (games.size() + Long.SIZE - 1) / Long.SIZE;
+        this.planes = new long[Integer.SIZE - Integer.numberOfLeadingZeros(this.lists)][words];
+        long[] onList = new long[words];
+        for (IGameList list : lists) {
+            Arrays.fill(onList, 0);
+            for (String name : list.getGameNames()) {
+                int ordinal = games.findByName(name);
+                if (ordinal >= 0) {
+                    onList[ordinal / Long.SIZE] |= 1L << ordinal;
+                }
+            }
+            add(onList);
+        }
+    }
+
+    /**
+     * Adds a list to the counters.
+     *
+     * @param onList the games on the list.
+     */
+    private void add(long[] onList) {
+        for (int w = 0; w < onList.length; w++) {
+            long carry = onList[w];
+            for (int j = 0; j < planes.length && carry != 0; j++) {
+                long next = planes[j][w] & carry;
+                planes[j][w] ^= carry;
+                carry = next;
+            }
+        }
+    }
+
+    /** @return The number of lists counted. */
+    public int getLists() {
+        return lists;
+    }
+
+    /**
+     * Gets the number of lists a game is on.
+     *
+     * @param name the name of the game, ignoring case.
+     * @return the number of lists, 0 for a game not in the catalog.
+     */
+    public int count(String name) {
+        int ordinal = games.findByName(name);
+        return ordinal < 0 ? 0 : count(ordinal);
+    }
+
+    /**
+     * Gets the number of lists a game is on.
+     *
+     * @param ordinal the ordinal of the game.
+     * @return the number of lists.
+     */
+    private int count(int ordinal) {
+        int count = 0;
+        for (int j = 0; j < planes.length; j++) {
+            count |= (int) ((planes[j][ordinal / Long.SIZE] >>> ordinal) & 1) << j;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the games on at least a number of the lists.
+     *
+     * @param m the least number of lists.
+     * @return the games, on the most lists first, then in name order.
+     */
+    public List<BoardGame> onAtLeast(int m) {
+        if (m <= 0) {
+            return ranked(games.all().toLongArray());
+        }
+        if (m > lists) {
+            return List.of();
+        }
+        int words = planes.length == 0 ? 0 : planes[0].length;
+        long[] selected = new long[words];
+        for (int w = 0; w < words; w++) {
+            // from the top plane down: above holds counts already known to be
+            // greater than m, equal those matching m in every plane so far
+            long above = 0;
+            long equal = -1L;
+            for (int j = planes.length - 1; j >= 0; j--) {
+                if ((m >>> j & 1) == 0) {
+                    above |= equal & planes[j][w];
+                    equal &= ~planes[j][w];
+                } else {
+                    equal &= planes[j][w];
+                }
+            }
+            selected[w] = above | equal;
+        }
+        return ranked(selected);
+    }
+
+    /**
+     * Finds the games on every list.
+     *
+     * @return the games, in name order.
+     */
+    public List<BoardGame> onAll() {
+        return lists == 0 ? List.of() : onAtLeast(lists);
+    }
+
+    /**
+     * Finds the games on none of the lists.
+     *
+     * @return the games, in name order.
+     */
+    public List<BoardGame> onNone() {
+        long[] none = games.all().toLongArray();
+        for (long[] plane : planes) {
+            for (int w = 0; w < none.length && w < plane.length; w++) {
+                none[w] &= ~plane[w];
+            }
+        }
+        return ranked(none);
+    }
+
+    /**
+     * Lists selected games, on the most lists first, then in name order.
+     *
+     * @param selected the selected ordinals, as bitset words.
+     * @return the games.
+     */
+    private List<BoardGame> ranked(long[] selected) {
+        // sort keys: fewest lists missed, then place in the name order, then ordinal
+        List<long[]> keys = new ArrayList<>();
+        for (int w = 0; w < selected.length; w++) {
+            for (long bits = selected[w]; bits != 0; bits &= bits - 1) {
+                int ordinal = w * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                if (ordinal < games.size() && games.get(ordinal) != null) {
+                    keys.add(new long[] {lists - count(ordinal), games.nameRank(ordinal), ordinal});
+                }
+            }
+        }
+        keys.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        List<BoardGame> result = new ArrayList<>(keys.size());
+        for (long[] key : keys) {
+            result.add(games.get((int) key[2]));
+        }
+        return result;
+    }
+}
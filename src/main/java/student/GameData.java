@@ -22,7 +22,16 @@ public enum GameData {
     /** Enums based on whole int values in the csv file. */
     RANK("rank"), MIN_PLAYERS("minplayers"), MAX_PLAYERS("maxplayers"),
     /** More int based columns. */
-    MIN_TIME("minplaytime"), MAX_TIME("maxplaytime"), YEAR("yearpublished");
+    MIN_TIME("minplaytime"), MAX_TIME("maxplaytime"), YEAR("yearpublished"),
+    /**
+     * Extended columns, kept as raw text when the file is loaded and only read
+     * the first time they are used (see ExtendedColumns). Missing numbers are 0.
+     */
+    BEST_PLAYERS("bggbestplayers"), MIN_AGE("bggrecagerange"), OWNED("numowned"),
+    /** The geek rating, the average rating weighted towards the mean. */
+    GEEK_RATING("baverage"),
+    /** Extended text columns. */
+    LANGUAGE("bgglanguagedependence"), ORIGINAL_NAME("originalname"), COMMENT("comment");
 
     /** stores the original csv name in the enum. */
     private final String columnName;
@@ -0,0 +1,342 @@
+package student;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Writes games to a file or stream as CSV or JSON, such as the results of a
+ * filter for another program to read.
+ *
+ * Games are written as they are read from the stream, into one byte buffer that
+ * is flushed whenever it fills up, so an export of any size uses the same small
+ * amount of memory. Numbers are written digit by digit straight into the buffer,
+ * and names are encoded as UTF-8 there too, so no String is built per game.
+ *
+ * The columns are the ten columns of a game, named as in the collection file, so
+ * a CSV export can be loaded again with GamesLoader. Fields with commas, quotes
+ * or line breaks are quoted.
+ */
+public final class GameExporter {
+    /** Size of the buffer, in bytes. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Room kept free for any one number, with its separator. */
+    private static final int NUMBER_ROOM = 32;
+    /** Decimals a number can have to be written digit by digit. */
+    private static final int MAX_DECIMALS = 6;
+    /** The columns written, in order. */
+    private static final GameData[] COLUMNS = {GameData.NAME, GameData.ID, GameData.RATING,
+        GameData.DIFFICULTY, GameData.RANK, GameData.MIN_PLAYERS, GameData.MAX_PLAYERS,
+        GameData.MIN_TIME, GameData.MAX_TIME, GameData.YEAR};
+    /** Hex digits, for escapes. */
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    /** The formats games can be written in. */
+    public enum Format {
+        /** A header line of column names, then one line per game. */
+        CSV,
+        /** An array with one object per game, keyed by column name. */
+        JSON;
+
+        /**
+         * Chooses the format of a file by its extension.
+         *
+         * @param file the file name.
+         * @return JSON for a .json file, otherwise CSV.
+         */
+        public static Format forFile(String file) {
+            return file.toLowerCase(Locale.ROOT).endsWith(".json") ? JSON : CSV;
+        }
+    }
+
+    /** Where the bytes go. */
+    private final OutputStream out;
+    /** The reused buffer. */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    /** Bytes in the buffer. */
+    private int length;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param out where the bytes go.
+     */
+    private GameExporter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes games to a stream. The stream is flushed but not closed.
+     *
+     * @param games  the games, written in the order they come.
+     * @param format the format.
+     * @param out    the stream to write to.
+     * @return the number of games written.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static long export(Stream<BoardGame> games, Format format, OutputStream out)
+            throws IOException {
+        GameExporter exporter = new GameExporter(out);
+        long count = format == Format.CSV ? exporter.writeCsv(games.iterator())
+                : exporter.writeJson(games.iterator());
+        exporter.flush();
+        out.flush();
+        return count;
+    }
+
+    /**
+     * Writes games to a file, replacing it, in the format of its extension.
+     *
+     * @param games the games, written in the order they come.
+     * @param file  the file, .json for JSON and CSV otherwise.
+     * @return the number of games written.
+     * @throws IOException if the file cannot be written.
+     */
+    public static long export(Stream<BoardGame> games, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return export(games, Format.forFile(file.toString()), out);
+        }
+    }
+
+    /**
+     * Writes games as CSV.
+     *
+     * @param games the games.
+     * @return the number of games written.
+     * @throws IOException if the stream cannot be written.
+     */
+    private long writeCsv(Iterator<BoardGame> games) throws IOException {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (c > 0) {
+                writeByte(',');
+            }
+            writeAscii(COLUMNS[c].getColumnName());
+        }
+        writeByte('\n');
+        long count = 0;
+        while (games.hasNext()) {
+            BoardGame game = games.next();
+            writeCsvText(game.getName());
+            for (int c = 1; c < COLUMNS.length; c++) {
+                writeByte(',');
+                writeNumber(game.getNumericValue(COLUMNS[c]));
+            }
+            writeByte('\n');
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Writes games as JSON.
+     *
+     * @param games the games.
+     * @return the number of games written.
+     * @throws IOException if the stream cannot be written.
+     */
+    private long writeJson(Iterator<BoardGame> games) throws IOException {
+        writeByte('[');
+        long count = 0;
+        while (games.hasNext()) {
+            BoardGame game = games.next();
+            writeAscii(count == 0 ? "\n{\"" : ",\n{\"");
+            writeAscii(COLUMNS[0].getColumnName());
+            writeAscii("\":");
+            writeJsonText(game.getName());
+            for (int c = 1; c < COLUMNS.length; c++) {
+                writeAscii(",\"");
+                writeAscii(COLUMNS[c].getColumnName());
+                writeAscii("\":");
+                writeNumber(game.getNumericValue(COLUMNS[c]));
+            }
+            writeByte('}');
+            count++;
+        }
+        writeAscii(count == 0 ? "]\n" : "\n]\n");
+        return count;
+    }
+
+    /**
+     * Writes a CSV field, quoted if it has to be.
+     *
+     * @param text the field.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeCsvText(String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char ch = text.charAt(i);
+            quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+        }
+        if (!quote) {
+            writeText(text, 0, text.length());
+            return;
+        }
+        writeByte('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                writeText(text, start, i + 1); // a quote is written twice
+                start = i;
+            }
+        }
+        writeText(text, start, text.length());
+        writeByte('"');
+    }
+
+    /**
+     * Writes a JSON string, with its quotes.
+     *
+     * @param text the string.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeJsonText(String text) throws IOException {
+        writeByte('"');
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '"' || ch == '\\' || ch < ' ') {
+                writeText(text, start, i);
+                writeByte('\\');
+                if (ch == '"' || ch == '\\') {
+                    writeByte(ch);
+                } else {
+                    writeAscii("u00");
+                    writeByte(HEX[ch >> 4]);
+                    writeByte(HEX[ch & 0xF]);
+                }
+                start = i + 1;
+            }
+        }
+        writeText(text, start, text.length());
+        writeByte('"');
+    }
+
+    /**
+     * Writes part of a string as UTF-8.
+     *
+     * @param text  the string.
+     * @param start the first character.
+     * @param end   after the last character.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeText(String text, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            if (length + 4 > buffer.length) {
+                flush();
+            }
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                buffer[length++] = (byte) ch;
+            } else if (ch < 0x800) {
+                buffer[length++] = (byte) (0xC0 | ch >> 6);
+                buffer[length++] = (byte) (0x80 | ch & 0x3F);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < end
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, text.charAt(++i));
+                buffer[length++] = (byte) (0xF0 | cp >> 18);
+                buffer[length++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                buffer[length++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(ch)) {
+                buffer[length++] = '?'; // a lone surrogate, as String.getBytes does
+            } else {
+                buffer[length++] = (byte) (0xE0 | ch >> 12);
+                buffer[length++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                buffer[length++] = (byte) (0x80 | ch & 0x3F);
+            }
+        }
+    }
+
+    /**
+     * Writes ASCII text.
+     *
+     * @param text the text, only ASCII characters.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeAscii(String text) throws IOException {
+        writeText(text, 0, text.length());
+    }
+
+    /**
+     * Writes a number with as few decimals as give it back exactly, so whole
+     * numbers have none. Numbers with up to MAX_DECIMALS decimals are written digit
+     * by digit; others fall back to Double.toString, and infinite or NaN values
+     * are written as null.
+     *
+     * @param value the number.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeNumber(double value) throws IOException {
+        if (length + NUMBER_ROOM > buffer.length) {
+            flush();
+        }
+        long scale = 1;
+        for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++, scale *= 10) {
+            double scaled = value * scale;
+            if (Math.abs(scaled) < 1L << 52 && (double) Math.round(scaled) / scale == value) {
+                writeFixed(Math.round(scaled), decimals);
+                return;
+            }
+        }
+        writeAscii(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+
+    /**
+     * Writes a fixed point number digit by digit.
+     *
+     * @param unscaled the number times 10 to the decimals.
+     * @param decimals the number of decimals.
+     */
+    private void writeFixed(long unscaled, int decimals) {
+        if (unscaled < 0) {
+            buffer[length++] = '-';
+            unscaled = -unscaled;
+        }
+        int digits = 1;
+        for (long rest = unscaled / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, decimals + 1); // at least 0.
+        int end = length + digits + (decimals > 0 ? 1 : 0);
+        int at = end;
+        for (int d = 0; d < digits; d++) {
+            if (d == decimals && decimals > 0) {
+                buffer[--at] = '.';
+            }
+            buffer[--at] = (byte) ('0' + unscaled % 10);
+            unscaled /= 10;
+        }
+        length = end;
+    }
+
+    /**
+     * Writes a byte.
+     *
+     * @param b the byte.
+     * @throws IOException if the stream cannot be written.
+     */
+    private void writeByte(int b) throws IOException {
+        if (length == buffer.length) {
+            flush();
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    /**
+     * Writes out the buffer.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, length);
+        length = 0;
+    }
+}
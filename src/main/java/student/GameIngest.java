@@ -0,0 +1,422 @@
+package student;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams new and updated games into a LiveCatalog as they arrive, from standard
+ * input, a file or named pipe, or a spool directory that other programs drop
+ * collection files into.
+ *
+ * Every source is read as csv in the collection format, header first, on its own
+ * thread. Its lines go into one bounded queue, and a single publisher thread takes
+ * them off in micro-batches: as many lines as are waiting, up to the batch size,
+ * or whatever arrived within a short linger after the first. Each batch is parsed
+ * and applied with LiveCatalog#upsert, so a batch costs one new catalog version
+ * however many games it has, with the indexes built so far carried over to it.
+ * When the publisher falls behind, the queue fills up and the sources block, so a
+ * fast producer is slowed down instead of growing the memory used.
+ *
+ * A file in a spool directory is picked up once its name ends in .csv, so it
+ * should be written under another name and then renamed. Once read it is renamed
+ * to end in .done, or .failed if it could not be read.
+ */
+public final class GameIngest implements Closeable {
+    /** The default most lines published in one batch. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    /** The default time a batch waits for more lines, in milliseconds. */
+    public static final long DEFAULT_LINGER_MILLIS = 50;
+    /** The default most lines waiting to be published. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    /** How often the publisher and spool directories check for being closed. */
+    private static final long POLL_MILLIS = 100;
+    /** Ending of the files picked up from a spool directory. */
+    private static final String SPOOL_SUFFIX = ".csv";
+    /** Added to the name of a spooled file once it has been read. */
+    private static final String DONE_SUFFIX = ".done";
+    /** Added to the name of a spooled file that could not be read. */
+    private static final String FAILED_SUFFIX = ".failed";
+
+    /** The catalog the games go into. */
+    private final LiveCatalog catalog;
+    /** The most lines published in one batch. */
+    private final int batchSize;
+    /** How long a batch waits for more lines, in nanoseconds. */
+    private final long lingerNanos;
+    /** The lines waiting to be published. */
+    private final BlockingQueue<Line> queue;
+    /** The thread publishing batches. */
+    private final Thread publisher;
+    /** The threads reading sources. */
+    private final List<Thread> sources = new CopyOnWriteArrayList<>();
+    /** Lines read but not yet published, guarded by this. */
+    private long pending;
+    /** Games inserted or updated so far, only written by the publisher. */
+    private volatile long games;
+    /** Batches published so far, only written by the publisher. */
+    private volatile long batches;
+    /** Lines that were not games, only written by the publisher. */
+    private volatile long skipped;
+    /** Whether the ingest has been closed. */
+    private volatile boolean closed;
+
+    /**
+     * A line read from a source, with the columns of that source.
+     */
+    private static final class Line {
+        /** The map of columns to index, from the header of the source. */
+        private final Map<GameData, Integer> columns;
+        /** The csv line. */
+        private final String text;
+
+        /**
+         * Creates a line.
+         *
+         * @param columns the map of columns to index.
+         * @param text    the csv line.
+         */
+        private Line(Map<GameData, Integer> columns, String text) {
+            this.columns = columns;
+            this.text = text;
+        }
+    }
+
+    /**
+     * Starts an ingest with the default batch size, linger and queue capacity.
+     *
+     * @param catalog the catalog the games go into.
+     */
+    public GameIngest(LiveCatalog catalog) {
+        this(catalog, DEFAULT_BATCH_SIZE, DEFAULT_LINGER_MILLIS, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Starts an ingest.
+     *
+     * @param catalog       the catalog the games go into.
+     * @param batchSize     the most lines published in one batch.
+     * @param lingerMillis  how long a batch waits for more lines, in milliseconds.
+     * @param queueCapacity the most lines waiting before the sources block.
+     * @throws IllegalArgumentException if the batch size or capacity is not positive,
+     *                                  or the linger is negative.
+     */
+    public GameIngest(LiveCatalog catalog, int batchSize, long lingerMillis,
+            int queueCapacity) {
+        if (batchSize <= 0 || queueCapacity <= 0 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Invalid ingest settings: batch " + batchSize
+                    + ", linger " + lingerMillis + ", queue " + queueCapacity);
+        }
+        this.catalog = catalog;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.publisher = new Thread(this::publish, "ingest-publisher");
+        this.publisher.setDaemon(true);
+        this.publisher.start();
+    }
+
+    /** @return The number of games inserted or updated so far. */
+    public long getGames() {
+        return games;
+    }
+
+    /** @return The number of batches published so far. */
+    public long getBatches() {
+        return batches;
+    }
+
+    /** @return The number of lines so far that were not games. */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Reads a csv stream, header first, on the calling thread, blocking while the
+     * queue is full. The reader is not closed.
+     *
+     * @param in the csv stream.
+     * @return the number of lines queued.
+     * @throws IOException          if the stream cannot be read.
+     * @throws InterruptedException if interrupted while waiting for room.
+     * @throws IllegalArgumentException if the header lacks a column games need.
+     */
+    public long feed(Reader in) throws IOException, InterruptedException {
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in
+                : new BufferedReader(in);
+        String header = reader.readLine();
+        if (header == null) {
+            return 0;
+        }
+        Map<GameData, Integer> columns = GamesLoader.processHeader(header);
+        for (GameData column : GamesLoader.BASE_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new IllegalArgumentException("Missing column: " + column.getColumnName());
+            }
+        }
+
+        long count = 0;
+        String text;
+        while (!closed && (text = GamesLoader.readRecord(reader)) != null) {
+            if (text.isBlank()) {
+                continue;
+            }
+            synchronized (this) {
+                pending++;
+            }
+            try {
+                queue.put(new Line(columns, text));
+            } catch (InterruptedException e) {
+                done(1);
+                throw e;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Starts reading a stream, such as standard input, on a background thread.
+     *
+     * @param in the csv stream, in UTF-8.
+     */
+    public void follow(InputStream in) {
+        start("ingest-stream", () -> feed(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Starts reading a source on a background thread. A directory is a spool
+     * directory, watched until the ingest is closed. A named pipe is opened again
+     * each time its writer closes it, and a file is read once.
+     *
+     * @param source the directory, named pipe or file.
+     */
+    public void follow(Path source) {
+        if (Files.isDirectory(source)) {
+            start("ingest-spool", () -> spool(source));
+        } else {
+            start("ingest-" + source.getFileName(), () -> {
+                do {
+                    try (Reader in = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+                        feed(in);
+                    }
+                } while (!closed && !Files.isRegularFile(source));
+            });
+        }
+    }
+
+    /**
+     * Reads a source until it ends or fails.
+     */
+    @FunctionalInterface
+    private interface Source {
+        /**
+         * Reads the source.
+         *
+         * @throws IOException          if it cannot be read.
+         * @throws InterruptedException if interrupted while waiting for room.
+         */
+        void read() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Starts a thread reading a source.
+     *
+     * @param name   the name of the thread.
+     * @param source reads the source.
+     */
+    private void start(String name, Source source) {
+        Thread thread = new Thread(() -> {
+            try {
+                source.read();
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error reading ingest source: " + e.getMessage());
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // closed
+            }
+        }, name);
+        thread.setDaemon(true);
+        sources.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Reads the files of a spool directory, oldest name first, and then each new one
+     * as it appears, until closed.
+     *
+     * @param directory the spool directory.
+     * @throws IOException          if the directory cannot be watched.
+     * @throws InterruptedException if closed while waiting for room.
+     */
+    private void spool(Path directory) throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            while (!closed) {
+                // listing the directory again also finds files whose events were missed
+                for (Path file : spooled(directory)) {
+                    String suffix = DONE_SUFFIX;
+                    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                        feed(in);
+                    } catch (IOException | IllegalArgumentException e) {
+                        System.err.println("Error reading file: " + file.getFileName() + ": "
+                                + e.getMessage());
+                        suffix = FAILED_SUFFIX;
+                    }
+                    if (closed) {
+                        return; // not read to the end, so it is read again next time
+                    }
+                    Files.move(file, file.resolveSibling(file.getFileName() + suffix),
+                            StandardCopyOption.REPLACE_EXISTING);
+                }
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the files waiting in a spool directory.
+     *
+     * @param directory the spool directory.
+     * @return the files, in name order.
+     * @throws IOException if the directory cannot be listed.
+     */
+    private static List<Path> spooled(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SPOOL_SUFFIX)
+                    && Files.isRegularFile(file)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Takes lines off the queue in batches and publishes them, until closed and
+     * every line queued has been published.
+     */
+    private void publish() {
+        List<Line> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Line first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize
+                        && queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                    long wait = deadline - System.nanoTime();
+                    Line next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                publish(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // stopped without publishing what is left
+        }
+    }
+
+    /**
+     * Parses a batch of lines and applies the games to the catalog as one version.
+     * When a game is in the batch more than once, its last line wins.
+     *
+     * @param batch the lines, in the order they were read.
+     */
+    private void publish(List<Line> batch) {
+        Map<List<Object>, BoardGame> latest = new LinkedHashMap<>();
+        int parsed = 0;
+        int start = 0;
+        while (start < batch.size()) {
+            // lines from the same source in a row share their header
+            Map<GameData, Integer> columns = batch.get(start).columns;
+            int end = start + 1;
+            while (end < batch.size() && batch.get(end).columns == columns) {
+                end++;
+            }
+            List<String> lines = batch.subList(start, end).stream().map(line -> line.text)
+                    .collect(Collectors.toList());
+            for (BoardGame game : GamesLoader.toBoardGames(lines, columns)) {
+                latest.put(List.of(game.getId(), game.getSortName()), game);
+                parsed++;
+            }
+            start = end;
+        }
+
+        try {
+            CatalogChanges changes = catalog.upsert(latest.values());
+            games += changes.getInserted().size() + changes.getUpdated().size();
+            batches++;
+        } catch (RuntimeException e) {
+            System.err.println("Error publishing games: " + e.getMessage());
+        } finally {
+            skipped += batch.size() - parsed;
+            done(batch.size());
+        }
+    }
+
+    /**
+     * Counts lines as published, waking any thread waiting for them.
+     *
+     * @param lines the number of lines.
+     */
+    private synchronized void done(int lines) {
+        pending -= lines;
+        notifyAll();
+    }
+
+    /**
+     * Waits until every line read so far has been published.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public synchronized void flush() throws InterruptedException {
+        while (pending > 0) {
+            wait();
+        }
+    }
+
+    /**
+     * Stops reading the sources, and waits for the lines already queued to be
+     * published.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        sources.forEach(Thread::interrupt);
+        try {
+            publisher.join();
+        } catch (InterruptedException e) {
+            publisher.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
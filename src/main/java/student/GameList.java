@@ -18,18 +18,22 @@ public class GameList implements IGameList {
 
     /** Creates an empty GameList with case-insensitive name sorting. */
     public GameList() {
-        this.games = new TreeSet<>(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER));
+        this.games = new TreeSet<>(GameCatalog.BY_NAME);
     }
 
     /** @return List of game names sorted alphabetically (case-insensitive). */
     @Override
     public List<String> getGameNames() {
-        return games.stream()
+        return games.stream() // already in name order
                 .map(BoardGame::getName)
-                .sorted(String.CASE_INSENSITIVE_ORDER)
                 .collect(Collectors.toList());
     }
 
+    /** @return The games in the list, in the same order as getGameNames. */
+    public List<BoardGame> getGames() {
+        return List.copyOf(games);
+    }
+
     /** Removes all games from the list. */
     @Override
     public void clear() {
@@ -72,7 +76,7 @@ public class GameList implements IGameList {
     @Override
     public void addToList(String str, Stream<BoardGame> filtered) throws IllegalArgumentException {
         List<BoardGame> filteredList = filtered
-                .sorted(Comparator.comparing(BoardGame::getName, String.CASE_INSENSITIVE_ORDER))
+                .sorted(GameCatalog.BY_NAME)
                 .collect(Collectors.toList());
 
         if (str.equalsIgnoreCase("all")) {
@@ -96,8 +100,9 @@ public class GameList implements IGameList {
                 }
                 games.addAll(filteredList.subList(start, end + 1));
             } else { // Add by name
+                String key = NameKey.fold(str);
                 Optional<BoardGame> game = filteredList.stream()
-                        .filter(g -> g.getName().equalsIgnoreCase(str))
+                        .filter(g -> g.getSortName().equals(key))
                         .findFirst();
                 game.ifPresentOrElse(games::add, () -> {
                     throw new IllegalArgumentException("Game not found: " + str);
@@ -155,10 +160,11 @@ public class GameList implements IGameList {
      * @throws IllegalArgumentException If the game is not found.
      */
     private void removeGameByName(String name) {
+        String key = NameKey.fold(name);
         Iterator<BoardGame> iterator = games.iterator();
         while (iterator.hasNext()) {
             BoardGame game = iterator.next();
-            if (game.getName().equalsIgnoreCase(name)) {
+            if (game.getSortName().equals(key)) {
                 iterator.remove();
                 return;
             }
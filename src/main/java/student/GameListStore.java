@@ -0,0 +1,324 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores many named game lists in a single compact binary file.
+ *
+ * Instead of one text file of names per list (see GameList.saveGame), each list
+ * is stored as the sorted set of its game ids, delta encoded as unsigned varints.
+ * The file layout is:
+ *
+ * <pre>
+ *  int    magic ("BGLS")
+ *  short  format version
+ *  int    number of lists
+ *  directory, one entry per list sorted by name:
+ *      UTF    list name
+ *      long   offset of the section in the file
+ *      int    length of the section in bytes
+ *      int    number of games in the list
+ *  sections, one per list: varint(first id), varint(id - previous id), ...
+ * </pre>
+ *
+ * Opening a store only reads the directory, and loading a list only reads that
+ * list's section.
+ */
+public final class GameListStore {
+    /** Marks the start of a list store file. */
+    private static final int MAGIC = 0x42474C53;
+    /** Current version of the file format. */
+    private static final short VERSION = 1;
+    /** Size of the buffer used when writing the file. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The file the store was opened from. */
+    private final Path file;
+    /** Directory of list name to section, sorted by name. */
+    private final Map<String, Section> directory;
+
+    /**
+     * Creates a store over an already read directory.
+     *
+     * @param file      the file the store was opened from.
+     * @param directory the directory read from the file.
+     */
+    private GameListStore(Path file, Map<String, Section> directory) {
+        this.file = file;
+        this.directory = directory;
+    }
+
+    /**
+     * Saves the lists to a single store file. It will overwrite the file if it
+     * already exists.
+     *
+     * @param filename the name of the file to save the lists to.
+     * @param lists    the lists to save, keyed by list name (user, event, ...).
+     * @throws RuntimeException If an I/O error occurs.
+     */
+    public static void save(String filename, Map<String, GameList> lists) {
+        Path filePath = Path.of(filename);
+        Map<String, GameList> sorted = new TreeMap<>(lists);
+        List<byte[]> sections = new ArrayList<>(sorted.size());
+        List<Integer> counts = new ArrayList<>(sorted.size());
+        for (GameList list : sorted.values()) {
+            int[] ids = list.getGames().stream().mapToInt(BoardGame::getId).sorted().distinct()
+                    .toArray();
+            sections.add(encode(ids));
+            counts.add(ids.length);
+        }
+
+        try {
+            if (filePath.getParent() != null) {
+                Files.createDirectories(filePath.getParent());
+            }
+            // the directory size depends on the names, so build it first to know the offsets
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream dir = new DataOutputStream(header);
+            dir.writeInt(MAGIC);
+            dir.writeShort(VERSION);
+            dir.writeInt(sorted.size());
+            long directorySize = header.size();
+            for (String name : sorted.keySet()) {
+                directorySize += utfLength(name) + Long.BYTES + Integer.BYTES * 2;
+            }
+            long offset = directorySize;
+            int i = 0;
+            for (String name : sorted.keySet()) {
+                dir.writeUTF(name);
+                dir.writeLong(offset);
+                dir.writeInt(sections.get(i).length);
+                dir.writeInt(counts.get(i));
+                offset += sections.get(i).length;
+                i++;
+            }
+            dir.flush();
+
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE), BUFFER_SIZE)) {
+                header.writeTo(out);
+                for (byte[] section : sections) {
+                    out.write(section);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing to file: " + filename, e);
+        }
+    }
+
+    /**
+     * Opens a store file, reading only its directory.
+     *
+     * @param filename the name of the store file.
+     * @return the opened store.
+     * @throws RuntimeException If an I/O error occurs or the file is not a list store.
+     */
+    public static GameListStore open(String filename) {
+        Path filePath = Path.of(filename);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(filePath))) {
+            DataInputStream data = new DataInputStream(in);
+            if (data.readInt() != MAGIC) {
+                throw new RuntimeException("Not a game list store: " + filename);
+            }
+            short version = data.readShort();
+            if (version != VERSION) {
+                throw new RuntimeException("Unsupported game list store version: " + version);
+            }
+            int size = data.readInt();
+            Map<String, Section> directory = new TreeMap<>();
+            for (int i = 0; i < size; i++) {
+                String name = data.readUTF();
+                directory.put(name, new Section(data.readLong(), data.readInt(), data.readInt()));
+            }
+            return new GameListStore(filePath, directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading file: " + filename, e);
+        }
+    }
+
+    /** @return The names of the lists in the store, sorted. */
+    public List<String> getListNames() {
+        return List.copyOf(directory.keySet());
+    }
+
+    /**
+     * Counts the games in a list without reading the list.
+     *
+     * @param name the name of the list.
+     * @return the number of games in the list.
+     * @throws IllegalArgumentException If there is no list with that name.
+     */
+    public int count(String name) {
+        return section(name).count;
+    }
+
+    /**
+     * Reads the sorted game ids of a single list.
+     *
+     * @param name the name of the list.
+     * @return the game ids in the list, in ascending order.
+     * @throws IllegalArgumentException If there is no list with that name.
+     * @throws RuntimeException If an I/O error occurs.
+     */
+    public int[] readIds(String name) {
+        Section section = section(name);
+        ByteBuffer buffer = ByteBuffer.allocate(section.length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, section.offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of file");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading file: " + file, e);
+        }
+        buffer.flip();
+        return decode(buffer, section.count);
+    }
+
+    /**
+     * Loads a single list, matching its ids against the catalog of games.
+     *
+     * Ids that are no longer in the catalog are skipped.
+     *
+     * @param name    the name of the list.
+     * @param catalog the games to resolve ids against.
+     * @return a new GameList with the games of the list.
+     * @throws IllegalArgumentException If there is no list with that name.
+     */
+    public GameList load(String name, Collection<BoardGame> catalog) {
+        int[] ids = readIds(name);
+        GameList list = new GameList();
+        if (ids.length > 0) {
+            list.addToList(IGameList.ADD_ALL, catalog.stream()
+                    .filter(game -> Arrays.binarySearch(ids, game.getId()) >= 0));
+        }
+        return list;
+    }
+
+    /**
+     * Gets the directory entry of a list.
+     *
+     * @param name the name of the list.
+     * @return the section of the list.
+     * @throws IllegalArgumentException If there is no list with that name.
+     */
+    private Section section(String name) {
+        Section section = directory.get(name);
+        if (section == null) {
+            throw new IllegalArgumentException("No list with name " + name);
+        }
+        return section;
+    }
+
+    /**
+     * Delta encodes sorted ids as unsigned varints.
+     *
+     * @param ids the sorted ids.
+     * @return the encoded bytes.
+     */
+    static byte[] encode(int[] ids) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(ids.length * 2);
+        int previous = 0;
+        for (int id : ids) {
+            int delta = id - previous; // wraps for negative ids, decode wraps back
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+            previous = id;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes delta encoded unsigned varints back into ids.
+     *
+     * @param buffer the encoded bytes.
+     * @param count  the number of ids encoded.
+     * @return the decoded ids.
+     */
+    static int[] decode(ByteBuffer buffer, int count) {
+        int[] ids = new int[count];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get();
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            previous += delta;
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    /**
+     * Computes how many bytes writeUTF uses for a string.
+     *
+     * @param str the string.
+     * @return the number of bytes, including the length prefix.
+     */
+    private static int utfLength(String str) {
+        int length = 2;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) {
+                length += 1;
+            } else if (c > 0x07FF) {
+                length += 3;
+            } else {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Location of a single list in the store file.
+     */
+    private static final class Section {
+        /** Offset of the section in the file. */
+        private final long offset;
+        /** Length of the section in bytes. */
+        private final int length;
+        /** Number of games in the list. */
+        private final int count;
+
+        /**
+         * Creates a directory entry.
+         *
+         * @param offset offset of the section in the file.
+         * @param length length of the section in bytes.
+         * @param count  number of games in the list.
+         */
+        private Section(long offset, int length, int count) {
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+}
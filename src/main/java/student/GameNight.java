@@ -0,0 +1,64 @@
+package student;
+
+import java.util.List;
+
+/**
+ * A set of games chosen for a game night by GameNightPlanner, with the time they
+ * take and their total score.
+ */
+public final class GameNight {
+    /** The games, in name order. */
+    private final List<BoardGame> games;
+    /** The time the games take, in minutes. */
+    private final int minutes;
+    /** The summed score of the games. */
+    private final double score;
+    /** Whether the search finished, so no better set of games exists. */
+    private final boolean optimal;
+
+    /**
+     * Creates a game night.
+     *
+     * @param games   the games, in name order.
+     * @param minutes the time the games take, in minutes.
+     * @param score   the summed score of the games.
+     * @param optimal whether no better set of games exists.
+     */
+    GameNight(List<BoardGame> games, int minutes, double score, boolean optimal) {
+        this.games = List.copyOf(games);
+        this.minutes = minutes;
+        this.score = score;
+        this.optimal = optimal;
+    }
+
+    /** @return The games, in name order. */
+    public List<BoardGame> getGames() {
+        return games;
+    }
+
+    /** @return The time the games take, in minutes. */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /** @return The summed score of the games. */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Checks if the plan is the best possible one, or only the best found before
+     * the time limit.
+     *
+     * @return true if no better set of games exists.
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    @Override
+    public String toString() {
+        return "GameNight{games=" + games.size() + ", minutes=" + minutes + ", score=" + score
+                + ", optimal=" + optimal + "}";
+    }
+}
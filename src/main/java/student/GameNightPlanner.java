@@ -0,0 +1,308 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the games for a game night: the set of games a group can play that fits
+ * in the time available and has the highest summed score (rating by default).
+ *
+ * Only games the group size is within the player range of are considered, and
+ * each game takes its maximum play time (its minimum when no maximum is given),
+ * so the night is planned for the longest each game can run. Games without a
+ * play time, or without a positive score, are left out.
+ *
+ * This is a 0/1 knapsack, solved with branch and bound: games are tried in order
+ * of score per minute, and a branch is dropped once even filling the rest of the
+ * time with fractions of the best remaining games cannot beat the best set found
+ * so far. The first few choices split the search into independent parts, searched
+ * in parallel with a shared best. If the time limit passes first, the best set
+ * found so far is returned, marked as not optimal.
+ */
+public final class GameNightPlanner {
+    /** The first SPLIT_DEPTH choices split the search into parts searched in parallel. */
+    private static final int SPLIT_DEPTH = 6;
+
+    /** The games to choose from. */
+    private final Collection<BoardGame> games;
+
+    /**
+     * Creates a planner choosing from a set of games.
+     *
+     * @param games the games to choose from, such as the current filter.
+     */
+    public GameNightPlanner(Collection<BoardGame> games) {
+        this.games = games;
+    }
+
+    /**
+     * Plans a game night maximizing the summed rating.
+     *
+     * @param players         the number of players.
+     * @param minutes         the time available, in minutes.
+     * @param timeLimitMillis how long to search for.
+     * @return the best set of games found.
+     * @throws IllegalArgumentException if players or the time limit are not
+     *                                  positive, or minutes is negative.
+     */
+    public GameNight plan(int players, int minutes, long timeLimitMillis) {
+        return plan(players, minutes, null, BoardGame::getRating, timeLimitMillis);
+    }
+
+    /**
+     * Plans a game night.
+     *
+     * @param players         the number of players.
+     * @param minutes         the time available, in minutes.
+     * @param list            only choose games on this list, or null to choose
+     *                        from every game.
+     * @param score           the score of a game, summed over the games chosen.
+     * @param timeLimitMillis how long to search for.
+     * @return the best set of games found.
+     * @throws IllegalArgumentException if players or the time limit are not
+     *                                  positive, or minutes is negative.
+     */
+    public GameNight plan(int players, int minutes, IGameList list,
+            ToDoubleFunction<BoardGame> score, long timeLimitMillis) {
+        if (players <= 0 || minutes < 0 || timeLimitMillis <= 0) {
+            throw new IllegalArgumentException("Invalid game night: " + players + " players, "
+                    + minutes + " minutes, " + timeLimitMillis + " ms");
+        }
+        Set<String> names = list == null ? null
+                : list.getGameNames().stream().map(NameKey::fold).collect(Collectors.toSet());
+        List<BoardGame> candidates = new ArrayList<>();
+        for (BoardGame game : games) {
+            if ((names == null || names.contains(game.getSortName()))
+                    && IntervalIndex.Span.PLAYERS.contains(game, players)
+                    && playTime(game) > 0 && playTime(game) <= minutes
+                    && score.applyAsDouble(game) > 0) {
+                candidates.add(game);
+            }
+        }
+        // best score per minute first, name order between equals for repeatable plans
+        candidates.sort(Comparator.<BoardGame>comparingDouble(
+                game -> -score.applyAsDouble(game) / playTime(game)).thenComparing(
+                        GameCatalog.BY_NAME));
+        Search search = new Search(candidates, score, minutes,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeLimitMillis));
+        return search.run();
+    }
+
+    /**
+     * Gets the time set aside for a game.
+     *
+     * @param game the game.
+     * @return its maximum play time, or its minimum when no maximum is given.
+     */
+    static int playTime(BoardGame game) {
+        return game.getMaxPlayTime() > 0 ? game.getMaxPlayTime() : game.getMinPlayTime();
+    }
+
+    /**
+     * One branch and bound search over the candidates of a game night.
+     */
+    private static final class Search {
+        /** The candidates, best score per minute first. */
+        private final List<BoardGame> candidates;
+        /** The time of each candidate. */
+        private final int[] times;
+        /** The score of each candidate. */
+        private final double[] scores;
+        /** The time available. */
+        private final int capacity;
+        /** When to stop searching, as System.nanoTime. */
+        private final long deadline;
+        /** The best score found so far, read without locking to prune. */
+        private volatile double bestScore = -1;
+        /** The candidates of the best set found so far. */
+        private boolean[] bestTaken;
+        /** Set once the deadline passed. */
+        private volatile boolean stopped;
+
+        /**
+         * Creates a search.
+         *
+         * @param candidates the candidates, best score per minute first.
+         * @param score      the score of a game.
+         * @param capacity   the time available.
+         * @param deadline   when to stop searching, as System.nanoTime.
+         */
+        private Search(List<BoardGame> candidates, ToDoubleFunction<BoardGame> score,
+                int capacity, long deadline) {
+            this.candidates = candidates;
+            this.capacity = capacity;
+            this.deadline = deadline;
+            this.times = candidates.stream().mapToInt(GameNightPlanner::playTime).toArray();
+            this.scores = candidates.stream().mapToDouble(score).toArray();
+        }
+
+        /**
+         * Runs the search.
+         *
+         * @return the best set of games found.
+         */
+        private GameNight run() {
+            greedy();
+            List<Part> parts = new ArrayList<>();
+            split(0, 0, 0, new boolean[times.length], parts);
+            parts.parallelStream().forEach(
+                    part -> search(part.next, part.time, part.score, part.taken));
+
+            List<BoardGame> chosen = new ArrayList<>();
+            int minutes = 0;
+            double total = 0;
+            for (int i = 0; i < times.length; i++) {
+                if (bestTaken[i]) {
+                    chosen.add(candidates.get(i));
+                    minutes += times[i];
+                    total += scores[i];
+                }
+            }
+            chosen.sort(GameCatalog.BY_NAME);
+            return new GameNight(chosen, minutes, total, !stopped);
+        }
+
+        /**
+         * Starts from the set taking each candidate in order while it fits, so the
+         * search prunes well from the start.
+         */
+        private void greedy() {
+            boolean[] taken = new boolean[times.length];
+            int time = 0;
+            double total = 0;
+            for (int i = 0; i < times.length; i++) {
+                if (time + times[i] <= capacity) {
+                    taken[i] = true;
+                    time += times[i];
+                    total += scores[i];
+                }
+            }
+            offer(total, taken);
+        }
+
+        /**
+         * Makes the first choices, collecting the parts of the search left after
+         * them.
+         *
+         * @param next  the next candidate to choose.
+         * @param time  the time taken so far.
+         * @param total the score so far.
+         * @param taken the candidates taken so far.
+         * @param parts the parts collected.
+         */
+        private void split(int next, int time, double total, boolean[] taken,
+                List<Part> parts) {
+            if (next == SPLIT_DEPTH || next == times.length) {
+                parts.add(new Part(next, time, total, taken.clone()));
+                return;
+            }
+            if (time + times[next] <= capacity) {
+                taken[next] = true;
+                split(next + 1, time + times[next], total + scores[next], taken, parts);
+                taken[next] = false;
+            }
+            split(next + 1, time, total, taken, parts);
+        }
+
+        /**
+         * Searches the sets that keep the choices made so far.
+         *
+         * @param next  the next candidate to choose.
+         * @param time  the time taken so far.
+         * @param total the score so far.
+         * @param taken the candidates taken so far, restored before returning.
+         */
+        private void search(int next, int time, double total, boolean[] taken) {
+            if (stopped) {
+                return;
+            }
+            if (System.nanoTime() > deadline) {
+                stopped = true;
+                return;
+            }
+            if (total > bestScore) {
+                offer(total, taken);
+            }
+            if (next == times.length || bound(next, capacity - time, total) <= bestScore) {
+                return;
+            }
+            if (time + times[next] <= capacity) {
+                taken[next] = true;
+                search(next + 1, time + times[next], total + scores[next], taken);
+                taken[next] = false;
+            }
+            search(next + 1, time, total, taken);
+        }
+
+        /**
+         * Computes the most any set keeping the choices made so far can score: the
+         * remaining time filled with the best remaining candidates, the last one
+         * in part.
+         *
+         * @param next  the next candidate to choose.
+         * @param left  the time left.
+         * @param total the score so far.
+         * @return an upper bound on the score.
+         */
+        private double bound(int next, int left, double total) {
+            for (int i = next; i < times.length && left > 0; i++) {
+                if (times[i] <= left) {
+                    left -= times[i];
+                    total += scores[i];
+                } else {
+                    return total + scores[i] * left / times[i];
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Keeps a set if it is the best so far.
+         *
+         * @param total the score of the set.
+         * @param taken the candidates of the set.
+         */
+        private synchronized void offer(double total, boolean[] taken) {
+            if (total > bestScore) {
+                bestScore = total;
+                bestTaken = Arrays.copyOf(taken, taken.length);
+            }
+        }
+    }
+
+    /**
+     * A part of the search, after the first choices.
+     */
+    private static final class Part {
+        /** The next candidate to choose. */
+        private final int next;
+        /** The time taken by the first choices. */
+        private final int time;
+        /** The score of the first choices. */
+        private final double score;
+        /** The candidates taken by the first choices. */
+        private final boolean[] taken;
+
+        /**
+         * Creates a part.
+         *
+         * @param next  the next candidate to choose.
+         * @param time  the time taken by the first choices.
+         * @param score the score of the first choices.
+         * @param taken the candidates taken by the first choices.
+         */
+        private Part(int next, int time, double score, boolean[] taken) {
+            this.next = next;
+            this.time = time;
+            this.score = score;
+            this.taken = taken;
+        }
+    }
+}
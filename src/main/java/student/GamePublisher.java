@@ -0,0 +1,171 @@
+package student;
+
+import java.util.Iterator;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Publishes the results of a query to one subscriber, only as fast as it asks
+ * for them.
+ *
+ * Games are taken from the results one at a time as the subscriber requests
+ * them, so a slow consumer never causes more than it asked for to be read, and
+ * results are never collected in memory (other than what the planner itself
+ * needs to sort). Games are delivered on the thread that requests them, and a
+ * subscriber that requests more from onNext is served by the same loop rather
+ * than recursively. Cancelling stops the query and closes the results.
+ *
+ * The results can only be read once, so only the first subscriber receives them;
+ * any other is sent an IllegalStateException.
+ */
+public final class GamePublisher implements Flow.Publisher<BoardGame> {
+    /** The results of the query. */
+    private final Stream<BoardGame> results;
+    /** Whether the results have been subscribed to. */
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Creates a publisher of the results of a query.
+     *
+     * @param results the results, read lazily as they are requested.
+     */
+    public GamePublisher(Stream<BoardGame> results) {
+        this.results = results;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super BoardGame> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Results can only be read once"));
+            return;
+        }
+        ResultSubscription subscription = new ResultSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * The subscription of the subscriber to the results.
+     */
+    private final class ResultSubscription implements Flow.Subscription {
+        /** The subscriber. */
+        private final Flow.Subscriber<? super BoardGame> subscriber;
+        /** Games requested and not yet delivered. */
+        private final AtomicLong demand = new AtomicLong();
+        /** Number of calls waiting to deliver, only the first one delivers. */
+        private final AtomicInteger pending = new AtomicInteger();
+        /** The results, started on the first request. */
+        private Iterator<BoardGame> games;
+        /** Set when cancelled (or a request was invalid). */
+        private volatile boolean cancelled;
+        /** Set once the subscriber was sent onComplete or onError. */
+        private boolean done;
+        /** An invalid request, sent to the subscriber as an error. */
+        private volatile IllegalArgumentException invalid;
+
+        /**
+         * Creates a subscription.
+         *
+         * @param subscriber the subscriber.
+         */
+        private ResultSubscription(Flow.Subscriber<? super BoardGame> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalid = new IllegalArgumentException("Must request a positive number: " + n);
+                cancelled = true;
+            } else {
+                demand.getAndAccumulate(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+            }
+            deliver();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            deliver();
+        }
+
+        /**
+         * Delivers as many games as requested, unless another call is already
+         * delivering them, in which case that call picks up the new demand.
+         */
+        private void deliver() {
+            if (pending.getAndIncrement() != 0) {
+                return;
+            }
+            do {
+                if (!done) {
+                    deliverRequested();
+                }
+            } while (pending.decrementAndGet() != 0);
+        }
+
+        /**
+         * Delivers games while there is demand, then completes, fails or closes the
+         * results if the query is over. Only a failure of the query itself is passed
+         * on as onError; a subscriber that throws has already been told the outcome,
+         * or is treated as having cancelled.
+         */
+        private void deliverRequested() {
+            while (!cancelled && demand.get() > 0) {
+                BoardGame game = null;
+                try {
+                    if (games == null) {
+                        games = results.iterator();
+                    }
+                    if (games.hasNext()) {
+                        game = games.next();
+                    }
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                if (game == null) {
+                    finish();
+                    subscriber.onComplete();
+                    return;
+                }
+                demand.decrementAndGet();
+                try {
+                    subscriber.onNext(game);
+                } catch (RuntimeException e) {
+                    finish();
+                    throw e;
+                }
+            }
+            if (cancelled) {
+                finish();
+                if (invalid != null) {
+                    subscriber.onError(invalid);
+                }
+            }
+        }
+
+        /**
+         * Ends the subscription, closing the results.
+         */
+        private void finish() {
+            done = true;
+            results.close();
+        }
+    }
+}
@@ -1,33 +1,59 @@
 package student;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Loads the games from the csv file into a set of BoardGame objects.
  * This file is stored in the resources folder, and while it is
  * passed in - often tends to be more fixed.
  * 
- * It assumes there are no comma's in the data (and does not handle errors if
- * there are extra commas like in the name).
+ * Fields are separated by commas. A field with commas, quotes or line breaks
+ * (such as the name of a game exported by GameExporter) is quoted, with any
+ * quote in it doubled, as in RFC 4180.
  * 
  */
 public final class GamesLoader {
     /** Standard csv delim. */
     private static final String DELIMITER = ",";
+    /** Quotes a field with delimiters, quotes or line breaks in it. */
+    private static final char QUOTE = '"';
+    /** The columns every game needs, the rest are extended columns. */
+    static final List<GameData> BASE_COLUMNS = List.of(GameData.NAME, GameData.ID,
+            GameData.RATING, GameData.DIFFICULTY, GameData.RANK, GameData.MIN_PLAYERS,
+            GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.YEAR);
 
     /** private constructor to prevent instantiation. */
     private GamesLoader() {
     }
 
+    /**
+     * Gives the records of a csv file one at a time.
+     */
+    @FunctionalInterface
+    private interface RecordSource {
+        /**
+         * Reads the next record.
+         * 
+         * @return the record, or null at the end
+         * @throws IOException if it cannot be read
+         */
+        String next() throws IOException;
+    }
+
     /**
      * Loads the games from the csv file into a set of BoardGame objects.
      * 
@@ -38,43 +64,185 @@ public final class GamesLoader {
 
         Set<BoardGame> games = new HashSet<>();
 
-        List<String> lines;
-        try {
-            // this is so we can store the files in the resources folder
-            InputStream is = GamesLoader.class.getResourceAsStream(filename);
-            InputStreamReader isr = new InputStreamReader(is, StandardCharsets.UTF_8);
-            BufferedReader reader = new BufferedReader(isr);
-            lines = reader.lines().collect(Collectors.toList());
+        // this is so we can store the files in the resources folder
+        try (InputStream is = GamesLoader.class.getResourceAsStream(filename);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(is, StandardCharsets.UTF_8))) {
+            return readGames(reader);
         } catch (Exception e) {
             System.err.println("Error reading file: " + e.getMessage());
             return games;
         }
-        if (lines == null || lines.isEmpty()) {
-            return games;
+    }
+
+    /**
+     * Loads the games from a csv file on disk (rather than in the resources
+     * folder), such as a collection that is reloaded while the program runs.
+     * 
+     * @param file the path of the file to load
+     * @return a set of BoardGame objects
+     * @throws IOException if the file cannot be read
+     */
+    public static Set<BoardGame> loadGamesFile(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return readGames(reader);
         }
+    }
 
-        Map<GameData, Integer> columnMap = processHeader(lines.remove(0));
+    /**
+     * Reads the games of a csv file, header first, one record at a time.
+     * 
+     * @param reader the file
+     * @return a set of BoardGame objects
+     * @throws IOException if the file cannot be read
+     */
+    private static Set<BoardGame> readGames(BufferedReader reader) throws IOException {
+        String header = readRecord(reader);
+        if (header == null) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(toBoardGames(() -> readRecord(reader), processHeader(header)));
+    }
 
-        games = lines.stream().map(line -> toBoardGame(line, columnMap))
-                .filter(game -> game != null).collect(Collectors.toSet());
+    /**
+     * Reads one record of a csv file: a line, joined with the lines after it while
+     * a quoted field is still open.
+     * 
+     * @param reader the file
+     * @return the record, or null at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    static String readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null || line.indexOf(QUOTE) < 0) {
+            return line;
+        }
+        StringBuilder record = new StringBuilder(line);
+        String more;
+        while (isOpen(record) && (more = reader.readLine()) != null) {
+            record.append('\n').append(more);
+        }
+        return record.toString();
+    }
 
-        return games;
+    /**
+     * Checks if a record ends inside a quoted field.
+     * 
+     * @param record the record
+     * @return true if it has an odd number of quotes
+     */
+    private static boolean isOpen(CharSequence record) {
+        int quotes = 0;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == QUOTE) {
+                quotes++;
+            }
+        }
+        return quotes % 2 != 0;
+    }
 
+    /**
+     * Splits a csv record into its fields, unquoting quoted fields.
+     * 
+     * Records without quotes are split as String.split does, so trailing empty
+     * fields are dropped.
+     * 
+     * @param record the record
+     * @return the fields
+     */
+    static String[] split(String record) {
+        if (record.indexOf(QUOTE) < 0) {
+            return record.split(DELIMITER);
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c != QUOTE) {
+                    field.append(c);
+                } else if (i + 1 < record.length() && record.charAt(i + 1) == QUOTE) {
+                    field.append(QUOTE); // a doubled quote
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == QUOTE) {
+                quoted = true;
+            } else if (c == DELIMITER.charAt(0)) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
     }
 
     /**
-     * Converts a line from the csv file into a BoardGame object.
+     * Converts lines of a csv file, without the header, into BoardGame objects.
      * 
-     * @param line      the line to convert
-     * @param columnMap the map of columns to index
-     * @return a BoardGame object
+     * @param lines     the lines to convert
+     * @param columnMap the map of columns to index, from the header
+     * @return the games, in the order of the lines, skipping lines that are not games
      */
-    private static BoardGame toBoardGame(String line, Map<GameData, Integer> columnMap) {
-        String[] columns = line.split(DELIMITER);
-        if (columns.length < columnMap.values().stream().max(Integer::compareTo).get()) {
-            return null;
+    static List<BoardGame> toBoardGames(List<String> lines, Map<GameData, Integer> columnMap) {
+        Iterator<String> records = lines.iterator();
+        try {
+            return toBoardGames(() -> records.hasNext() ? records.next() : null, columnMap);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // reading a list does not fail
+        }
+    }
+
+    /**
+     * Converts the records of a csv file, without the header, into BoardGame
+     * objects. Each record is split once, and the extended columns are copied from
+     * its fields.
+     * 
+     * @param records   the records to convert
+     * @param columnMap the map of columns to index, from the header
+     * @return the games, in the order of the records, skipping records that are not games
+     * @throws IOException if the records cannot be read
+     */
+    private static List<BoardGame> toBoardGames(RecordSource records,
+            Map<GameData, Integer> columnMap) throws IOException {
+        List<BoardGame> games = new ArrayList<>();
+        for (GameData column : BASE_COLUMNS) {
+            if (!columnMap.containsKey(column)) {
+                System.err.println("Error reading file: missing column " + column.getColumnName());
+                return games;
+            }
         }
+        // the extended columns are only copied here, and parsed when first used
+        ExtendedColumns extended = new ExtendedColumns(columnMap);
+        int last = BASE_COLUMNS.stream().mapToInt(columnMap::get).max().getAsInt();
 
+        String record;
+        while ((record = records.next()) != null) {
+            String[] columns = split(record);
+            BoardGame game = columns.length <= last ? null
+                    : toBoardGame(columns, columnMap, extended);
+            if (game != null) {
+                games.add(game);
+            }
+        }
+        extended.finish();
+        return games;
+    }
+
+    /**
+     * Converts a line from the csv file into a BoardGame object.
+     * 
+     * @param columns   the values of the line to convert
+     * @param columnMap the map of columns to index
+     * @param extended  the extended columns of the file, which the line is added to
+     * @return a BoardGame object, or null if a base column is not a number
+     */
+    private static BoardGame toBoardGame(String[] columns, Map<GameData, Integer> columnMap,
+            ExtendedColumns extended) {
         try {
             BoardGame game = new BoardGame(columns[columnMap.get(GameData.NAME)],
                     Integer.parseInt(columns[columnMap.get(GameData.ID)]),
@@ -85,7 +253,8 @@ public final class GamesLoader {
                     Double.parseDouble(columns[columnMap.get(GameData.DIFFICULTY)]),
                     Integer.parseInt(columns[columnMap.get(GameData.RANK)]),
                     Double.parseDouble(columns[columnMap.get(GameData.RATING)]),
-                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]));
+                    Integer.parseInt(columns[columnMap.get(GameData.YEAR)]), extended,
+                    extended.add(columns)); // last, so only games are added
             return game;
         } catch (NumberFormatException e) {
             // skip if there is an issue
@@ -103,7 +272,7 @@ public final class GamesLoader {
      * @param header the header line
      * @return a map of column to index
      */
-    private static Map<GameData, Integer> processHeader(String header) {
+    static Map<GameData, Integer> processHeader(String header) {
         Map<GameData, Integer> columnMap = new HashMap<>();
         String[] columns = header.split(DELIMITER);
         for (int i = 0; i < columns.length; i++) {
@@ -1,5 +1,6 @@
 package student;
 
+import java.util.concurrent.Flow;
 import java.util.stream.Stream;
 
 /**
@@ -60,6 +61,10 @@ public interface IPlanner {
      * 
      * ~= : contains the text
      * 
+     * in low..high : between low and high, both included (numeric columns only)
+     * 
+     * in {a,b,c} : equal to any of the values (numeric columns only)
+     * 
      * The left side of the filter describes the column to filter on. The right side of the filter
      * describes the value to filter on.
      * 
@@ -80,6 +85,14 @@ public interface IPlanner {
      * This would filter the board games to only those with a minimum number of players greater than
      * 4 and less than 6.
      * 
+     * A | between filters is treated as an OR, and binds looser than the comma. Parentheses group
+     * filters, and a ! in front of a filter or group negates it. For example:
+     * 
+     * (minPlayers==1|maxPlayers==2),maxPlaytime<30,!name~=deluxe
+     * 
+     * would filter the board games to solo or two player games under 30 minutes that do not have
+     * deluxe in the name.
+     * 
      * Spaces should be ignored, but can be included for readability. For example:
      * 
      * minPlayers > 4
@@ -120,4 +133,111 @@ public interface IPlanner {
      */
     void reset();
 
+    /**
+     * Undoes the last progressive filter (or reset), going back to the filtered collection
+     * before it.
+     * 
+     * Implementations that do not keep a history return false.
+     * 
+     * @return true if a step was undone, false if there was nothing to undo.
+     */
+    default boolean undo() {
+        return false;
+    }
+
+    /**
+     * Redoes the last undone filter (or reset). Applying a new filter or reset clears what can
+     * be redone.
+     * 
+     * Implementations that do not keep a history return false.
+     * 
+     * @return true if a step was redone, false if there was nothing to redo.
+     */
+    default boolean redo() {
+        return false;
+    }
+
+    /**
+     * Finds the games most like a given game, out of the current filtered collection.
+     * 
+     * Games are compared on rating, difficulty, player counts, play times and year. The
+     * current filters are not changed.
+     * 
+     * Implementations without a similarity index return no games.
+     * 
+     * @param name The name of the game to compare to, ignoring case.
+     * @param k The most games to return.
+     * @return The most similar games, most similar first, not including the game itself.
+     * @throws IllegalArgumentException if there is no game with the name.
+     */
+    default Stream<BoardGame> similar(String name, int k) {
+        return Stream.empty();
+    }
+
+    /**
+     * Searches the text of the current filtered collection, ranking the games by how
+     * well they match the words of a query (BM25).
+     * 
+     * The name, original name, language dependence and comment of each game are
+     * searched, ignoring case. Games with none of the words are left out, and games
+     * with equal scores are in name order. The current filters are not changed.
+     * 
+     * Implementations without a text index return no games.
+     * 
+     * @param query The words to search for.
+     * @param k The most games to return.
+     * @return The best matching games, best first.
+     */
+    default Stream<BoardGame> search(String query, int k) {
+        return Stream.empty();
+    }
+
+    /**
+     * Applies a filter, like {@link #filter(String)}, then ranks the filtered collection by a
+     * score, returning the highest scoring games.
+     * 
+     * A score is a weighted sum of numeric columns, for example
+     * 
+     * rating*2 - difficulty + 0.1*year
+     * 
+     * Games with equal scores are in name order.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param score The score to rank the games by.
+     * @param k The most games to return.
+     * @return The highest scoring games, highest score first.
+     * @throws IllegalArgumentException if the score is not a weighted sum of numeric columns.
+     */
+    default Stream<BoardGame> rank(String filter, String score, int k) {
+        LinearScore ranking = LinearScore.parse(score);
+        return filter(filter).sorted(ranking.order()).limit(Math.max(0, k));
+    }
+
+    /**
+     * Applies a filter, like {@link #filter(String, GameData, boolean)}, but publishes the
+     * results to a subscriber only as fast as it requests them, rather than returning a stream.
+     * 
+     * The filter is applied when this is called. The results are read as the subscriber asks for
+     * them, and can be cancelled. Only the first subscriber receives the results.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @param sortOn The column to sort the results on.
+     * @param ascending Whether to sort the results in ascending order or descending order.
+     * @return A publisher of the board games that match the filter.
+     */
+    default Flow.Publisher<BoardGame> publish(String filter, GameData sortOn, boolean ascending) {
+        return new GamePublisher(filter(filter, sortOn, ascending));
+    }
+
+    /**
+     * Applies a filter, publishing the results sorted by name in ascending order.
+     * 
+     * @param filter The filter to apply to the board games.
+     * @return A publisher of the board games that match the filter.
+     * @see #publish(String, GameData, boolean)
+     */
+    default Flow.Publisher<BoardGame> publish(String filter) {
+        return publish(filter, GameData.NAME, true);
+    }
+
 }
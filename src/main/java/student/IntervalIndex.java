@@ -0,0 +1,371 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * An interval tree over one range of the catalog, such as the players from
+ * minPlayers to maxPlayers, for finding every game whose range contains a value.
+ *
+ * Each node has a center value and holds the games whose range contains it,
+ * twice: ordered by the low end, and by the high end (highest first). Games
+ * entirely below the center are in the left subtree, those entirely above it in
+ * the right one. Finding the games containing a value follows a single path down
+ * the tree, and at each node only reads games that match (plus one that stops
+ * the scan), so a query costs the depth of the tree plus the number of matches.
+ *
+ * Games whose low end is above their high end contain no value, and are left out.
+ *
+ * The index of the next catalog version is made with apply rather than built
+ * again: it shares the tree, skips the games changed since the tree was built,
+ * and tests the current versions of those games one by one. Once more than
+ * 1/REBUILD of the catalog has changed, apply gives up and the next query builds
+ * the tree anew.
+ */
+final class IntervalIndex {
+    /** Changes to more than 1/REBUILD of the catalog are built anew rather than applied. */
+    private static final int REBUILD = 8;
+
+    /**
+     * The ranges of a game that can be indexed, and the filter name of each.
+     */
+    enum Span {
+        /** The number of players a game supports. */
+        PLAYERS("players", GameData.MIN_PLAYERS, GameData.MAX_PLAYERS),
+        /** The time a game takes, in minutes. */
+        PLAY_TIME("playtime", GameData.MIN_TIME, GameData.MAX_TIME);
+
+        /** The name of the range in filters. */
+        private final String filterName;
+        /** The column holding the low end. */
+        private final GameData low;
+        /** The column holding the high end. */
+        private final GameData high;
+
+        /**
+         * Creates a range.
+         *
+         * @param filterName the name of the range in filters.
+         * @param low        the column holding the low end.
+         * @param high       the column holding the high end.
+         */
+        Span(String filterName, GameData low, GameData high) {
+            this.filterName = filterName;
+            this.low = low;
+            this.high = high;
+        }
+
+        /** @return The name of the range in filters. */
+        String getFilterName() {
+            return filterName;
+        }
+
+        /**
+         * Gets the low end of the range of a game.
+         *
+         * @param game the game.
+         * @return the low end.
+         */
+        double low(BoardGame game) {
+            return game.getNumericValue(low);
+        }
+
+        /**
+         * Gets the high end of the range of a game.
+         *
+         * @param game the game.
+         * @return the high end.
+         */
+        double high(BoardGame game) {
+            return game.getNumericValue(high);
+        }
+
+        /** @return The column holding the low end of the range. */
+        GameData getLowColumn() {
+            return low;
+        }
+
+        /** @return The column holding the high end of the range. */
+        GameData getHighColumn() {
+            return high;
+        }
+
+        /**
+         * Checks if the range of a game contains a value.
+         *
+         * @param game  the game.
+         * @param value the value.
+         * @return true if low &lt;= value &lt;= high.
+         */
+        boolean contains(BoardGame game, double value) {
+            return low(game) <= value && value <= high(game);
+        }
+
+        /**
+         * Finds a range by its filter name, ignoring case.
+         *
+         * @param name the name.
+         * @return the range, or null if there is none by that name.
+         */
+        static Span fromString(String name) {
+            for (Span span : values()) {
+                if (span.filterName.equalsIgnoreCase(name)) {
+                    return span;
+                }
+            }
+            return null;
+        }
+    }
+
+    /** The center of each node. */
+    private final double[] centers;
+    /** The left child of each node, -1 for none. */
+    private final int[] left;
+    /** The right child of each node, -1 for none. */
+    private final int[] right;
+    /** Where the games of each node start in byLow and byHigh. */
+    private final int[] start;
+    /** Where the games of each node end (exclusive) in byLow and byHigh. */
+    private final int[] end;
+    /** Ordinals of the games of each node, ordered by low end. */
+    private final int[] byLow;
+    /** The low ends, in the same order. */
+    private final double[] lows;
+    /** Ordinals of the games of each node, ordered by high end, highest first. */
+    private final int[] byHigh;
+    /** The high ends, in the same order. */
+    private final double[] highs;
+    /** The range indexed. */
+    private final Span span;
+    /** Number of nodes built so far. */
+    private int nodes;
+    /** Number of games placed in nodes so far. */
+    private int placed;
+    /** The root node, -1 if the tree is empty. */
+    private final int root;
+    /** Ordinals changed since the tree was built, skipped when it is read. */
+    private final BitSet stale;
+    /** Ordinals of the changed games with a range, in their current version. */
+    private final int[] added;
+    /** The low ends of the changed games, in the same order. */
+    private final double[] addedLows;
+    /** The high ends of the changed games, in the same order. */
+    private final double[] addedHighs;
+
+    /**
+     * Builds the index of a range for a catalog version.
+     *
+     * @param games the catalog.
+     * @param span  the range to index.
+     */
+    IntervalIndex(GameCatalog games, Span span) {
+        this.span = span;
+        int[] ordinals = games.all().stream()
+                .filter(i -> span.low(games.get(i)) <= span.high(games.get(i))).toArray();
+        int n = ordinals.length;
+        this.centers = new double[n];
+        this.left = new int[n];
+        this.right = new int[n];
+        this.start = new int[n];
+        this.end = new int[n];
+        this.byLow = new int[n];
+        this.lows = new double[n];
+        this.byHigh = new int[n];
+        this.highs = new double[n];
+        this.root = build(games, ordinals);
+        this.stale = new BitSet();
+        this.added = new int[0];
+        this.addedLows = new double[0];
+        this.addedHighs = new double[0];
+    }
+
+    /**
+     * Creates the index of a later version of the catalog, sharing a tree.
+     *
+     * @param built      the index the tree was built for.
+     * @param stale      ordinals changed since the tree was built.
+     * @param added      ordinals of the changed games with a range.
+     * @param addedLows  the low ends of the changed games.
+     * @param addedHighs the high ends of the changed games.
+     */
+    private IntervalIndex(IntervalIndex built, BitSet stale, int[] added, double[] addedLows,
+            double[] addedHighs) {
+        this.span = built.span;
+        this.centers = built.centers;
+        this.left = built.left;
+        this.right = built.right;
+        this.start = built.start;
+        this.end = built.end;
+        this.byLow = built.byLow;
+        this.lows = built.lows;
+        this.byHigh = built.byHigh;
+        this.highs = built.highs;
+        this.root = built.root;
+        this.stale = stale;
+        this.added = added;
+        this.addedLows = addedLows;
+        this.addedHighs = addedHighs;
+    }
+
+    /**
+     * Makes the index of the next version of the catalog, reading only the
+     * changed games.
+     *
+     * @param next    the next version of the catalog.
+     * @param changed the ordinals added, updated or removed.
+     * @return the index of the next version, or null if so much has changed that
+     *         it should be built anew.
+     */
+    IntervalIndex apply(GameCatalog next, BitSet changed) {
+        BitSet nextStale = (BitSet) stale.clone();
+        nextStale.or(changed);
+        if ((long) nextStale.cardinality() * REBUILD > next.count()) {
+            return null;
+        }
+        int count = added.length + changed.cardinality();
+        int[] nextAdded = new int[count];
+        double[] nextLows = new double[count];
+        double[] nextHighs = new double[count];
+        int at = 0;
+        for (int i = 0; i < added.length; i++) {
+            if (!changed.get(added[i])) {
+                nextAdded[at] = added[i];
+                nextLows[at] = addedLows[i];
+                nextHighs[at++] = addedHighs[i];
+            }
+        }
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            BoardGame game = next.get(i);
+            if (game != null && span.low(game) <= span.high(game)) {
+                nextAdded[at] = i;
+                nextLows[at] = span.low(game);
+                nextHighs[at++] = span.high(game);
+            }
+        }
+        return new IntervalIndex(this, nextStale, Arrays.copyOf(nextAdded, at),
+                Arrays.copyOf(nextLows, at), Arrays.copyOf(nextHighs, at));
+    }
+
+    /**
+     * Builds the subtree holding a set of games.
+     *
+     * The center is the median of the ends of the ranges, which belongs to (so is
+     * contained in) at least one of them: every node holds a game, and each
+     * subtree has at most half the ends.
+     *
+     * @param games    the catalog.
+     * @param ordinals the games of the subtree.
+     * @return the node, -1 if there are no games.
+     */
+    private int build(GameCatalog games, int[] ordinals) {
+        if (ordinals.length == 0) {
+            return -1;
+        }
+        double[] ends = new double[ordinals.length * 2];
+        for (int i = 0; i < ordinals.length; i++) {
+            BoardGame game = games.get(ordinals[i]);
+            ends[2 * i] = span.low(game);
+            ends[2 * i + 1] = span.high(game);
+        }
+        Arrays.sort(ends);
+        double center = ends[ordinals.length];
+
+        int[] below = new int[ordinals.length];
+        int[] above = new int[ordinals.length];
+        int[] here = new int[ordinals.length];
+        int belowCount = 0;
+        int aboveCount = 0;
+        int hereCount = 0;
+        for (int ordinal : ordinals) {
+            BoardGame game = games.get(ordinal);
+            if (span.high(game) < center) {
+                below[belowCount++] = ordinal;
+            } else if (span.low(game) > center) {
+                above[aboveCount++] = ordinal;
+            } else {
+                here[hereCount++] = ordinal;
+            }
+        }
+
+        int node = nodes++;
+        centers[node] = center;
+        start[node] = placed;
+        int[] sorted = sortBy(Arrays.copyOf(here, hereCount), games, false);
+        for (int ordinal : sorted) {
+            byLow[placed] = ordinal;
+            lows[placed++] = span.low(games.get(ordinal));
+        }
+        end[node] = placed;
+        sorted = sortBy(Arrays.copyOf(here, hereCount), games, true);
+        for (int i = 0; i < sorted.length; i++) {
+            byHigh[start[node] + i] = sorted[i];
+            highs[start[node] + i] = span.high(games.get(sorted[i]));
+        }
+        left[node] = build(games, Arrays.copyOf(below, belowCount));
+        right[node] = build(games, Arrays.copyOf(above, aboveCount));
+        return node;
+    }
+
+    /**
+     * Sorts games by one end of their range.
+     *
+     * @param ordinals the games.
+     * @param games    the catalog.
+     * @param byHighEnd true to sort by high end, highest first, false to sort by low
+     *                  end, lowest first.
+     * @return the sorted ordinals.
+     */
+    private int[] sortBy(int[] ordinals, GameCatalog games, boolean byHighEnd) {
+        Comparator<Integer> order = byHighEnd
+                ? Comparator.comparingDouble((Integer i) -> -span.high(games.get(i)))
+                : Comparator.comparingDouble((Integer i) -> span.low(games.get(i)));
+        return Arrays.stream(ordinals).boxed().sorted(order).mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Finds the games whose range contains a value.
+     *
+     * @param value  the value.
+     * @param result the selection to add the games to.
+     */
+    void stab(double value, BitSet result) {
+        int node = root;
+        while (node >= 0) {
+            if (value < centers[node]) {
+                for (int i = start[node]; i < end[node] && lows[i] <= value; i++) {
+                    set(byLow[i], result);
+                }
+                node = left[node];
+            } else if (value > centers[node]) {
+                for (int i = start[node]; i < end[node] && highs[i] >= value; i++) {
+                    set(byHigh[i], result);
+                }
+                node = right[node];
+            } else {
+                for (int i = start[node]; i < end[node]; i++) {
+                    set(byLow[i], result);
+                }
+                break;
+            }
+        }
+        for (int i = 0; i < added.length; i++) {
+            if (addedLows[i] <= value && value <= addedHighs[i]) {
+                result.set(added[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds a game found in the tree to a selection, unless it has changed since.
+     *
+     * @param ordinal the game.
+     * @param result  the selection.
+     */
+    private void set(int ordinal, BitSet result) {
+        if (!stale.get(ordinal)) {
+            result.set(ordinal);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A ranking of games by a weighted sum of numeric columns, such as
+ * {@code rating*2 - difficulty + 0.1*year}.
+ *
+ * Each term is a number, a numeric column, or a product (or quotient by numbers)
+ * of numbers and at most one column, so the score is always linear in the
+ * columns. A column can appear in several terms, and its weights add up.
+ *
+ * The highest scoring games are found with the threshold algorithm: the sorted
+ * ColumnIndex of each column in the score is read from its best end (highest
+ * values for positive weights, lowest for negative ones), one game from each in
+ * turn, and each game seen is scored in full. The values last read from every
+ * column give the best score any game not seen yet could have, so the search
+ * stops as soon as the k best games seen all beat it, usually long before every
+ * game has been looked at.
+ */
+final class LinearScore {
+    /** Selections up to this many times k are scored in full rather than searched. */
+    private static final int SCAN_FACTOR = 32;
+
+    /** The weight of each column in the score. */
+    private final Map<GameData, Double> weights;
+    /** The part of the score that does not depend on the game. */
+    private final double constant;
+
+    /**
+     * Creates a score.
+     *
+     * @param weights  the weight of each column.
+     * @param constant the part that does not depend on the game.
+     */
+    private LinearScore(Map<GameData, Double> weights, double constant) {
+        this.weights = weights;
+        this.constant = constant;
+    }
+
+    /**
+     * Parses a score expression. Spaces are ignored, and columns are named as in
+     * filters, ignoring case.
+     *
+     * @param expression the expression, such as {@code rating*2-difficulty}.
+     * @return the score.
+     * @throws IllegalArgumentException if the expression is empty, names a column
+     *                                  that is not numeric, multiplies or divides
+     *                                  by a column, or has a number that cannot be
+     *                                  read.
+     */
+    static LinearScore parse(String expression) {
+        String text = expression == null ? "" : expression.replaceAll("\\s", "");
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("Empty score");
+        }
+        Map<GameData, Double> weights = new EnumMap<>(GameData.class);
+        double constant = 0;
+        int start = 0;
+        for (int i = 1; i <= text.length(); i++) {
+            if (i == text.length() || ((text.charAt(i) == '+' || text.charAt(i) == '-')
+                    && "*/".indexOf(text.charAt(i - 1)) < 0 && !isExponent(text, i))) {
+                GameData[] column = new GameData[1];
+                double weight = parseTerm(text.substring(start, i), column);
+                if (column[0] == null) {
+                    constant += weight;
+                } else {
+                    weights.merge(column[0], weight, Double::sum);
+                }
+                start = i;
+            }
+        }
+        weights.values().removeIf(weight -> weight == 0);
+        return new LinearScore(weights, constant);
+    }
+
+    /**
+     * Checks whether the sign at a position is the sign of an exponent, as in
+     * {@code 1e-3}, rather than the start of a new term.
+     *
+     * @param text the expression, without spaces.
+     * @param sign the position of the sign.
+     * @return true if the sign follows an {@code e} that ends a number.
+     */
+    private static boolean isExponent(String text, int sign) {
+        if (sign < 2 || Character.toLowerCase(text.charAt(sign - 1)) != 'e') {
+            return false;
+        }
+        int start = sign - 1;
+        while (start > 0 && (Character.isDigit(text.charAt(start - 1))
+                || text.charAt(start - 1) == '.')) {
+            start--;
+        }
+        return start < sign - 1 && (start == 0 || "+-*/".indexOf(text.charAt(start - 1)) >= 0);
+    }
+
+    /**
+     * Parses one term of a score.
+     *
+     * @param term   the term, with its sign (each factor may have a sign).
+     * @param column set to the column of the term, left null for a number.
+     * @return the weight of the column, or the number.
+     * @throws IllegalArgumentException if the term is not valid.
+     */
+    private static double parseTerm(String term, GameData[] column) {
+        double weight = 1;
+        boolean divide = false;
+        int start = 0;
+        for (int i = 0; i <= term.length(); i++) {
+            if (i < term.length() && term.charAt(i) != '*' && term.charAt(i) != '/') {
+                continue;
+            }
+            String factor = term.substring(start, i);
+            if (factor.startsWith("+") || factor.startsWith("-")) {
+                weight = factor.startsWith("-") ? -weight : weight;
+                factor = factor.substring(1);
+            }
+            if (factor.isEmpty()) {
+                throw new IllegalArgumentException("Invalid score term: " + term);
+            }
+            if (Character.isDigit(factor.charAt(0)) || factor.charAt(0) == '.') {
+                double number = Double.parseDouble(factor);
+                weight = divide ? weight / number : weight * number;
+            } else {
+                GameData named = GameData.fromString(factor);
+                if (!FilterClause.isNumericColumn(named) || divide || column[0] != null) {
+                    throw new IllegalArgumentException("Score is not linear in " + factor);
+                }
+                column[0] = named;
+            }
+            if (i < term.length()) {
+                divide = term.charAt(i) == '/';
+            }
+            start = i + 1;
+        }
+        return weight;
+    }
+
+    /**
+     * Scores a game.
+     *
+     * @param game the game.
+     * @return its score.
+     */
+    double score(BoardGame game) {
+        double score = constant;
+        for (Map.Entry<GameData, Double> weight : weights.entrySet()) {
+            score += weight.getValue() * game.getNumericValue(weight.getKey());
+        }
+        return score;
+    }
+
+    /**
+     * Orders games by score, highest first, and by name between equal scores.
+     *
+     * @return the order.
+     */
+    Comparator<BoardGame> order() {
+        return Comparator.comparingDouble(this::score).reversed().thenComparing(
+                GameCatalog.BY_NAME);
+    }
+
+    /**
+     * Finds the highest scoring games of a selection.
+     *
+     * @param games     the catalog.
+     * @param selection the games to choose from.
+     * @param k         the most games to return.
+     * @return the games, highest score first.
+     */
+    List<BoardGame> top(GameCatalog games, BitSet selection, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // worst of the best so far on top
+        Comparator<Scored> worstFirst = Comparator.<Scored>comparingDouble(s -> s.score)
+                .thenComparing((a, b) -> GameCatalog.BY_NAME.compare(b.game, a.game));
+        PriorityQueue<Scored> best = new PriorityQueue<>(worstFirst);
+        if (weights.isEmpty() || selection.cardinality() <= (long) k * SCAN_FACTOR) {
+            for (int i = selection.nextSetBit(0); i >= 0; i = selection.nextSetBit(i + 1)) {
+                offer(best, k, games.get(i), worstFirst);
+            }
+        } else {
+            threshold(games, selection, k, best, worstFirst);
+        }
+        List<BoardGame> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().game);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Runs the threshold algorithm over the column indexes.
+     *
+     * @param games      the catalog.
+     * @param selection  the games to choose from.
+     * @param k          the most games to keep.
+     * @param best       the best so far, worst on top.
+     * @param worstFirst the order of best.
+     */
+    private void threshold(GameCatalog games, BitSet selection, int k, PriorityQueue<Scored> best,
+            Comparator<Scored> worstFirst) {
+        List<GameData> columns = new ArrayList<>(weights.keySet());
+        ColumnIndex[] indexes = new ColumnIndex[columns.size()];
+        double[] columnWeights = new double[columns.size()];
+        double[] last = new double[columns.size()];
+        for (int c = 0; c < indexes.length; c++) {
+            indexes[c] = games.index(columns.get(c));
+            columnWeights[c] = weights.get(columns.get(c));
+        }
+        BitSet seen = new BitSet(games.size());
+        int size = indexes[0].size();
+        for (int read = 0; read < size; read++) {
+            for (int c = 0; c < indexes.length; c++) {
+                int position = columnWeights[c] > 0 ? size - 1 - read : read;
+                int ordinal = indexes[c].ordinalAt(position);
+                last[c] = indexes[c].valueAt(position);
+                if (!seen.get(ordinal)) {
+                    seen.set(ordinal);
+                    if (selection.get(ordinal)) {
+                        offer(best, k, games.get(ordinal), worstFirst);
+                    }
+                }
+            }
+            double bound = constant;
+            for (int c = 0; c < indexes.length; c++) {
+                bound += columnWeights[c] * last[c];
+            }
+            if (best.size() == k && best.peek().score > bound) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keeps a game if it is among the k best so far.
+     *
+     * @param best       the best so far, worst on top.
+     * @param k          the most games to keep.
+     * @param game       the game.
+     * @param worstFirst the order of best.
+     */
+    private void offer(PriorityQueue<Scored> best, int k, BoardGame game,
+            Comparator<Scored> worstFirst) {
+        Scored scored = new Scored(game, score(game));
+        if (best.size() < k) {
+            best.add(scored);
+        } else if (worstFirst.compare(scored, best.peek()) > 0) {
+            best.poll();
+            best.add(scored);
+        }
+    }
+
+    /**
+     * A game with its score.
+     */
+    private static final class Scored {
+        /** The game. */
+        private final BoardGame game;
+        /** Its score. */
+        private final double score;
+
+        /**
+         * Creates a scored game.
+         *
+         * @param game  the game.
+         * @param score its score.
+         */
+        private Scored(BoardGame game, double score) {
+            this.game = game;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package student;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The catalog of games, shared by any number of Planner sessions, that can be
+ * changed while they are in use.
+ *
+ * Each change builds a new version of the catalog and then publishes it, so
+ * queries that are already running keep working over the version they started
+ * with and are never blocked. Planners notice the new version on their next call,
+ * and only re-check the games that changed against their filters.
+ *
+ * Games can be changed one at a time (add, update, retire), in batches (upsert)
+ * or by reloading the whole collection. Changes are made one after another, but
+ * reading the catalog never waits for a change.
+ */
+public final class LiveCatalog {
+    /** The latest version of the catalog. */
+    private volatile GameCatalog current;
+
+    /**
+     * Creates a catalog of games.
+     *
+     * @param games the games in the catalog.
+     */
+    public LiveCatalog(Collection<BoardGame> games) {
+        this.current = new GameCatalog(games);
+    }
+
+    /** @return The latest version of the catalog. */
+    GameCatalog current() {
+        return current;
+    }
+
+    /** @return The version number of the catalog, starting at 0 and going up by one per change. */
+    public long getVersion() {
+        return current.version();
+    }
+
+    /** @return The number of games in the catalog. */
+    public int count() {
+        return current.count();
+    }
+
+    /**
+     * Replaces the catalog with a newly loaded collection, applying only the games
+     * inserted, updated and deleted (by objectid) since the current version.
+     *
+     * @param games the newly loaded collection.
+     * @return the changes applied, empty if the collection is the same.
+     */
+    public synchronized CatalogChanges reload(Collection<BoardGame> games) {
+        CatalogChanges changes = CatalogChanges.between(current, games);
+        if (!changes.isEmpty()) {
+            publish(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Adds or updates a batch of games in one new version, such as a batch of rows
+     * from an ingest stream. Games are matched as for reload, but the games not in
+     * the batch are kept.
+     *
+     * @param games the new and updated games, at most one version of each.
+     * @return the changes applied, empty if every game was already in the catalog.
+     */
+    public synchronized CatalogChanges upsert(Collection<BoardGame> games) {
+        CatalogChanges changes = CatalogChanges.upserts(current, games);
+        if (!changes.isEmpty()) {
+            publish(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Adds a new game to the catalog.
+     *
+     * @param game the game to add.
+     * @return the version of the catalog with the game.
+     * @throws IllegalArgumentException if the catalog already has the game (same
+     *                                  objectid and name).
+     */
+    public synchronized long add(BoardGame game) {
+        int ordinal = current.find(game);
+        if (ordinal >= 0 && current.get(ordinal).sameName(game)) {
+            throw new IllegalArgumentException("Game already in the catalog: " + game.getName());
+        }
+        return publish(new CatalogChanges(List.of(game), List.of(), new int[0], List.of(),
+                new int[0]));
+    }
+
+    /**
+     * Replaces a game in the catalog with a new version of it, with the same
+     * objectid (and the same name, if several games share the objectid).
+     *
+     * @param game the new version of the game.
+     * @return the version of the catalog with the new version of the game.
+     * @throws IllegalArgumentException if the game is not in the catalog.
+     */
+    public synchronized long update(BoardGame game) {
+        int ordinal = locate(game);
+        if (current.get(ordinal).sameValues(game)) {
+            return current.version();
+        }
+        return publish(new CatalogChanges(List.of(), List.of(game), new int[] {ordinal},
+                List.of(), new int[0]));
+    }
+
+    /**
+     * Removes a game from the catalog. Planners drop it from their results on their
+     * next call.
+     *
+     * @param game the game to remove, matched as for update.
+     * @return the version of the catalog without the game.
+     * @throws IllegalArgumentException if the game is not in the catalog.
+     */
+    public synchronized long retire(BoardGame game) {
+        int ordinal = locate(game);
+        return publish(new CatalogChanges(List.of(), List.of(), new int[0],
+                List.of(current.get(ordinal)), new int[] {ordinal}));
+    }
+
+    /**
+     * Finds the ordinal of a game in the current version.
+     *
+     * @param game the game to look for.
+     * @return the ordinal of the game.
+     * @throws IllegalArgumentException if the game is not in the catalog.
+     */
+    private int locate(BoardGame game) {
+        int ordinal = current.find(game);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Game not in the catalog: " + game.getName());
+        }
+        return ordinal;
+    }
+
+    /**
+     * Builds the next version with a change, and publishes it.
+     *
+     * @param changes the change, computed against the current version.
+     * @return the new version number.
+     */
+    private long publish(CatalogChanges changes) {
+        current = current.apply(changes);
+        return current.version();
+    }
+}
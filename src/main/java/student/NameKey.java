@@ -0,0 +1,70 @@
+package student;
+
+import java.text.Normalizer;
+
+/**
+ * Builds the keys game names are compared and sorted by.
+ *
+ * A key is the name normalized (NFC, so accented letters compare the same however
+ * they were typed) and case folded one character at a time, the same way
+ * {@link String#CASE_INSENSITIVE_ORDER} compares characters. Comparing two keys
+ * with plain String methods then gives the same answer as comparing the names
+ * ignoring case, without building lowercase copies of them each time.
+ *
+ * The first characters of a key are also packed into a long, which decides most
+ * comparisons with a single number comparison.
+ */
+final class NameKey {
+    /** Number of characters packed into a prefix. */
+    private static final int PREFIX_CHARS = Long.SIZE / Character.SIZE;
+
+    /** private constructor to prevent instantiation. */
+    private NameKey() {
+    }
+
+    /**
+     * Builds the key of a name.
+     *
+     * @param name the name.
+     * @return the normalized, case folded name.
+     */
+    static String fold(String name) {
+        char[] chars = Normalizer.normalize(name, Normalizer.Form.NFC).toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Packs the first characters of a key into a long, so that comparing prefixes
+     * as unsigned numbers orders them like the keys.
+     *
+     * @param key the key.
+     * @return the prefix of the key.
+     */
+    static long prefix(String key) {
+        long prefix = 0;
+        for (int i = 0; i < PREFIX_CHARS; i++) {
+            prefix = (prefix << Character.SIZE) | (i < key.length() ? key.charAt(i) : 0);
+        }
+        return prefix;
+    }
+
+    /**
+     * Compares two keys, with their prefixes.
+     *
+     * @param key         the first key.
+     * @param prefix      the prefix of the first key.
+     * @param otherKey    the second key.
+     * @param otherPrefix the prefix of the second key.
+     * @return a negative number, zero or a positive number as the first key sorts
+     *         before, the same as, or after the second.
+     */
+    static int compare(String key, long prefix, String otherKey, long otherPrefix) {
+        if (prefix != otherPrefix) {
+            return Long.compareUnsigned(prefix, otherPrefix);
+        }
+        return key.compareTo(otherKey);
+    }
+}
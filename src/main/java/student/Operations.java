@@ -40,7 +40,12 @@ public enum Operations {
     EQUALS("=="), NOT_EQUALS("!="), GREATER_THAN(">"), LESS_THAN("<"), GREATER_THAN_EQUALS(
             ">="),
     /** Operations to use. */
-    LESS_THAN_EQUALS("<="), CONTAINS("~=");
+    LESS_THAN_EQUALS("<="), CONTAINS("~="),
+    /**
+     * Range and set operations on numeric columns, such as year in 2010..2020 or
+     * minPlayers in {1,2}. Both use the in keyword, the value decides which.
+     */
+    BETWEEN(".."), IN("in");
 
     /** The operator. */
     private final String operator;
@@ -99,6 +104,10 @@ public enum Operations {
             return Operations.NOT_EQUALS;
         } else if (str.contains("~=")) {
             return Operations.CONTAINS;
+        } else if (str.contains("..")) {
+            return Operations.BETWEEN;
+        } else if (str.contains("{")) {
+            return Operations.IN;
         } else {
             return null;
         }
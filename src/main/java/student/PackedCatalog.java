@@ -0,0 +1,533 @@
+package student;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * A compact, read only copy of a set of games, for holding catalogs in memory at a
+ * fraction of the size of BoardGame objects.
+ *
+ * Games are stored in name order, one row each, and column by column. Each numeric
+ * column is stored as the difference from its smallest value, bit packed in as few
+ * bits as its range needs (players usually fit in 4 bits, years in 12). Ratings
+ * and difficulty are stored as fixed point numbers with as few decimals as keep
+ * every value exact, and as raw doubles if none does. Names are front coded: in
+ * blocks of NAME_BLOCK names, each name only stores what differs from the one
+ * before it.
+ *
+ * Filters are evaluated on the packed values: a numeric comparison is turned into
+ * a range of packed codes once, and then each row is only a few shifts and two
+ * comparisons, without building the game. Name filters decode each block of names
+ * once, in order. Games are only built when read.
+ *
+ * It is a store of its own: the versions of a GameCatalog still hold BoardGame
+ * objects (sharing the unchanged ones between versions), not packed rows.
+ */
+public final class PackedCatalog {
+    /** Number of names in a front coded block. */
+    private static final int NAME_BLOCK = 16;
+    /** The most decimals tried when storing a column as fixed point. */
+    private static final int MAX_DECIMALS = 6;
+
+    /** The number of games. */
+    private final int size;
+    /** The packed numeric columns. */
+    private final Map<GameData, Column> columns = new EnumMap<>(GameData.class);
+    /** The front coded names, in name order. */
+    private final byte[] names;
+    /** Where each block of names starts in names. */
+    private final int[] blocks;
+
+    /**
+     * Packs a set of games.
+     *
+     * @param games the games.
+     */
+    public PackedCatalog(Collection<BoardGame> games) {
+        BoardGame[] sorted = games.toArray(new BoardGame[0]);
+        Arrays.sort(sorted, GameCatalog.BY_NAME);
+        this.size = sorted.length;
+        for (GameData column : new GameData[] {GameData.ID, GameData.MIN_PLAYERS,
+            GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.RANK,
+            GameData.YEAR, GameData.RATING, GameData.DIFFICULTY}) {
+            double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = sorted[i].getNumericValue(column);
+            }
+            columns.put(column, new Column(values));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.blocks = new int[(size + NAME_BLOCK - 1) / NAME_BLOCK];
+        byte[] previous = new byte[0];
+        for (int i = 0; i < size; i++) {
+            byte[] name = sorted[i].getName().getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            if (i % NAME_BLOCK == 0) {
+                blocks[i / NAME_BLOCK] = out.size();
+            } else {
+                int most = Math.min(name.length, previous.length);
+                while (shared < most && name[shared] == previous[shared]) {
+                    shared++;
+                }
+            }
+            writeVarInt(out, shared);
+            writeVarInt(out, name.length - shared);
+            out.write(name, shared, name.length - shared);
+            previous = name;
+        }
+        this.names = out.toByteArray();
+    }
+
+    /**
+     * Writes a number in as few bytes as it needs, 7 bits to a byte.
+     *
+     * @param out   where to write it.
+     * @param value the number, not negative.
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while (value >= 0x80) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /** @return The number of games. */
+    public int size() {
+        return size;
+    }
+
+    /** @return Every row, as a selection. */
+    BitSet all() {
+        BitSet all = new BitSet(size);
+        all.set(0, size);
+        return all;
+    }
+
+    /**
+     * Gets a game, building it from the packed values.
+     *
+     * @param row the row of the game, its place in name order.
+     * @return the game.
+     */
+    public BoardGame get(int row) {
+        return new BoardGame(name(row), (int) value(row, GameData.ID),
+                (int) value(row, GameData.MIN_PLAYERS), (int) value(row, GameData.MAX_PLAYERS),
+                (int) value(row, GameData.MIN_TIME), (int) value(row, GameData.MAX_TIME),
+                value(row, GameData.DIFFICULTY), (int) value(row, GameData.RANK),
+                value(row, GameData.RATING), (int) value(row, GameData.YEAR));
+    }
+
+    /**
+     * Gets the name of a game, decoding its block up to it.
+     *
+     * @param row the row of the game.
+     * @return the name.
+     */
+    String name(int row) {
+        NameReader reader = new NameReader(row / NAME_BLOCK);
+        for (int i = row - row % NAME_BLOCK; i <= row; i++) {
+            reader.next();
+        }
+        return reader.name();
+    }
+
+    /**
+     * Finds the rows whose name passes a test. Each block with a candidate is
+     * decoded once, in order, rather than each name from the start of its block.
+     *
+     * @param test       the test of a name.
+     * @param candidates the rows to consider, never modified.
+     * @return the candidates whose name passes, as a new selection.
+     */
+    BitSet selectNames(Predicate<String> test, BitSet candidates) {
+        BitSet result = new BitSet(size);
+        int row = candidates.nextSetBit(0);
+        while (row >= 0 && row < size) {
+            int block = row / NAME_BLOCK;
+            int end = Math.min(size, (block + 1) * NAME_BLOCK);
+            NameReader reader = new NameReader(block);
+            for (int i = block * NAME_BLOCK; i <= row; i++) {
+                reader.next();
+            }
+            while (row >= 0 && row < end) {
+                if (test.test(reader.name())) {
+                    result.set(row);
+                }
+                int next = candidates.nextSetBit(row + 1);
+                if (next >= 0 && next < end) {
+                    for (int i = row + 1; i <= next; i++) {
+                        reader.next();
+                    }
+                }
+                row = next;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads a number written by writeVarInt.
+     *
+     * @param at where it starts in names.
+     * @return the number, and where the next value starts.
+     */
+    private int[] readVarInt(int at) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = names[at++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return new int[] {value, at};
+    }
+
+    /**
+     * Gets the value of a numeric column of a game.
+     *
+     * @param row    the row of the game.
+     * @param column the column.
+     * @return the value.
+     * @throws IllegalArgumentException if the column is not numeric.
+     */
+    double value(int row, GameData column) {
+        return column(column).value(row);
+    }
+
+    /**
+     * Checks if a column is packed. Extended columns are not kept, and read as
+     * they are for games built with no extended columns.
+     *
+     * @param column the column.
+     * @return true if the column is one of the packed numeric columns.
+     */
+    boolean isPacked(GameData column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * Finds the rows with a column value in a range, comparing packed codes.
+     *
+     * @param column        the numeric column.
+     * @param low           low end of the range.
+     * @param lowInclusive  whether the low end is part of the range.
+     * @param high          high end of the range.
+     * @param highInclusive whether the high end is part of the range.
+     * @param candidates    the rows to consider, never modified.
+     * @return the candidates in the range, as a new selection.
+     */
+    BitSet select(GameData column, double low, boolean lowInclusive, double high,
+            boolean highInclusive, BitSet candidates) {
+        return column(column).select(low, lowInclusive, high, highInclusive, candidates);
+    }
+
+    /**
+     * Gets a packed column.
+     *
+     * @param column the column.
+     * @return the packed column.
+     * @throws IllegalArgumentException if the column is not numeric.
+     */
+    private Column column(GameData column) {
+        Column packed = columns.get(column);
+        if (packed == null) {
+            throw new IllegalArgumentException("Invalid numeric column: " + column);
+        }
+        return packed;
+    }
+
+    /**
+     * Filters the games, evaluating the filter on the packed values.
+     *
+     * @param filter the filter, as for IPlanner#filter.
+     * @return the matching games, in name order, built as they are read.
+     */
+    public Stream<BoardGame> filter(String filter) {
+        BitSet rows = FilterParser.parse(filter == null ? "" : filter).evaluate(this, all());
+        return rows.stream().mapToObj(this::get);
+    }
+
+    /**
+     * Estimates the memory used by the packed games.
+     *
+     * @return the size of the packed data, in bytes.
+     */
+    public long sizeInBytes() {
+        long bytes = names.length + (long) blocks.length * Integer.BYTES;
+        for (Column column : columns.values()) {
+            bytes += (long) column.bits.length * Long.BYTES;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decodes the names of a block, one after the other.
+     */
+    private final class NameReader {
+        /** Where the next name starts in names. */
+        private int at;
+        /** The bytes of the current name, with room to spare. */
+        private byte[] name = new byte[32];
+        /** The number of bytes of the current name. */
+        private int length;
+
+        /**
+         * Starts reading a block.
+         *
+         * @param block the block.
+         */
+        private NameReader(int block) {
+            this.at = blocks[block];
+        }
+
+        /** Moves on to the next name, which keeps the start the two share. */
+        private void next() {
+            int[] read = readVarInt(at);
+            int shared = read[0];
+            read = readVarInt(read[1]);
+            int suffix = read[0];
+            at = read[1];
+            if (shared + suffix > name.length) {
+                name = Arrays.copyOf(name, Math.max(name.length * 2, shared + suffix));
+            }
+            System.arraycopy(names, at, name, shared, suffix);
+            at += suffix;
+            length = shared + suffix;
+        }
+
+        /** @return The current name. */
+        private String name() {
+            return new String(name, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * One numeric column, bit packed.
+     *
+     * A value v is stored as the code round(v * scale) - offset, in width bits. A
+     * scale of 0 means the raw bits of the double are stored instead.
+     */
+    private static final class Column {
+        /** Multiplier making every value a whole number, 0 for raw doubles. */
+        private final double scale;
+        /** The smallest scaled value, subtracted from each. */
+        private final long offset;
+        /** Bits per value. */
+        private final int width;
+        /** The largest code. */
+        private final long maxCode;
+        /** The packed codes. */
+        private final long[] bits;
+
+        /**
+         * Packs a column.
+         *
+         * @param values the value of each row.
+         */
+        private Column(double[] values) {
+            this.scale = scaleFor(values);
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            long[] scaled = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                scaled[i] = scale == 0 ? Double.doubleToLongBits(values[i])
+                        : Math.round(values[i] * scale);
+                min = Math.min(min, scaled[i]);
+                max = Math.max(max, scaled[i]);
+            }
+            this.offset = scale == 0 || values.length == 0 ? 0 : min;
+            this.width = scale == 0 ? Long.SIZE
+                    : values.length == 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(max - min);
+            this.maxCode = width == Long.SIZE ? -1L : (1L << width) - 1;
+            long totalBits = (long) values.length * width;
+            this.bits = new long[(int) ((totalBits + Long.SIZE - 1) / Long.SIZE)];
+            for (int i = 0; i < values.length; i++) {
+                set(i, scaled[i] - offset);
+            }
+        }
+
+        /**
+         * Finds the smallest power of ten that makes every value a whole number
+         * that converts back exactly.
+         *
+         * @param values the values.
+         * @return the scale, or 0 if no scale up to MAX_DECIMALS decimals is exact.
+         */
+        private static double scaleFor(double[] values) {
+            double scale = 1;
+            for (int decimals = 0; decimals <= MAX_DECIMALS; decimals++, scale *= 10) {
+                boolean exact = true;
+                for (int i = 0; i < values.length && exact; i++) {
+                    double scaled = values[i] * scale;
+                    exact = Math.abs(scaled) < 1L << 52 && Math.round(scaled) / scale == values[i];
+                }
+                if (exact) {
+                    return scale;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Writes a code.
+         *
+         * @param row  the row.
+         * @param code the code.
+         */
+        private void set(int row, long code) {
+            if (width == 0) {
+                return;
+            }
+            long bit = (long) row * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            bits[word] |= code << shift;
+            if (shift + width > Long.SIZE) {
+                bits[word + 1] |= code >>> (Long.SIZE - shift);
+            }
+        }
+
+        /**
+         * Reads a code.
+         *
+         * @param row the row.
+         * @return the code.
+         */
+        private long code(int row) {
+            if (width == 0) {
+                return 0;
+            }
+            long bit = (long) row * width;
+            int word = (int) (bit >>> 6);
+            int shift = (int) (bit & 63);
+            long code = bits[word] >>> shift;
+            if (shift + width > Long.SIZE) {
+                code |= bits[word + 1] << (Long.SIZE - shift);
+            }
+            return code & maxCode;
+        }
+
+        /**
+         * Converts a code back to its value.
+         *
+         * @param code the code.
+         * @return the value.
+         */
+        private double decode(long code) {
+            return scale == 0 ? Double.longBitsToDouble(code) : (code + offset) / scale;
+        }
+
+        /**
+         * Reads a value.
+         *
+         * @param row the row.
+         * @return the value.
+         */
+        private double value(int row) {
+            return decode(code(row));
+        }
+
+        /**
+         * Finds the rows in a range of values.
+         *
+         * @param low           low end of the range.
+         * @param lowInclusive  whether the low end is part of the range.
+         * @param high          high end of the range.
+         * @param highInclusive whether the high end is part of the range.
+         * @param candidates    the rows to consider, never modified.
+         * @return the candidates in the range, as a new selection.
+         */
+        private BitSet select(double low, boolean lowInclusive, double high,
+                boolean highInclusive, BitSet candidates) {
+            BitSet result = new BitSet(candidates.length());
+            if (scale == 0) {
+                for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                    double value = value(i);
+                    if ((value > low || (lowInclusive && value == low))
+                            && (value < high || (highInclusive && value == high))) {
+                        result.set(i);
+                    }
+                }
+                return result;
+            }
+            // codes are ordered like their values, so the range is a range of codes
+            long from = firstCode(low, lowInclusive);
+            long to = lastCode(high, highInclusive);
+            if (from > to) {
+                return result;
+            }
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                long code = code(i);
+                if (code >= from && code <= to) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Finds the first code at or above (or just above) a value.
+         *
+         * @param low       the value.
+         * @param inclusive whether a code equal to the value counts.
+         * @return the code, maxCode + 1 if there is none.
+         */
+        private long firstCode(double low, boolean inclusive) {
+            double guess = Math.ceil(low * scale) - offset;
+            long code = guess <= 0 ? 0 : guess > maxCode ? maxCode + 1 : (long) guess;
+            while (code > 0 && above(decode(code - 1), low, inclusive)) {
+                code--;
+            }
+            while (code <= maxCode && !above(decode(code), low, inclusive)) {
+                code++;
+            }
+            return code;
+        }
+
+        /**
+         * Finds the last code at or below (or just below) a value.
+         *
+         * @param high      the value.
+         * @param inclusive whether a code equal to the value counts.
+         * @return the code, -1 if there is none.
+         */
+        private long lastCode(double high, boolean inclusive) {
+            double guess = Math.floor(high * scale) - offset;
+            long code = guess < 0 ? -1 : guess >= maxCode ? maxCode : (long) guess;
+            while (code < maxCode && above(high, decode(code + 1), inclusive)) {
+                code++;
+            }
+            while (code >= 0 && !above(high, decode(code), inclusive)) {
+                code--;
+            }
+            return code;
+        }
+
+        /**
+         * Compares two values.
+         *
+         * @param value     the value.
+         * @param bound     the bound.
+         * @param inclusive whether equal counts.
+         * @return true if value is above (or equal to) bound.
+         */
+        private static boolean above(double value, double bound, boolean inclusive) {
+            return value > bound || (inclusive && value == bound);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PackedCatalog{games=" + size + ", bytes=" + sizeInBytes() + "}";
+    }
+}
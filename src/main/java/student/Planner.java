@@ -1,18 +1,65 @@
 package student;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The Planner class filters and sorts board games based on user-defined criteria.
+ *
+ * The current filter is a selection over the GameCatalog (a BitSet of game
+ * ordinals), so filters are evaluated as set algebra over selections (see
+ * FilterExpression).
+ *
+ * In lazy mode, progressive filters are not evaluated when they are added. They
+ * are kept as one composed filter over the last evaluated selection, and only
+ * evaluated when results are read. Results in name order are then produced as
+ * they are found, so reading only a page of them (limit) only tests as many games
+ * as needed; reading them all builds the selection, as evaluating would. Any
+ * other order evaluates the composed filter once, as a single selection. Lazy
+ * mode only pays off when results are read a page at a time, as filters are
+ * tested game by game rather than with the catalog's indexes.
+ *
+ * Every filter (and reset) can be undone and redone. Selections are never changed
+ * once built, so a step in the history is just a reference to the selection and
+ * filters before it, and undo or redo swaps references in constant time. In lazy
+ * mode consecutive steps share the same selection.
+ *
+ * The catalog can change while the planner is in use (see LiveCatalog). At the
+ * start of each call the planner moves to the latest version, checking only the
+ * games that changed since its selection was built against the filters applied
+ * since the last reset. A planner is one session, and is not meant to be shared
+ * between threads.
  */
 public class Planner implements IPlanner {
 
-    /** The original set of board games. */
-    private final Set<BoardGame> games;
-    /** The current filtered set of board games. */
-    private Set<BoardGame> curGames;
+    /** The catalog of games, which may change. */
+    private final LiveCatalog catalog;
+    /** Whether filters are only evaluated when results are read. */
+    private final boolean lazy;
+    /** Steps that can be undone, most recent first. */
+    private final Deque<Step> undoSteps = new ArrayDeque<>();
+    /** Steps that can be redone, most recently undone first. */
+    private final Deque<Step> redoSteps = new ArrayDeque<>();
+    /** The version of the catalog curGames is over. */
+    private GameCatalog games;
+    /** The current filtered selection of board games, before any pending filters. */
+    private BitSet curGames;
+    /** Filters evaluated into curGames since the last reset, never modified. */
+    private List<FilterExpression> applied = List.of();
+    /** Filters added since curGames was last evaluated (lazy mode only), never modified. */
+    private List<FilterExpression> pending = List.of();
 
     /**
      * Creates a Planner with a given set of board games.
@@ -20,8 +67,30 @@ public class Planner implements IPlanner {
      * @param games The set of available board games.
      */
     public Planner(Set<BoardGame> games) {
-        this.games = new HashSet<>(games);
-        this.curGames = new HashSet<>(games);
+        this(games, false);
+    }
+
+    /**
+     * Creates a Planner with a given set of board games.
+     *
+     * @param games The set of available board games.
+     * @param lazy  True to only evaluate progressive filters when results are read.
+     */
+    public Planner(Set<BoardGame> games, boolean lazy) {
+        this(new LiveCatalog(games), lazy);
+    }
+
+    /**
+     * Creates a Planner over a catalog that may change while it is in use.
+     *
+     * @param catalog The catalog of games, possibly shared with other planners.
+     * @param lazy    True to only evaluate progressive filters when results are read.
+     */
+    public Planner(LiveCatalog catalog, boolean lazy) {
+        this.catalog = catalog;
+        this.lazy = lazy;
+        this.games = catalog.current();
+        this.curGames = games.all();
     }
 
     @Override
@@ -36,133 +105,212 @@ public class Planner implements IPlanner {
 
     @Override
     public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
-        Stream<BoardGame> filteredStream = curGames.stream();
+        sync();
+        if (filter != null && !filter.isEmpty()) {
+            FilterExpression expression = FilterParser.parse(filter);
+            saveStep();
+            if (lazy) {
+                pending = append(pending, List.of(expression));
+            } else {
+                // Update curGames to reflect filtered results
+                curGames = expression.evaluate(games, curGames);
+                applied = append(applied, List.of(expression));
+            }
+        }
 
-        // Return sorted games if no filter is provided
-        if (filter == null || filter.isEmpty()) {
-            return applySorting(filteredStream, sortOn, ascending);
+        if (sortOn == GameData.NAME) {
+            // the catalog keeps a name order, nothing to sort
+            if (pending.isEmpty()) {
+                return games.stream(curGames, ascending);
+            }
+            return streamPending(ascending);
         }
+        evaluatePending();
+        return applySorting(games.stream(curGames, true), sortOn, ascending);
+    }
 
-        // Apply multiple filters
-        List<String> filters = List.of(filter.split(","));
-        for (String singleFilter : filters) {
-            filteredStream = applySingleFilter(filteredStream, singleFilter.trim());
+    /**
+     * Ranks the filtered games with the threshold algorithm over the column
+     * indexes (see LinearScore), so only the top of each column in the score is
+     * usually read.
+     *
+     * @param filter The filter to apply to the board games.
+     * @param score  The score to rank the games by.
+     * @param k      The most games to return.
+     * @return The highest scoring games, highest score first.
+     */
+    @Override
+    public Stream<BoardGame> rank(String filter, String score, int k) {
+        LinearScore ranking = LinearScore.parse(score);
+        filter(filter);
+        evaluatePending();
+        return ranking.top(games, curGames, k).stream();
+    }
+
+    @Override
+    public Stream<BoardGame> similar(String name, int k) {
+        sync();
+        evaluatePending();
+        int ordinal = games.findByName(name);
+        if (ordinal < 0) {
+            throw new IllegalArgumentException("Game not found: " + name);
         }
+        GameCatalog catalog = games;
+        return Arrays.stream(catalog.similarity().nearest(ordinal, k, curGames))
+                .mapToObj(catalog::get);
+    }
 
-        // Update curGames to reflect filtered results
-        curGames = filteredStream.collect(Collectors.toSet());
-        return applySorting(curGames.stream(), sortOn, ascending);
+    @Override
+    public Stream<BoardGame> search(String query, int k) {
+        sync();
+        evaluatePending();
+        GameCatalog catalog = games;
+        return Arrays.stream(catalog.text().search(query, k, curGames)).mapToObj(catalog::get);
     }
 
     @Override
     public void reset() {
-        curGames = new HashSet<>(games);
+        sync();
+        saveStep();
+        curGames = games.all();
+        applied = List.of();
+        pending = List.of();
+    }
+
+    @Override
+    public boolean undo() {
+        return restoreStep(undoSteps, redoSteps);
+    }
+
+    @Override
+    public boolean redo() {
+        return restoreStep(redoSteps, undoSteps);
     }
 
     /**
-     * Applies a single filter condition.
-     *
-     * @param stream The stream of games to filter.
-     * @param filter The filter condition.
-     * @return The filtered stream of games.
+     * Saves the current selection as a step that can be undone, before it changes.
      */
-    private Stream<BoardGame> applySingleFilter(Stream<BoardGame> stream, String filter) {
-        Operations operator = Operations.getOperatorFromStr(filter);
-        if (operator == null) {
-            return stream;
-        }
+    private void saveStep() {
+        undoSteps.push(new Step(this));
+        redoSteps.clear();
+    }
 
-        String[] parts = filter.split(operator.getOperator());
-        if (parts.length != 2) {
-            return stream;
+    /**
+     * Goes back (or forward) to a saved step.
+     *
+     * @param from the steps to take the step from.
+     * @param to   the steps to save the current selection to.
+     * @return true if there was a step to go to.
+     */
+    private boolean restoreStep(Deque<Step> from, Deque<Step> to) {
+        Step step = from.poll();
+        if (step == null) {
+            return false;
         }
+        to.push(new Step(this));
+        games = step.games;
+        curGames = step.selection;
+        applied = step.applied;
+        pending = step.pending;
+        sync(); // the step may be over an older version of the catalog
+        return true;
+    }
 
-        String field = parts[0].trim();
-        String value = parts[1].trim();
-
-        GameData column;
-        try {
-            column = GameData.fromString(field);
-        } catch (IllegalArgumentException e) {
-            return stream;
+    /**
+     * Moves curGames to the latest version of the catalog, if it changed.
+     *
+     * Games that were added, updated or removed since are dropped from the
+     * selection, and the ones still in the catalog are put back if they match the
+     * filters applied since the last reset. If the version is too old to know what
+     * changed, the applied filters are evaluated again over the whole catalog.
+     */
+    private void sync() {
+        GameCatalog latest = catalog.current();
+        if (latest == games) {
+            return;
         }
-
-        if (isNumericColumn(column)) {
-            return applyNumericFilter(stream, column, operator, value);
+        FilterExpression filters = FilterExpression.and(applied);
+        BitSet changed = latest.changedSince(games.version());
+        if (changed == null) {
+            curGames = filters.evaluate(latest, latest.all());
         } else {
-            return applyStringFilter(stream, column, operator, value);
+            BitSet updated = (BitSet) curGames.clone();
+            updated.andNot(changed);
+            for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+                BoardGame game = latest.get(i);
+                if (game != null && filters.test(game)) {
+                    updated.set(i);
+                }
+            }
+            curGames = updated;
         }
+        games = latest;
     }
 
     /**
-     * Checks if the field is numeric.
+     * Streams the games matching the pending filters in name order, testing them
+     * one by one as they are read. If the stream is read to the end, the games found
+     * become curGames, so the next call starts from them rather than testing the
+     * same filters again.
      *
-     * @param column The field to check.
-     * @return True if the field is numeric, otherwise false.
+     * @param ascending true for ascending name order, false for descending.
+     * @return the games matching the pending filters.
      */
-    private boolean isNumericColumn(GameData column) {
-        return switch (column) {
-            case RATING, DIFFICULTY, RANK, MIN_PLAYERS, MAX_PLAYERS, MIN_TIME, MAX_TIME, YEAR -> true;
-            default -> false;
+    private Stream<BoardGame> streamPending(boolean ascending) {
+        GameCatalog catalog = games;
+        BitSet from = curGames;
+        List<FilterExpression> filters = pending;
+        FilterExpression composed = FilterExpression.and(filters);
+        BitSet found = new BitSet(catalog.size());
+        PrimitiveIterator.OfInt ordinals = catalog.ordinals(from, ascending).iterator();
+        Spliterator<BoardGame> results = new Spliterators.AbstractSpliterator<BoardGame>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super BoardGame> action) {
+                while (ordinals.hasNext()) {
+                    int ordinal = ordinals.nextInt();
+                    BoardGame game = catalog.get(ordinal);
+                    if (composed.test(game)) {
+                        found.set(ordinal);
+                        action.accept(game);
+                        return true;
+                    }
+                }
+                // only if the planner has not moved on since the stream was made
+                if (games == catalog && curGames == from && pending == filters) {
+                    curGames = found;
+                    applied = append(applied, filters);
+                    pending = List.of();
+                }
+                return false;
+            }
         };
+        return StreamSupport.stream(results, false);
     }
 
     /**
-     * Applies a numeric filter condition.
-     *
-     * @param stream The stream of games to filter.
-     * @param column The field to filter on.
-     * @param operator The comparison operator.
-     * @param value The value to compare.
-     * @return The filtered stream of games.
+     * Evaluates the pending filters (if any) into curGames, all at once.
      */
-    private Stream<BoardGame> applyNumericFilter(Stream<BoardGame> stream, GameData column,
-                                                 Operations operator, String value) {
-        double numericValue;
-        try {
-            numericValue = Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return stream;
+    private void evaluatePending() {
+        if (!pending.isEmpty()) {
+            curGames = FilterExpression.and(pending).evaluate(games, curGames);
+            applied = append(applied, pending);
+            pending = List.of();
         }
-
-        return stream.filter(game -> {
-            double gameValue = game.getNumericValue(column);
-            return switch (operator) {
-                case EQUALS -> gameValue == numericValue;
-                case NOT_EQUALS -> gameValue != numericValue;
-                case GREATER_THAN -> gameValue > numericValue;
-                case LESS_THAN -> gameValue < numericValue;
-                case GREATER_THAN_EQUALS -> gameValue >= numericValue;
-                case LESS_THAN_EQUALS -> gameValue <= numericValue;
-                default -> true;
-            };
-        });
     }
 
     /**
-     * Applies a string filter condition.
+     * Appends filters to a list of filters, without changing it.
      *
-     * @param stream The stream of games to filter.
-     * @param column The field to filter on.
-     * @param operator The comparison operator.
-     * @param value The value to compare.
-     * @return The filtered stream of games.
+     * @param filters the list of filters.
+     * @param more    the filters to add.
+     * @return a new list with both.
      */
-    private Stream<BoardGame> applyStringFilter(Stream<BoardGame> stream, GameData column,
-                                                Operations operator, String value) {
-        return stream.filter(game -> {
-            String gameValue = game.getStringValue(column);
-            return switch (operator) {
-                case EQUALS -> gameValue.equalsIgnoreCase(value);
-                case NOT_EQUALS -> !gameValue.equalsIgnoreCase(value);
-                case GREATER_THAN -> gameValue.compareToIgnoreCase(value) > 0;
-                case LESS_THAN -> gameValue.compareToIgnoreCase(value) < 0;
-                case GREATER_THAN_EQUALS -> gameValue.compareToIgnoreCase(value) >= 0;
-                case LESS_THAN_EQUALS -> gameValue.compareToIgnoreCase(value) <= 0;
-                case CONTAINS -> gameValue.toLowerCase().contains(value.toLowerCase());
-                default -> true;
-            };
-        });
+    private static List<FilterExpression> append(List<FilterExpression> filters,
+            List<FilterExpression> more) {
+        List<FilterExpression> added = new ArrayList<>(filters);
+        added.addAll(more);
+        return List.copyOf(added);
     }
 
     /**
@@ -175,9 +323,23 @@ public class Planner implements IPlanner {
      */
     private Stream<BoardGame> applySorting(Stream<BoardGame> stream, GameData sortOn,
                                            boolean ascending) {
-        Comparator<BoardGame> comparator = switch (sortOn) {
-            case NAME -> Comparator.comparing(game -> game.getName().toLowerCase(),
-                    String.CASE_INSENSITIVE_ORDER);
+        Comparator<BoardGame> comparator = comparator(sortOn);
+
+        if (comparator != null) {
+            return ascending ? stream.sorted(comparator) : stream.sorted(comparator.reversed());
+        }
+        return stream;
+    }
+
+    /**
+     * Gets the order of games for a sort field.
+     *
+     * @param sortOn The field to sort on.
+     * @return The ascending order, or null if the field is not sortable.
+     */
+    static Comparator<BoardGame> comparator(GameData sortOn) {
+        return switch (sortOn) {
+            case NAME -> GameCatalog.BY_NAME;
             case MAX_PLAYERS -> Comparator.comparingInt(BoardGame::getMaxPlayers);
             case MIN_PLAYERS -> Comparator.comparingInt(BoardGame::getMinPlayers);
             case MAX_TIME -> Comparator.comparingInt(BoardGame::getMaxPlayTime);
@@ -185,12 +347,58 @@ public class Planner implements IPlanner {
             case RANK -> Comparator.comparingInt(BoardGame::getRank);
             case DIFFICULTY -> Comparator.comparingDouble(BoardGame::getDifficulty);
             case YEAR -> Comparator.comparingInt(BoardGame::getYearPublished);
+            case BEST_PLAYERS, MIN_AGE, OWNED, GEEK_RATING ->
+                    Comparator.comparingDouble(game -> game.getNumericValue(sortOn));
+            case LANGUAGE, ORIGINAL_NAME, COMMENT ->
+                    Comparator.comparing(game -> NameKey.fold(game.getStringValue(sortOn)));
             default -> null;
         };
+    }
 
-        if (comparator != null) {
-            return ascending ? stream.sorted(comparator) : stream.sorted(comparator.reversed());
+    /**
+     * Gets the order a planner returns games in.
+     *
+     * Games are sorted on the sort field, and equal values stay in name order.
+     * Fields that cannot be sorted on come back in name order.
+     *
+     * @param sortOn    The field to sort on.
+     * @param ascending True for ascending order, false for descending.
+     * @return The order of the results.
+     */
+    static Comparator<BoardGame> resultOrder(GameData sortOn, boolean ascending) {
+        Comparator<BoardGame> key = comparator(sortOn);
+        if (sortOn == GameData.NAME) {
+            return ascending ? GameCatalog.BY_NAME : GameCatalog.BY_NAME.reversed();
+        }
+        if (key == null) {
+            return GameCatalog.BY_NAME;
+        }
+        return (ascending ? key : key.reversed()).thenComparing(GameCatalog.BY_NAME);
+    }
+
+    /**
+     * A selection in the filter history.
+     */
+    private static final class Step {
+        /** The version of the catalog the selection is over. */
+        private final GameCatalog games;
+        /** The evaluated selection. */
+        private final BitSet selection;
+        /** The filters evaluated into the selection since the last reset. */
+        private final List<FilterExpression> applied;
+        /** The filters still to apply to it. */
+        private final List<FilterExpression> pending;
+
+        /**
+         * Creates a step from the current state of a planner.
+         *
+         * @param planner the planner.
+         */
+        private Step(Planner planner) {
+            this.games = planner.games;
+            this.selection = planner.curGames;
+            this.applied = planner.applied;
+            this.pending = planner.pending;
         }
-        return stream;
     }
 }
@@ -0,0 +1,140 @@
+package student;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The messages a ClusterPlanner and its PlannerWorkers exchange.
+ *
+ * Each message is a command name followed by its arguments, written with
+ * DataOutputStream, and answered before the next one is sent:
+ * <ul>
+ * <li>filter (filter, sort field, ascending, page size) - answered with the first
+ * page of results.</li>
+ * <li>next (page size) - answered with the next page of the last filter.</li>
+ * <li>reset, undo, redo - answered with a boolean (true for reset).</li>
+ * </ul>
+ * A page is the number of games, the games, and whether there are more. A game
+ * is its ten base fields followed by its extended columns (see ExtendedColumns),
+ * so results can be sorted and shown on any column.
+ */
+final class PlannerProtocol {
+    /** Command to filter and return the first page. */
+    static final String FILTER = "filter";
+    /** Command to return the next page. */
+    static final String NEXT = "next";
+    /** Command to reset the filters. */
+    static final String RESET = "reset";
+    /** Command to undo a filter. */
+    static final String UNDO = "undo";
+    /** Command to redo a filter. */
+    static final String REDO = "redo";
+
+    /** private constructor to prevent instantiation. */
+    private PlannerProtocol() {
+    }
+
+    /**
+     * Writes a page of results, taking up to a page of games from the results.
+     *
+     * @param out      the stream to write to.
+     * @param results  the results, advanced past the games written.
+     * @param pageSize the most games to write.
+     * @throws IOException if the stream cannot be written.
+     */
+    static void writePage(DataOutputStream out, Iterator<BoardGame> results, int pageSize)
+            throws IOException {
+        List<BoardGame> page = new ArrayList<>();
+        while (page.size() < pageSize && results.hasNext()) {
+            page.add(results.next());
+        }
+        out.writeInt(page.size());
+        for (BoardGame game : page) {
+            writeGame(out, game);
+        }
+        out.writeBoolean(results.hasNext());
+    }
+
+    /**
+     * Reads a page of results.
+     *
+     * @param in   the stream to read from.
+     * @param page the list to add the games to.
+     * @return true if there are more results after the page.
+     * @throws IOException if the stream cannot be read.
+     */
+    static boolean readPage(DataInputStream in, List<BoardGame> page) throws IOException {
+        int count = in.readInt();
+        List<GameData> columns = ExtendedColumns.columns();
+        Object[] values = new Object[columns.size()];
+        for (int c = 0; c < values.length; c++) {
+            values[c] = ExtendedColumns.isNumeric(columns.get(c)) ? new double[count]
+                    : new String[count];
+        }
+        BoardGame[] games = new BoardGame[count];
+        for (int i = 0; i < count; i++) {
+            games[i] = readGame(in);
+            for (int c = 0; c < values.length; c++) {
+                if (values[c] instanceof double[] numbers) {
+                    numbers[i] = in.readDouble();
+                } else {
+                    ((String[]) values[c])[i] = in.readUTF();
+                }
+            }
+        }
+        // the games of a page share the extended columns read with them
+        ExtendedColumns extended = new ExtendedColumns(count, values);
+        for (int i = 0; i < count; i++) {
+            BoardGame game = games[i];
+            page.add(new BoardGame(game.getName(), game.getId(), game.getMinPlayers(),
+                    game.getMaxPlayers(), game.getMinPlayTime(), game.getMaxPlayTime(),
+                    game.getDifficulty(), game.getRank(), game.getRating(),
+                    game.getYearPublished(), extended, i));
+        }
+        return in.readBoolean();
+    }
+
+    /**
+     * Writes a game.
+     *
+     * @param out  the stream to write to.
+     * @param game the game.
+     * @throws IOException if the stream cannot be written.
+     */
+    private static void writeGame(DataOutputStream out, BoardGame game) throws IOException {
+        out.writeUTF(game.getName());
+        out.writeInt(game.getId());
+        out.writeInt(game.getMinPlayers());
+        out.writeInt(game.getMaxPlayers());
+        out.writeInt(game.getMinPlayTime());
+        out.writeInt(game.getMaxPlayTime());
+        out.writeDouble(game.getDifficulty());
+        out.writeInt(game.getRank());
+        out.writeDouble(game.getRating());
+        out.writeInt(game.getYearPublished());
+        for (GameData column : ExtendedColumns.columns()) {
+            if (ExtendedColumns.isNumeric(column)) {
+                out.writeDouble(game.getNumericValue(column));
+            } else {
+                out.writeUTF(game.getStringValue(column));
+            }
+        }
+    }
+
+    /**
+     * Reads the base fields of a game.
+     *
+     * @param in the stream to read from.
+     * @return the game, without extended columns.
+     * @throws IOException if the stream cannot be read.
+     */
+    private static BoardGame readGame(DataInputStream in) throws IOException {
+        return new BoardGame(in.readUTF(), in.readInt(), in.readInt(), in.readInt(),
+                in.readInt(), in.readInt(), in.readDouble(), in.readInt(), in.readDouble(),
+                in.readInt());
+    }
+}
@@ -0,0 +1,178 @@
+package student;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Serves planner sessions over TCP, for a ClusterPlanner to query.
+ *
+ * A worker usually owns one part of the catalog. Each connection gets its own
+ * planner session, so the filters of one coordinator do not affect another, and
+ * the session ends when the connection closes. Results are sent a page at a time
+ * (see PlannerProtocol), so a coordinator that only reads the first few games
+ * does not pay for the rest.
+ *
+ * The protocol has no authentication: anyone who can reach the port can open a
+ * session and read the catalog. Workers listen on the loopback address unless
+ * given another address to listen on.
+ */
+public final class PlannerWorker implements Closeable {
+    /** Accepts connections. */
+    private final ServerSocket server;
+    /** Creates a planner session for each connection. */
+    private final Supplier<IPlanner> sessions;
+    /** Open connections, closed with the worker. */
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts a worker listening on the loopback address.
+     *
+     * @param port     the port to listen on, 0 for any free port.
+     * @param sessions creates a planner session for each connection.
+     * @throws IOException if the port cannot be listened on.
+     */
+    public PlannerWorker(int port, Supplier<IPlanner> sessions) throws IOException {
+        this(new ServerSocket(port, 0, InetAddress.getLoopbackAddress()), sessions);
+    }
+
+    /**
+     * Starts a worker listening on an address, such as the wildcard address to
+     * serve other machines on a trusted network.
+     *
+     * @param address the address and port to listen on, port 0 for any free port.
+     * @param sessions creates a planner session for each connection.
+     * @throws IOException if the address cannot be listened on.
+     */
+    public PlannerWorker(InetSocketAddress address, Supplier<IPlanner> sessions)
+            throws IOException {
+        this(bind(address), sessions);
+    }
+
+    /**
+     * Opens a server socket on an address.
+     *
+     * @param address the address and port to listen on.
+     * @return the server socket.
+     * @throws IOException if the address cannot be listened on.
+     */
+    private static ServerSocket bind(InetSocketAddress address) throws IOException {
+        ServerSocket server = new ServerSocket();
+        try {
+            server.bind(address);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    /**
+     * Starts a worker on a server socket.
+     *
+     * @param server   the server socket to accept connections on.
+     * @param sessions creates a planner session for each connection.
+     */
+    public PlannerWorker(ServerSocket server, Supplier<IPlanner> sessions) {
+        this.server = server;
+        this.sessions = sessions;
+        Thread acceptor = new Thread(this::accept, "planner-worker-" + server.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /** @return The port the worker listens on. */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until closed, serving each on its own thread.
+     */
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread session = new Thread(() -> serve(socket), "planner-session");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    /**
+     * Serves the commands of one connection until it closes.
+     *
+     * @param socket the connection.
+     */
+    private void serve(Socket socket) {
+        IPlanner planner = sessions.get();
+        Iterator<BoardGame> results = Collections.emptyIterator();
+        try (socket;
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                String command = in.readUTF();
+                switch (command) {
+                    case PlannerProtocol.FILTER -> {
+                        String filter = in.readUTF();
+                        GameData sortOn = GameData.valueOf(in.readUTF());
+                        boolean ascending = in.readBoolean();
+                        int pageSize = in.readInt();
+                        results = planner.filter(filter, sortOn, ascending).iterator();
+                        PlannerProtocol.writePage(out, results, pageSize);
+                    }
+                    case PlannerProtocol.NEXT -> PlannerProtocol.writePage(out, results, in.readInt());
+                    case PlannerProtocol.RESET -> {
+                        planner.reset();
+                        out.writeBoolean(true);
+                    }
+                    case PlannerProtocol.UNDO -> out.writeBoolean(planner.undo());
+                    case PlannerProtocol.REDO -> out.writeBoolean(planner.redo());
+                    default -> throw new IOException("Unknown command: " + command);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // the coordinator closed the connection
+        } catch (IOException | RuntimeException e) {
+            if (!server.isClosed()) {
+                System.err.println("Error serving planner session: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Stops the worker, closing every connection.
+     *
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs many filter and sort queries together, in a single pass over the catalog.
+ *
+ * Running saved searches one at a time on a Planner means one scan of the
+ * catalog (and a reset) per search. A batch instead reads each game once, tests
+ * it against every query's filter, and adds it to the results of each query it
+ * matches. Queries with the same filter share its evaluation. Each query is then
+ * sorted on its own, and results come out in the same order as Planner would
+ * give them.
+ *
+ * Queries are independent: each is applied to the whole catalog, not on top of
+ * the ones before it.
+ */
+public final class QueryBatch {
+    /** The catalog the queries run over. */
+    private final LiveCatalog catalog;
+    /** The distinct filters, by their text. */
+    private final Map<String, Integer> filterIds = new HashMap<>();
+    /** The distinct filters, parsed. */
+    private final List<FilterExpression> filters = new ArrayList<>();
+    /** The filter of each query, as an index into filters. */
+    private final List<Integer> queryFilters = new ArrayList<>();
+    /** The sort field of each query. */
+    private final List<GameData> sorts = new ArrayList<>();
+    /** The direction of each query, true for ascending. */
+    private final List<Boolean> directions = new ArrayList<>();
+
+    /**
+     * Creates an empty batch over a set of games.
+     *
+     * @param games The set of available board games.
+     */
+    public QueryBatch(Collection<BoardGame> games) {
+        this(new LiveCatalog(games));
+    }
+
+    /**
+     * Creates an empty batch over a catalog, run over its latest version.
+     *
+     * @param catalog the catalog of games.
+     */
+    public QueryBatch(LiveCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Adds a query sorted by name in ascending order.
+     *
+     * @param filter the filter, as for IPlanner#filter.
+     * @return the number of the query, its position in the results.
+     */
+    public int add(String filter) {
+        return add(filter, GameData.NAME, true);
+    }
+
+    /**
+     * Adds a query.
+     *
+     * @param filter    the filter, as for IPlanner#filter.
+     * @param sortOn    the column to sort the results on.
+     * @param ascending whether to sort in ascending order.
+     * @return the number of the query, its position in the results.
+     */
+    public int add(String filter, GameData sortOn, boolean ascending) {
+        String text = filter == null ? "" : filter.strip();
+        Integer id = filterIds.get(text);
+        if (id == null) {
+            id = filters.size();
+            filterIds.put(text, id);
+            filters.add(FilterParser.parse(text));
+        }
+        queryFilters.add(id);
+        sorts.add(sortOn);
+        directions.add(ascending);
+        return queryFilters.size() - 1;
+    }
+
+    /** @return The number of queries in the batch. */
+    public int size() {
+        return queryFilters.size();
+    }
+
+    /**
+     * Runs every query in one pass over the catalog.
+     *
+     * @return the results of each query, in the order they were added.
+     */
+    public List<List<BoardGame>> run() {
+        GameCatalog games = catalog.current();
+        List<List<BoardGame>> matches = new ArrayList<>(filters.size());
+        for (int i = 0; i < filters.size(); i++) {
+            matches.add(new ArrayList<>());
+        }
+        FilterExpression[] tests = filters.toArray(new FilterExpression[0]);
+
+        // the one pass, in name order so results only need sorting on other fields
+        games.stream(games.all(), true).forEach(game -> {
+            for (int i = 0; i < tests.length; i++) {
+                if (tests[i].test(game)) {
+                    matches.get(i).add(game);
+                }
+            }
+        });
+
+        List<List<BoardGame>> results = new ArrayList<>(queryFilters.size());
+        for (int query = 0; query < queryFilters.size(); query++) {
+            List<BoardGame> result = new ArrayList<>(matches.get(queryFilters.get(query)));
+            GameData sortOn = sorts.get(query);
+            boolean ascending = directions.get(query);
+            if (sortOn == GameData.NAME) {
+                if (!ascending) {
+                    Collections.reverse(result);
+                }
+            } else if (Planner.comparator(sortOn) != null) {
+                Comparator<BoardGame> order = Planner.resultOrder(sortOn, ascending);
+                result.sort(order); // stable, so equal values stay in name order
+            }
+            results.add(Collections.unmodifiableList(result));
+        }
+        return Collections.unmodifiableList(results);
+    }
+}
@@ -0,0 +1,179 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A planner that splits the catalog into shards, one per core by default, and
+ * queries them all in parallel.
+ *
+ * Each shard is a Planner over its own part of the games, with its own column
+ * indexes, so shards are built, indexed and filtered independently without
+ * sharing any data. Each shard sorts its own results, and the sorted results are
+ * then merged (a k-way merge) into one sorted stream.
+ *
+ * Games are sorted the same way as a single Planner: by the sort field, then by
+ * name for equal values.
+ */
+public class ShardedPlanner implements IPlanner {
+    /** The shards, each a planner over part of the games. */
+    private final List<Planner> shards;
+
+    /**
+     * Creates a planner with one shard per available core.
+     *
+     * @param games The set of available board games.
+     */
+    public ShardedPlanner(Set<BoardGame> games) {
+        this(games, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a planner with a given number of shards.
+     *
+     * @param games  The set of available board games.
+     * @param shards The number of shards to split the games into.
+     * @throws IllegalArgumentException if the number of shards is not positive.
+     */
+    public ShardedPlanner(Set<BoardGame> games, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be positive: " + shards);
+        }
+        List<List<BoardGame>> parts = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            parts.add(new ArrayList<>(games.size() / shards + 1));
+        }
+        int next = 0;
+        for (BoardGame game : games) {
+            parts.get(next).add(game);
+            next = (next + 1) % shards;
+        }
+        this.shards = IntStream.range(0, shards).parallel()
+                .mapToObj(i -> new Planner(new LiveCatalog(parts.get(i)), false)).toList();
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter) {
+        return filter(filter, GameData.NAME, true);
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn) {
+        return filter(filter, sortOn, true);
+    }
+
+    @Override
+    public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
+        List<List<BoardGame>> results = shards.parallelStream()
+                .map(shard -> shard.filter(filter, sortOn, ascending).toList()).toList();
+
+        return merge(results.stream().map(List::iterator).toList(),
+                Planner.resultOrder(sortOn, ascending));
+    }
+
+    @Override
+    public void reset() {
+        shards.forEach(Planner::reset);
+    }
+
+    @Override
+    public boolean undo() {
+        boolean undone = false;
+        for (Planner shard : shards) {
+            undone |= shard.undo();
+        }
+        return undone;
+    }
+
+    @Override
+    public boolean redo() {
+        boolean redone = false;
+        for (Planner shard : shards) {
+            redone |= shard.redo();
+        }
+        return redone;
+    }
+
+    /**
+     * Merges sorted sources of games into one sorted stream. Each source is only
+     * read as far as the merged stream is.
+     *
+     * @param sorted the sources, each sorted in order.
+     * @param order  the order of the games.
+     * @return the games of every source, in order.
+     */
+    static Stream<BoardGame> merge(List<? extends Iterator<BoardGame>> sorted,
+            Comparator<BoardGame> order) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new MergeIterator(sorted, order), Spliterator.ORDERED | Spliterator.NONNULL),
+                false);
+    }
+
+    /**
+     * Walks sorted sources of games in order, taking the next game from whichever
+     * source has the smallest one.
+     */
+    private static final class MergeIterator implements Iterator<BoardGame> {
+        /** The sources, each sorted in order. */
+        private final List<? extends Iterator<BoardGame>> sorted;
+        /** The next game of each source, by source. */
+        private final BoardGame[] heads;
+        /** Sources with games left, by their next game. */
+        private final PriorityQueue<Integer> queue;
+
+        /**
+         * Creates an iterator over sorted sources.
+         *
+         * @param sorted the sources, each sorted in order.
+         * @param order  the order of the games.
+         */
+        private MergeIterator(List<? extends Iterator<BoardGame>> sorted,
+                Comparator<BoardGame> order) {
+            this.sorted = sorted;
+            this.heads = new BoardGame[sorted.size()];
+            this.queue = new PriorityQueue<>(Math.max(1, sorted.size()),
+                    (a, b) -> order.compare(heads[a], heads[b]));
+            for (int i = 0; i < sorted.size(); i++) {
+                advance(i);
+            }
+        }
+
+        /**
+         * Takes the next game of a source, if it has one, and queues the source.
+         *
+         * @param source the source.
+         */
+        private void advance(int source) {
+            if (sorted.get(source).hasNext()) {
+                heads[source] = sorted.get(source).next();
+                queue.add(source);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public BoardGame next() {
+            Integer source = queue.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            BoardGame game = heads[source];
+            advance(source);
+            return game;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package student;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A KD-tree over the games of one catalog version, for finding the games most
+ * like a given one.
+ *
+ * Each game is a point in a space of rating, difficulty, minimum and maximum
+ * players, minimum and maximum play time and year. Every feature is scaled so the
+ * middle 90% of the catalog spans 0 to 1, so one feature does not drown out the
+ * others (and a handful of ancient games do not squash every modern year
+ * together). Play times are compared on a log scale, as 30 minutes against 60
+ * matters more than 300 against 330.
+ *
+ * The tree is stored flat: the games of a subtree are a range of the order, with
+ * the splitting game in the middle, split on the feature with the widest spread.
+ *
+ * The index of the next catalog version is made with apply rather than built
+ * again: it shares the tree and the scaling, skips the games changed since the
+ * tree was built, and compares the current versions of those games one by one.
+ * Once more than 1/REBUILD of the catalog has changed, apply gives up and the
+ * next search builds the tree (and the scaling) anew.
+ */
+final class SimilarityIndex {
+    /** Number of features of a game. */
+    static final int FEATURES = 7;
+    /** Fraction of games below the value scaled to 0 (and above the one scaled to 1). */
+    private static final double TAIL = 0.05;
+    /** Selections up to this many times k are searched directly rather than through the tree. */
+    private static final int SCAN_FACTOR = 32;
+    /** Changes to more than 1/REBUILD of the catalog are built anew rather than applied. */
+    private static final int REBUILD = 8;
+
+    /** Ordinals of the games, in tree order. */
+    private final int[] order;
+    /** The scaled features of each game in tree order, FEATURES per game. */
+    private final double[] points;
+    /** The feature each subtree splits on, by the position of its middle game. */
+    private final byte[] axis;
+    /** The scaled features by ordinal, FEATURES per ordinal. */
+    private final double[] byOrdinal;
+    /** Value of each feature scaled to 0. */
+    private final double[] offset;
+    /** Range of each feature scaled to 1. */
+    private final double[] scale;
+    /** Ordinals changed since the tree was built, skipped when it is searched. */
+    private final BitSet stale;
+    /** The scaled features of the changed games still in the catalog, by ordinal. */
+    private final Map<Integer, double[]> changedPoints;
+
+    /**
+     * Builds the index for a catalog version.
+     *
+     * @param games the catalog.
+     */
+    SimilarityIndex(GameCatalog games) {
+        BitSet all = games.all();
+        this.order = all.stream().toArray();
+        int n = order.length;
+
+        double[][] raw = new double[FEATURES][n];
+        for (int i = 0; i < n; i++) {
+            double[] f = features(games.get(order[i]));
+            for (int d = 0; d < FEATURES; d++) {
+                raw[d][i] = f[d];
+            }
+        }
+        this.offset = new double[FEATURES];
+        this.scale = new double[FEATURES];
+        for (int d = 0; d < FEATURES; d++) {
+            double[] sorted = raw[d].clone();
+            Arrays.sort(sorted);
+            offset[d] = n == 0 ? 0 : sorted[(int) (TAIL * (n - 1))];
+            double high = n == 0 ? 1 : sorted[(int) ((1 - TAIL) * (n - 1))];
+            scale[d] = high > offset[d] ? high - offset[d] : 1;
+        }
+
+        this.byOrdinal = new double[games.size() * FEATURES];
+        for (int i = 0; i < n; i++) {
+            for (int d = 0; d < FEATURES; d++) {
+                byOrdinal[order[i] * FEATURES + d] = (raw[d][i] - offset[d]) / scale[d];
+            }
+        }
+        this.points = new double[n * FEATURES];
+        this.axis = new byte[n];
+        build(0, n);
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(byOrdinal, order[i] * FEATURES, points, i * FEATURES, FEATURES);
+        }
+        this.stale = new BitSet();
+        this.changedPoints = Map.of();
+    }
+
+    /**
+     * Creates the index of a later version of the catalog, sharing a tree.
+     *
+     * @param built         the index the tree was built for.
+     * @param stale         ordinals changed since the tree was built.
+     * @param changedPoints the scaled features of the changed games, by ordinal.
+     */
+    private SimilarityIndex(SimilarityIndex built, BitSet stale,
+            Map<Integer, double[]> changedPoints) {
+        this.order = built.order;
+        this.points = built.points;
+        this.axis = built.axis;
+        this.byOrdinal = built.byOrdinal;
+        this.offset = built.offset;
+        this.scale = built.scale;
+        this.stale = stale;
+        this.changedPoints = changedPoints;
+    }
+
+    /**
+     * Makes the index of the next version of the catalog, reading only the
+     * changed games.
+     *
+     * @param next    the next version of the catalog.
+     * @param changed the ordinals added, updated or removed.
+     * @return the index of the next version, or null if so much has changed that
+     *         it should be built anew.
+     */
+    SimilarityIndex apply(GameCatalog next, BitSet changed) {
+        BitSet nextStale = (BitSet) stale.clone();
+        nextStale.or(changed);
+        if ((long) nextStale.cardinality() * REBUILD > next.count()) {
+            return null;
+        }
+        Map<Integer, double[]> nextPoints = new HashMap<>(changedPoints);
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            BoardGame game = next.get(i);
+            if (game == null) {
+                nextPoints.remove(i);
+            } else {
+                double[] point = features(game);
+                for (int d = 0; d < FEATURES; d++) {
+                    point[d] = (point[d] - offset[d]) / scale[d];
+                }
+                nextPoints.put(i, point);
+            }
+        }
+        return new SimilarityIndex(this, nextStale, nextPoints);
+    }
+
+    /**
+     * Gets the scaled features of a game in this version.
+     *
+     * @param ordinal the ordinal of the game.
+     * @return the scaled features, null if the game is not indexed.
+     */
+    private double[] point(int ordinal) {
+        if (stale.get(ordinal)) {
+            return changedPoints.get(ordinal);
+        }
+        return ordinal * FEATURES < byOrdinal.length
+                ? Arrays.copyOfRange(byOrdinal, ordinal * FEATURES, (ordinal + 1) * FEATURES)
+                : null;
+    }
+
+    /**
+     * Gets the raw features of a game.
+     *
+     * @param game the game.
+     * @return its features, before scaling.
+     */
+    private static double[] features(BoardGame game) {
+        return new double[] {
+            game.getRating(),
+            game.getDifficulty(),
+            game.getMinPlayers(),
+            game.getMaxPlayers(),
+            Math.log1p(Math.max(0, game.getMinPlayTime())),
+            Math.log1p(Math.max(0, game.getMaxPlayTime())),
+            game.getYearPublished()
+        };
+    }
+
+    /**
+     * Arranges a range of the order into a subtree.
+     *
+     * @param from the first position of the range.
+     * @param to   the end of the range (exclusive).
+     */
+    private void build(int from, int to) {
+        if (to - from <= 1) {
+            return;
+        }
+        int split = widestFeature(from, to);
+        int mid = (from + to) >>> 1;
+        select(from, to, mid, split);
+        axis[mid] = (byte) split;
+        build(from, mid);
+        build(mid + 1, to);
+    }
+
+    /**
+     * Finds the feature with the widest spread over a range of the order.
+     *
+     * @param from the first position of the range.
+     * @param to   the end of the range (exclusive).
+     * @return the feature.
+     */
+    private int widestFeature(int from, int to) {
+        int widest = 0;
+        double widestSpread = -1;
+        for (int d = 0; d < FEATURES; d++) {
+            double low = Double.POSITIVE_INFINITY;
+            double high = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = byOrdinal[order[i] * FEATURES + d];
+                low = Math.min(low, value);
+                high = Math.max(high, value);
+            }
+            if (high - low > widestSpread) {
+                widestSpread = high - low;
+                widest = d;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Partially sorts a range of the order so the game at a position is the one
+     * that belongs there, with smaller values before it and larger ones after
+     * (quickselect).
+     *
+     * @param from    the first position of the range.
+     * @param to      the end of the range (exclusive).
+     * @param nth     the position to fill.
+     * @param feature the feature to order by.
+     */
+    private void select(int from, int to, int nth, int feature) {
+        int low = from;
+        int high = to - 1;
+        while (low < high) {
+            double pivot = value(order[(low + high) >>> 1], feature);
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (value(order[i], feature) < pivot) {
+                    i++;
+                }
+                while (value(order[j], feature) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (nth <= j) {
+                high = j;
+            } else if (nth >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets a scaled feature of a game.
+     *
+     * @param ordinal the ordinal of the game.
+     * @param feature the feature.
+     * @return the scaled value.
+     */
+    private double value(int ordinal, int feature) {
+        return byOrdinal[ordinal * FEATURES + feature];
+    }
+
+    /**
+     * Finds the games nearest to a game, out of a selection.
+     *
+     * @param ordinal    the ordinal of the game, never part of the result.
+     * @param k          the most games to find.
+     * @param candidates the games to choose from.
+     * @return the ordinals of the nearest games, nearest first.
+     */
+    int[] nearest(int ordinal, int k, BitSet candidates) {
+        double[] target = point(ordinal);
+        if (k <= 0 || target == null) {
+            return new int[0];
+        }
+        // furthest of the best so far on top; ties broken by ordinal for stable results
+        PriorityQueue<double[]> best = new PriorityQueue<>(k + 1, (a, b) -> a[0] != b[0]
+                ? Double.compare(b[0], a[0]) : Double.compare(b[1], a[1]));
+        if (candidates.cardinality() <= (long) k * SCAN_FACTOR) {
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (i == ordinal) {
+                    continue;
+                }
+                if (stale.get(i)) {
+                    double[] point = changedPoints.get(i);
+                    if (point != null) {
+                        offer(best, k, distance(target, point, 0), i);
+                    }
+                } else if (i * FEATURES < byOrdinal.length) {
+                    offer(best, k, distance(target, byOrdinal, i * FEATURES), i);
+                }
+            }
+        } else {
+            search(0, order.length, target, ordinal, k, candidates, best);
+            for (Map.Entry<Integer, double[]> game : changedPoints.entrySet()) {
+                if (game.getKey() != ordinal && candidates.get(game.getKey())) {
+                    offer(best, k, distance(target, game.getValue(), 0), game.getKey());
+                }
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) best.poll()[1];
+        }
+        return result;
+    }
+
+    /**
+     * Searches a subtree for games nearer than the best so far.
+     *
+     * @param from       the first position of the subtree.
+     * @param to         the end of the subtree (exclusive).
+     * @param target     the scaled features of the game.
+     * @param ordinal    the ordinal of the game.
+     * @param k          the most games to find.
+     * @param candidates the games to choose from.
+     * @param best       the best so far, furthest on top.
+     */
+    private void search(int from, int to, double[] target, int ordinal, int k,
+            BitSet candidates, PriorityQueue<double[]> best) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        int game = order[mid];
+        if (game != ordinal && candidates.get(game) && !stale.get(game)) {
+            offer(best, k, distance(target, points, mid * FEATURES), game);
+        }
+        if (to - from == 1) {
+            return;
+        }
+        int split = axis[mid];
+        double diff = target[split] - points[mid * FEATURES + split];
+        boolean left = diff < 0;
+        search(left ? from : mid + 1, left ? mid : to, target, ordinal, k, candidates, best);
+        if (best.size() < k || diff * diff <= best.peek()[0]) {
+            search(left ? mid + 1 : from, left ? to : mid, target, ordinal, k, candidates, best);
+        }
+    }
+
+    /**
+     * Computes the squared distance between two games.
+     *
+     * @param a the ordinal of the first game.
+     * @param b the ordinal of the second game.
+     * @return the squared distance.
+     */
+    double distance(int a, int b) {
+        return distance(point(a), point(b), 0);
+    }
+
+    /**
+     * Keeps a game if it is among the k nearest so far.
+     *
+     * @param best     the best so far, furthest on top.
+     * @param k        the most games to keep.
+     * @param distance the squared distance of the game.
+     * @param ordinal  the ordinal of the game.
+     */
+    private static void offer(PriorityQueue<double[]> best, int k, double distance, int ordinal) {
+        if (best.size() < k) {
+            best.add(new double[] {distance, ordinal});
+        } else if (distance < best.peek()[0]
+                || (distance == best.peek()[0] && ordinal < best.peek()[1])) {
+            best.poll();
+            best.add(new double[] {distance, ordinal});
+        }
+    }
+
+    /**
+     * Computes the squared distance between a point and a game.
+     *
+     * @param target the scaled features of the point.
+     * @param points the scaled features of the games.
+     * @param at     where the features of the game start.
+     * @return the squared distance.
+     */
+    private static double distance(double[] target, double[] points, int at) {
+        double sum = 0;
+        for (int d = 0; d < FEATURES; d++) {
+            double diff = target[d] - points[at + d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,63 @@
+package student;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A clause on the text of a game, such as {@code text~=farming}: the games whose
+ * name, original name, language dependence or comment has every word of the value
+ * (see TextIndex for how text is split into words).
+ *
+ * Unlike {@code name~=}, it matches whole words, and it is evaluated with the
+ * postings of the catalog's TextIndex rather than by reading every game. Other
+ * operators make the clause invalid, and like other invalid clauses it is
+ * ignored.
+ */
+final class TextClause implements FilterExpression {
+    /** The field name of the clause in filters. */
+    static final String FIELD = "text";
+
+    /** The words to match, as given. */
+    private final String query;
+    /** The words to match. */
+    private final List<String> words;
+
+    /**
+     * Creates a clause.
+     *
+     * @param query the words to match.
+     */
+    private TextClause(String query) {
+        this.query = query;
+        this.words = TextIndex.tokens(query);
+    }
+
+    /**
+     * Parses the operator and value of a text clause.
+     *
+     * @param operator the operator.
+     * @param value    the words to match.
+     * @return the clause, or {@link FilterExpression#ALL} if it is not valid or
+     *         has no words.
+     */
+    static FilterExpression parse(Operations operator, String value) {
+        TextClause clause = new TextClause(value);
+        if (operator != Operations.CONTAINS || clause.words.isEmpty()) {
+            return ALL;
+        }
+        return clause;
+    }
+
+    @Override
+    public boolean test(BoardGame game) {
+        Set<String> gameWords = new HashSet<>(TextIndex.words(game));
+        return gameWords.containsAll(words);
+    }
+
+    @Override
+    public BitSet evaluate(GameCatalog games, BitSet candidates) {
+        return games.text().matchAll(query, candidates);
+    }
+}
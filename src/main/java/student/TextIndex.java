@@ -0,0 +1,475 @@
+package student;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the text of the games of one catalog version, for free
+ * text search ranked by BM25.
+ *
+ * The text of a game is its name, original name (when it differs), language
+ * dependence and comment, case folded like names and split into words at
+ * anything that is not a letter or digit. Each word has a postings list of the
+ * games it appears in and how often, stored as varints: the gap from the previous
+ * ordinal, then the count, so most postings take two bytes.
+ *
+ * A search reads the postings of each word of the query once, adding its BM25
+ * weight to an accumulator per game, and keeps the k best games in a heap.
+ *
+ * The index of the next catalog version is made with apply rather than built
+ * again: the postings of the games changed since the index was built are kept
+ * apart, and the old postings of those games are skipped when a list is read.
+ * Only the changed games are split into words. Once more than 1/REBUILD of the
+ * catalog has changed, apply gives up and the next search builds the index anew.
+ */
+final class TextIndex {
+    /** BM25 term frequency saturation. */
+    private static final double K1 = 1.2;
+    /** BM25 document length normalization. */
+    private static final double B = 0.75;
+    /** The columns searched, besides the name. */
+    private static final GameData[] COLUMNS = {GameData.ORIGINAL_NAME, GameData.LANGUAGE,
+        GameData.COMMENT};
+    /** Changes to more than 1/REBUILD of the catalog are built anew rather than applied. */
+    private static final int REBUILD = 8;
+
+    /** The catalog version indexed. */
+    private final GameCatalog games;
+    /** The postings of each word, as built; shared by the versions applied since. */
+    private final Map<String, Postings> postings;
+    /** Ordinals changed since the postings were built, skipped when they are read. */
+    private final BitSet stale;
+    /** The number of stale ordinals in the postings of each word. */
+    private final Map<String, Integer> staleDocuments;
+    /** The postings of each word for the games changed since, in their current version. */
+    private final Map<String, Postings> added;
+    /** The number of words of each game, by ordinal. */
+    private final int[] lengths;
+    /** The number of words of every game. */
+    private final long total;
+    /** The average number of words of a game. */
+    private final double averageLength;
+
+    /**
+     * Builds the index for a catalog version.
+     *
+     * @param games the catalog.
+     */
+    TextIndex(GameCatalog games) {
+        this.games = games;
+        this.postings = new HashMap<>();
+        this.stale = new BitSet();
+        this.staleDocuments = Map.of();
+        this.added = Map.of();
+        this.lengths = new int[games.size()];
+        long words = 0;
+        BitSet all = games.all();
+        for (int i = all.nextSetBit(0); i >= 0; i = all.nextSetBit(i + 1)) {
+            Map<String, Integer> counts = counts(games.get(i));
+            // ordinals are visited in order, so each list gets increasing ordinals
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                postings.computeIfAbsent(count.getKey(), word -> new Postings())
+                        .add(i, count.getValue());
+            }
+            lengths[i] = length(counts);
+            words += lengths[i];
+        }
+        postings.values().forEach(Postings::trim);
+        this.total = words;
+        this.averageLength = games.count() == 0 ? 0 : (double) total / games.count();
+    }
+
+    /**
+     * Creates the index of a later version of the catalog.
+     *
+     * @param games          the catalog version indexed.
+     * @param postings       the postings as built.
+     * @param stale          ordinals changed since the postings were built.
+     * @param staleDocuments the number of stale ordinals in the postings of each word.
+     * @param added          the postings of the changed games.
+     * @param lengths        the number of words of each game.
+     * @param total          the number of words of every game.
+     */
+    private TextIndex(GameCatalog games, Map<String, Postings> postings, BitSet stale,
+            Map<String, Integer> staleDocuments, Map<String, Postings> added, int[] lengths,
+            long total) {
+        this.games = games;
+        this.postings = postings;
+        this.stale = stale;
+        this.staleDocuments = staleDocuments;
+        this.added = added;
+        this.lengths = lengths;
+        this.total = total;
+        this.averageLength = games.count() == 0 ? 0 : (double) total / games.count();
+    }
+
+    /**
+     * Makes the index of the next version of the catalog, splitting only the
+     * changed games into words.
+     *
+     * @param next    the next version of the catalog.
+     * @param changed the ordinals added, updated or removed.
+     * @return the index of the next version, or null if so much has changed that
+     *         it should be built anew.
+     */
+    TextIndex apply(GameCatalog next, BitSet changed) {
+        BitSet nextStale = (BitSet) stale.clone();
+        nextStale.or(changed);
+        if ((long) nextStale.cardinality() * REBUILD > next.count()) {
+            return null;
+        }
+        int[] nextLengths = Arrays.copyOf(lengths, next.size());
+        long nextTotal = total;
+        Map<String, Integer> nextStaleDocuments = new HashMap<>(staleDocuments);
+        Set<String> touched = new HashSet<>();
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            BoardGame before = i < games.size() ? games.get(i) : null;
+            if (before == null) {
+                continue;
+            }
+            Set<String> words = counts(before).keySet();
+            touched.addAll(words);
+            if (!stale.get(i)) { // still the version in the postings
+                words.forEach(word -> nextStaleDocuments.merge(word, 1, Integer::sum));
+            }
+            nextTotal -= lengths[i];
+            nextLengths[i] = 0;
+        }
+
+        Map<String, Postings> fresh = new HashMap<>();
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            BoardGame after = next.get(i);
+            if (after == null) {
+                continue;
+            }
+            Map<String, Integer> counts = counts(after);
+            for (Map.Entry<String, Integer> count : counts.entrySet()) {
+                fresh.computeIfAbsent(count.getKey(), word -> new Postings())
+                        .add(i, count.getValue());
+            }
+            touched.addAll(counts.keySet());
+            nextLengths[i] = length(counts);
+            nextTotal += nextLengths[i];
+        }
+
+        Map<String, Postings> nextAdded = new HashMap<>(added);
+        for (String word : touched) {
+            Postings merged = merge(added.get(word), changed, fresh.get(word));
+            if (merged == null) {
+                nextAdded.remove(word);
+            } else {
+                nextAdded.put(word, merged);
+            }
+        }
+        return new TextIndex(next, postings, nextStale, nextStaleDocuments, nextAdded,
+                nextLengths, nextTotal);
+    }
+
+    /**
+     * Merges the postings of games changed before with those of games changed now.
+     *
+     * @param before  the postings of games changed before, null if none.
+     * @param changed the games changed now, whose postings in before are dropped.
+     * @param now     the postings of games changed now, null if none.
+     * @return the merged postings, null if there are none.
+     */
+    private static Postings merge(Postings before, BitSet changed, Postings now) {
+        TreeMap<Integer, Integer> counts = new TreeMap<>();
+        if (before != null) {
+            before.forEach((ordinal, count) -> {
+                if (!changed.get(ordinal)) {
+                    counts.put(ordinal, count);
+                }
+            });
+        }
+        if (now != null) {
+            now.forEach(counts::put);
+        }
+        if (counts.isEmpty()) {
+            return null;
+        }
+        Postings merged = new Postings();
+        counts.forEach(merged::add);
+        merged.trim();
+        return merged;
+    }
+
+    /**
+     * Counts the words of a game.
+     *
+     * @param game the game.
+     * @return how many times each word appears.
+     */
+    private static Map<String, Integer> counts(BoardGame game) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : words(game)) {
+            counts.merge(word, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Adds up word counts.
+     *
+     * @param counts how many times each word appears.
+     * @return the number of words.
+     */
+    private static int length(Map<String, Integer> counts) {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Counts the games a word appears in.
+     *
+     * @param word the word.
+     * @return the number of games.
+     */
+    private int documents(String word) {
+        Postings list = postings.get(word);
+        Postings extra = added.get(word);
+        return (list == null ? 0 : list.documents - staleDocuments.getOrDefault(word, 0))
+                + (extra == null ? 0 : extra.documents);
+    }
+
+    /**
+     * Reads the postings of a word in this version, skipping stale ones.
+     *
+     * @param word    the word.
+     * @param visitor receives each posting.
+     */
+    private void forEach(String word, PostingVisitor visitor) {
+        Postings list = postings.get(word);
+        if (list != null) {
+            list.forEach((ordinal, count) -> {
+                if (!stale.get(ordinal)) {
+                    visitor.accept(ordinal, count);
+                }
+            });
+        }
+        Postings extra = added.get(word);
+        if (extra != null) {
+            extra.forEach(visitor);
+        }
+    }
+
+    /**
+     * Splits text into words, case folded.
+     *
+     * @param text the text.
+     * @return the words, in order.
+     */
+    static List<String> tokens(String text) {
+        List<String> words = new ArrayList<>();
+        String folded = NameKey.fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letter = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Gets the words of a game, from every column searched.
+     *
+     * @param game the game.
+     * @return the words, in order.
+     */
+    static List<String> words(BoardGame game) {
+        List<String> words = tokens(game.getName());
+        for (GameData column : COLUMNS) {
+            String text = game.getStringValue(column);
+            boolean sameName = column == GameData.ORIGINAL_NAME
+                    && NameKey.fold(text).equals(game.getSortName());
+            if (!sameName) {
+                words.addAll(tokens(text));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Finds the games that have every word of a query.
+     *
+     * @param query      the query.
+     * @param candidates the games to consider, never modified.
+     * @return the candidates with every word, as a new selection.
+     */
+    BitSet matchAll(String query, BitSet candidates) {
+        BitSet result = (BitSet) candidates.clone();
+        for (String word : new LinkedHashSet<>(tokens(query))) {
+            if (documents(word) == 0) {
+                return new BitSet();
+            }
+            BitSet has = new BitSet(games.size());
+            forEach(word, (ordinal, count) -> has.set(ordinal));
+            result.and(has);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the games best matching a query, by BM25.
+     *
+     * @param query      the query, as words.
+     * @param k          the most games to return.
+     * @param candidates the games to consider.
+     * @return the ordinals of the best matches, best first, equal scores in name
+     *         order. Games with none of the words are not returned.
+     */
+    int[] search(String query, int k, BitSet candidates) {
+        Set<String> words = new LinkedHashSet<>(tokens(query));
+        if (k <= 0 || words.isEmpty()) {
+            return new int[0];
+        }
+        double[] scores = new double[games.size()];
+        BitSet found = new BitSet(games.size());
+        double documents = games.count();
+        for (String word : words) {
+            int with = documents(word);
+            if (with == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (documents - with + 0.5) / (with + 0.5));
+            forEach(word, (ordinal, count) -> {
+                if (candidates.get(ordinal)) {
+                    double norm = K1 * (1 - B + B * lengths[ordinal] / averageLength);
+                    scores[ordinal] += idf * count * (K1 + 1) / (count + norm);
+                    found.set(ordinal);
+                }
+            });
+        }
+
+        // worst of the best so far on top
+        Comparator<Integer> worstFirst = Comparator.<Integer>comparingDouble(i -> scores[i])
+                .thenComparing(Comparator.comparingInt(games::nameRank).reversed());
+        PriorityQueue<Integer> best = new PriorityQueue<>(worstFirst);
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            if (best.size() < k) {
+                best.add(i);
+            } else if (worstFirst.compare(i, best.peek()) > 0) {
+                best.poll();
+                best.add(i);
+            }
+        }
+        int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll();
+        }
+        return result;
+    }
+
+    /**
+     * Receives the postings of a word, one game at a time.
+     */
+    @FunctionalInterface
+    private interface PostingVisitor {
+        /**
+         * Receives one posting.
+         *
+         * @param ordinal the game.
+         * @param count   how many times the word appears in it.
+         */
+        void accept(int ordinal, int count);
+    }
+
+    /**
+     * The games one word appears in, compressed.
+     */
+    private static final class Postings {
+        /** The varint coded gaps and counts. */
+        private byte[] data = new byte[4];
+        /** The number of bytes in use. */
+        private int length;
+        /** The number of games. */
+        private int documents;
+        /** The last ordinal added. */
+        private int last;
+
+        /**
+         * Adds a game, after every game added so far.
+         *
+         * @param ordinal the game.
+         * @param count   how many times the word appears in it.
+         */
+        private void add(int ordinal, int count) {
+            write(ordinal - last);
+            write(count);
+            last = ordinal;
+            documents++;
+        }
+
+        /**
+         * Writes a number in as few bytes as it needs, 7 bits to a byte.
+         *
+         * @param value the number, not negative.
+         */
+        private void write(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while (value >= 0x80) {
+                data[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        /** Drops the room left for more postings. */
+        private void trim() {
+            data = Arrays.copyOf(data, length);
+        }
+
+        /**
+         * Reads every posting, in ordinal order.
+         *
+         * @param visitor receives each posting.
+         */
+        private void forEach(PostingVisitor visitor) {
+            int at = 0;
+            int ordinal = 0;
+            int[] value = new int[1];
+            while (at < length) {
+                at = read(at, value);
+                ordinal += value[0];
+                at = read(at, value);
+                visitor.accept(ordinal, value[0]);
+            }
+        }
+
+        /**
+         * Reads a number written by write.
+         *
+         * @param at    where it starts.
+         * @param value set to the number.
+         * @return where the next number starts.
+         */
+        private int read(int at, int[] value) {
+            int result = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[at++];
+                result |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            value[0] = result;
+            return at;
+        }
+    }
+}
@@ -39,6 +39,137 @@ public class TestPlanner {
         assertEquals(1, filtered.size());
         assertEquals("Go", filtered.get(0).getName());
     }
+
+    @Test
+    public void testFilterAndOr() {
+        IPlanner planner = new Planner(games);
+        List<BoardGame> filtered = planner.filter("minPlayers==1 | maxPlayers==2, maxPlayTime<30").toList();
+        assertEquals(List.of("17 days", "Chess"), filtered.stream().map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testFilterGroupsAndNot() {
+        IPlanner planner = new Planner(games);
+        List<BoardGame> filtered = planner.filter("(minPlayers==1|maxPlayers==2),maxPlayTime<30").toList();
+        assertEquals(List.of("Chess"), filtered.stream().map(BoardGame::getName).toList());
+
+        planner.reset();
+        filtered = planner.filter("!(name~=go|minPlayers>=6)").toList();
+        assertEquals(List.of("17 days", "Chess"), filtered.stream().map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testFilterIgnoresInvalidClauses() {
+        IPlanner planner = new Planner(games);
+        assertEquals(8, planner.filter("bogus>1|(,)").count());
+        assertEquals(3, planner.filter("minPlayers>=6|nothing~=x").count());
+        assertEquals(3, planner.filter("!nothing~=x").count());
+    }
+
+    @Test
+    public void testFilterBetween() {
+        IPlanner planner = new Planner(games);
+        List<String> expected = List.of("17 days", "golang", "GoRami", "Tucano");
+        assertEquals(expected, planner.filter("year in 2002..2005").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(expected, planner.filter("yearin2002..2005").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(expected, planner.filter("year>=2002,year<=2005").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(2, planner.filter("year>2002,year<2005").count());
+    }
+
+    @Test
+    public void testFilterIn() {
+        IPlanner planner = new Planner(games);
+        List<String> expected = List.of("17 days", "GoRami", "Monopoly");
+        assertEquals(expected, planner.filter("minplayers in {1, 6}").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(expected, planner.filter("minplayersin{6,1}").map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(4, planner.filter("minplayers in {1,6} | year in 2000..2000").count());
+        planner.reset();
+        assertEquals(8, planner.filter("name in {1,6}").count());
+    }
+
+    @Test
+    public void testLazyMatchesEager() {
+        IPlanner eager = new Planner(games);
+        IPlanner lazy = new Planner(games, true);
+        String[] filters = {"name~=go", "minPlayers<=2", "maxPlayTime>20"};
+        for (String filter : filters) {
+            assertEquals(eager.filter(filter).toList(), lazy.filter(filter).toList());
+        }
+        assertEquals(eager.filter("", GameData.RANK, false).toList(),
+                lazy.filter("", GameData.RANK, false).toList());
+        assertEquals(eager.filter("", GameData.NAME, false).toList(),
+                lazy.filter("", GameData.NAME, false).toList());
+        assertEquals(List.of("Go", "Go Fish", "golang"),
+                lazy.filter("").map(BoardGame::getName).toList());
+    }
+
+    @Test
+    public void testLazyPage() {
+        IPlanner lazy = new Planner(games, true);
+        lazy.filter("minPlayers>=2");
+        List<BoardGame> page = lazy.filter("maxPlayers>=6").skip(1).limit(2).toList();
+        assertEquals(List.of("GoRami", "golang"),
+                page.stream().map(BoardGame::getName).sorted().toList());
+        lazy.reset();
+        assertEquals(8, lazy.filter("").count());
+    }
+
+    @Test
+    public void testLazyReadToEnd() {
+        IPlanner eager = new Planner(games);
+        IPlanner lazy = new Planner(games, true);
+        assertEquals(eager.filter("minPlayers>=2").toList(),
+                lazy.filter("minPlayers>=2").toList());
+        // a page leaves the filter pending, reading it all folds it in
+        assertEquals(1, lazy.filter("name~=go").limit(1).count());
+        assertEquals(eager.filter("name~=go").toList(), lazy.filter("").toList());
+        assertEquals(eager.filter("maxPlayers<=7").toList(),
+                lazy.filter("maxPlayers<=7").toList());
+        assertEquals(true, lazy.undo());
+        assertEquals(true, eager.undo());
+        assertEquals(eager.filter("").toList(), lazy.filter("").toList());
+    }
+
+    @Test
+    public void testUndoRedo() {
+        for (boolean lazy : new boolean[] {false, true}) {
+            IPlanner planner = new Planner(games, lazy);
+            assertEquals(false, planner.undo());
+            planner.filter("name~=go");
+            planner.filter("minPlayers==2");
+            assertEquals(3, planner.filter("").count());
+
+            assertEquals(true, planner.undo());
+            assertEquals(4, planner.filter("").count());
+            assertEquals(true, planner.undo());
+            assertEquals(8, planner.filter("").count());
+            assertEquals(false, planner.undo());
+
+            assertEquals(true, planner.redo());
+            assertEquals(4, planner.filter("", GameData.RANK).count());
+            planner.reset();
+            assertEquals(false, planner.redo());
+            assertEquals(true, planner.undo());
+            assertEquals(4, planner.filter("").count());
+            assertEquals(true, planner.redo());
+            assertEquals(8, planner.filter("").count());
+        }
+    }
+
+    @Test
+    public void testFilterIsProgressive() {
+        IPlanner planner = new Planner(games);
+        planner.filter("name~=go");
+        List<BoardGame> filtered = planner.filter("minPlayers==6|maxPlayers==5").toList();
+        assertEquals(List.of("Go", "GoRami"), filtered.stream().map(BoardGame::getName).toList());
+        planner.reset();
+        assertEquals(8, planner.filter("").count());
+    }
     
 
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the arena scheduler.
+ */
+public class ArenaSchedulerTest {
+
+    /**
+     * Checks that a schedule keeps to the rules, and that its score is right.
+     *
+     * @param schedule    the schedule.
+     * @param preferences the preferences it was made for.
+     * @param slotMinutes the length of a slot.
+     */
+    private static void assertValid(ArenaSchedule schedule,
+            Map<String, Map<String, Double>> preferences, int slotMinutes) {
+        Map<String, Set<String>> played = new HashMap<>();
+        for (int s = 0; s < schedule.getSlots(); s++) {
+            Set<String> seated = new HashSet<>();
+            for (int t = 0; t < schedule.getTables(); t++) {
+                BoardGame game = schedule.getGame(s, t);
+                List<String> players = schedule.getPlayers(s, t);
+                if (game == null) {
+                    assertTrue(players.isEmpty());
+                    continue;
+                }
+                assertTrue(players.size() >= game.getMinPlayers());
+                assertTrue(players.size() <= game.getMaxPlayers());
+                assertTrue(GameNightPlanner.playTime(game) <= slotMinutes);
+                for (String player : players) {
+                    assertTrue(seated.add(player), player + " seated twice");
+                    played.computeIfAbsent(player, p -> new HashSet<>()).add(game.getName());
+                }
+            }
+        }
+        double score = 0;
+        for (Map.Entry<String, Set<String>> player : played.entrySet()) {
+            for (String game : player.getValue()) {
+                for (Map.Entry<String, Double> want : preferences.get(player.getKey()).entrySet()) {
+                    if (want.getKey().equalsIgnoreCase(game)) {
+                        score += want.getValue();
+                    }
+                }
+            }
+        }
+        assertEquals(score, schedule.getScore(), 1e-6);
+    }
+
+    /**
+     * Tests that a small event gets its best schedule.
+     */
+    @Test
+    void smallEventIsOptimal() {
+        BoardGame duel = new BoardGame("Duel", 1, 2, 2, 30, 30, 2.0, 1, 7.0, 2020);
+        BoardGame party = new BoardGame("Party", 2, 3, 4, 20, 30, 1.0, 2, 6.0, 2019);
+        BoardGame epic = new BoardGame("Epic", 3, 2, 4, 60, 120, 4.0, 3, 8.0, 2018);
+        Map<String, Map<String, Double>> preferences = new LinkedHashMap<>();
+        for (int p = 0; p < 6; p++) {
+            preferences.put("player" + p, p < 2 ? Map.of("Duel", 5.0, "Epic", 9.0)
+                    : Map.of("party", 5.0, "Epic", 9.0));
+        }
+        ArenaSchedule schedule = new ArenaScheduler(List.of(duel, party, epic), 2, 1, 45)
+                .schedule(preferences, 200);
+        assertValid(schedule, preferences, 45);
+        assertEquals(30, schedule.getScore(), 1e-9);
+        assertTrue(schedule.getBenched(0, new ArrayList<>(preferences.keySet())).isEmpty());
+    }
+
+    /**
+     * Tests that a large event is scheduled within the rules.
+     */
+    @Test
+    void largeEventKeepsRules() {
+        List<BoardGame> games = GamesLoader.loadGamesFile("/collection.csv").stream()
+                .filter(game -> game.getMaxPlayers() >= 4 && game.getMaxPlayTime() > 0
+                        && game.getMaxPlayTime() <= 60)
+                .limit(40).toList();
+        Random random = new Random(7);
+        Map<String, Map<String, Double>> preferences = new LinkedHashMap<>();
+        for (int p = 0; p < 200; p++) {
+            Map<String, Double> wants = new HashMap<>();
+            for (int i = 0; i < 5; i++) {
+                wants.put(games.get(random.nextInt(games.size())).getName(),
+                        1.0 + random.nextInt(5));
+            }
+            preferences.put("player" + p, wants);
+        }
+        ArenaSchedule schedule = new ArenaScheduler(games, 60, 3, 60).schedule(preferences, 300);
+        assertValid(schedule, preferences, 60);
+        assertTrue(schedule.getScore() > 0);
+    }
+
+    /**
+     * Tests that invalid events are rejected.
+     */
+    @Test
+    void invalidEvents() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ArenaScheduler(List.of(), 0, 1, 30));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ArenaScheduler(List.of(), 1, 1, 30).schedule(Map.of(), 0));
+        ArenaSchedule empty = new ArenaScheduler(List.of(), 2, 2, 30)
+                .schedule(Map.of("solo", Map.of()), 10);
+        assertNull(empty.getGame(0, 0));
+        assertEquals(0, empty.getScore());
+    }
+}
@@ -103,4 +103,22 @@ public class BoardGameTest {
         assertTrue(game2.compareTo(game3) > 0); // "Monopoly" comes after "Go"
         assertEquals(0, game1.compareTo(new BoardGame("Chess", 4, 2, 4, 10, 30, 3.0, 50, 8.5, 2001))); // Same name
     }
+
+    @Test
+    void testCompareNameMatchesIgnoreCase() {
+        List<String> names = List.of("go", "Go", "GO FISH", "go fish", "Goa", "gO", "\u00c4rger",
+                "\u00e4rger", "Zoo", "a", "", "ab", "Abc", "ABCDE", "abcdf", "17 days");
+        for (String first : names) {
+            for (String second : names) {
+                BoardGame a = new BoardGame(first, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+                BoardGame b = new BoardGame(second, 2, 1, 1, 1, 1, 1, 1, 1, 1);
+                assertEquals(Integer.signum(first.compareToIgnoreCase(second)),
+                        Integer.signum(a.compareName(b)), first + " vs " + second);
+                assertEquals(first.equalsIgnoreCase(second), a.sameName(b));
+            }
+        }
+        // composed and decomposed accents are the same name
+        assertTrue(new BoardGame("Caf\u00e9", 1, 1, 1, 1, 1, 1, 1, 1, 1)
+                .sameName(new BoardGame("CAFE\u0301", 1, 1, 1, 1, 1, 1, 1, 1, 1)));
+    }
 }
@@ -0,0 +1,169 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for comparing collection files.
+ */
+public class CatalogDiffTest {
+    private static List<String> lines;
+    private static List<String> header;
+
+    /**
+     * Reads the full collection file.
+     *
+     * @throws IOException if it cannot be read.
+     */
+    @BeforeAll
+    static void setUp() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                CatalogDiffTest.class.getResourceAsStream("/collection.csv"),
+                StandardCharsets.UTF_8))) {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        header = List.of(lines.get(0).split(","));
+    }
+
+    /**
+     * Changes one field of a csv line.
+     *
+     * @param line   the line.
+     * @param column the column name.
+     * @param value  the new value.
+     * @return the changed line.
+     */
+    private static String with(String line, String column, String value) {
+        String[] values = line.split(",", -1);
+        values[header.indexOf(column)] = value;
+        return String.join(",", values);
+    }
+
+    /**
+     * Compares two collections.
+     *
+     * @param before the older lines.
+     * @param after  the newer lines.
+     * @return the changes.
+     * @throws IOException never, the collections are in memory.
+     */
+    private static List<CatalogDiff.Change> diff(List<String> before, List<String> after)
+            throws IOException {
+        List<CatalogDiff.Change> changes = new ArrayList<>();
+        long count = CatalogDiff.diff(new StringReader(String.join("\n", before)),
+                new StringReader(String.join("\n", after)), changes::add);
+        assertEquals(changes.size(), (int) count);
+        return changes;
+    }
+
+    /**
+     * Tests finding added, removed, changed and renamed games.
+     *
+     * @throws IOException never.
+     */
+    @Test
+    void findsChanges() throws IOException {
+        List<String> after = new ArrayList<>(lines);
+        after.set(1, with(lines.get(1), "rank", "1"));
+        after.set(4, with(lines.get(4), "objectname", "Renamed Game"));
+        String average = lines.get(5).split(",")[header.indexOf("average")];
+        after.set(5, with(lines.get(5), "average", average + (average.contains(".") ? "0" : ".0")));
+        after.set(6, with(lines.get(6), "numowned", "123456"));
+        after.remove(2);
+        after.add(with(with(lines.get(3), "objectid", "999999999"), "objectname", "New Game"));
+
+        List<CatalogDiff.Change> changes = diff(lines, after);
+        assertEquals(5, changes.size());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i - 1).getId() <= changes.get(i).getId());
+        }
+
+        CatalogDiff.Change ranked = find(changes, lines.get(1));
+        assertEquals(CatalogDiff.Kind.CHANGED, ranked.getKind());
+        assertEquals(Set.of(GameData.RANK), ranked.getFields());
+        assertEquals("1", ranked.getAfter(GameData.RANK));
+        assertNull(ranked.getBefore(GameData.RATING));
+
+        assertEquals(CatalogDiff.Kind.REMOVED, find(changes, lines.get(2)).getKind());
+        CatalogDiff.Change renamed = find(changes, lines.get(4));
+        assertEquals(Set.of(GameData.NAME), renamed.getFields());
+        assertEquals("Renamed Game", renamed.getName());
+        assertEquals(Set.of(GameData.OWNED), find(changes, lines.get(6)).getFields());
+        CatalogDiff.Change added = changes.get(changes.size() - 1);
+        assertEquals(CatalogDiff.Kind.ADDED, added.getKind());
+        assertEquals("added 999999999 New Game", added.toString());
+        assertTrue(ranked.toString().startsWith("changed " + ranked.getId() + " "));
+    }
+
+    /**
+     * Finds the change of the game on a line.
+     *
+     * @param changes the changes.
+     * @param line    the line of the game.
+     * @return the change.
+     */
+    private static CatalogDiff.Change find(List<CatalogDiff.Change> changes, String line) {
+        int id = Integer.parseInt(line.split(",")[header.indexOf("objectid")]);
+        return changes.stream().filter(change -> change.getId() == id).findFirst().get();
+    }
+
+    /**
+     * Tests that the diff agrees with loading both files and comparing the games.
+     *
+     * @throws IOException if the files cannot be written.
+     */
+    @Test
+    void agreesWithCatalogChanges() throws IOException {
+        List<String> after = new ArrayList<>(lines);
+        for (int i = 1; i < after.size(); i += 37) {
+            after.set(i, with(lines.get(i), "minplaytime", "1"));
+        }
+        for (int i = after.size() - 1; i > 0; i -= 53) {
+            after.remove(i);
+        }
+        Path older = Files.createTempFile("older", ".csv");
+        Path newer = Files.createTempFile("newer", ".csv");
+        try {
+            Files.write(older, lines, StandardCharsets.UTF_8);
+            Files.write(newer, after, StandardCharsets.UTF_8);
+            List<CatalogDiff.Change> changes = new ArrayList<>();
+            CatalogDiff.diff(older, newer, changes::add);
+            CatalogChanges expected = CatalogChanges.between(
+                    new GameCatalog(GamesLoader.loadGamesFile(older)),
+                    GamesLoader.loadGamesFile(newer));
+            assertEquals(expected.getDeleted().size(), count(changes, CatalogDiff.Kind.REMOVED));
+            assertEquals(expected.getUpdated().size(), count(changes, CatalogDiff.Kind.CHANGED));
+            assertEquals(expected.getInserted().size(), count(changes, CatalogDiff.Kind.ADDED));
+            assertFalse(changes.isEmpty());
+            assertTrue(diff(lines, lines).isEmpty());
+        } finally {
+            Files.deleteIfExists(older);
+            Files.deleteIfExists(newer);
+        }
+    }
+
+    /**
+     * Counts the changes of a kind.
+     *
+     * @param changes the changes.
+     * @param kind    the kind.
+     * @return the number of changes of that kind.
+     */
+    private static int count(List<CatalogDiff.Change> changes, CatalogDiff.Kind kind) {
+        return (int) changes.stream().filter(change -> change.getKind() == kind).count();
+    }
+}
@@ -0,0 +1,228 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for a ClusterPlanner over workers on the local machine.
+ */
+public class ClusterPlannerTest {
+    private static final int SHARDS = 3;
+    private static final int TIMEOUT_MILLIS = 500;
+
+    private List<BoardGame> games;
+    private List<LiveCatalog> parts;
+    private List<PlannerWorker> workers;
+    private ClusterPlanner cluster;
+
+    /**
+     * Starts a worker for each part of the collection, and a coordinator.
+     *
+     * @throws IOException if a worker cannot listen.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        games = new ArrayList<>(GamesLoader.loadGamesFile("/collection.csv"));
+        parts = new ArrayList<>();
+        workers = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            List<BoardGame> owned = new ArrayList<>();
+            for (int i = shard; i < games.size(); i += SHARDS) {
+                owned.add(games.get(i));
+            }
+            LiveCatalog catalog = new LiveCatalog(owned);
+            parts.add(catalog);
+            // the first worker listens on every interface, as --worker does
+            PlannerWorker worker = shard == 0
+                    ? new PlannerWorker(new InetSocketAddress(0), () -> new Planner(catalog, true))
+                    : new PlannerWorker(0, () -> new Planner(catalog, true));
+            workers.add(worker);
+            addresses.add(new InetSocketAddress("localhost", worker.getPort()));
+        }
+        cluster = new ClusterPlanner(addresses, TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Stops the coordinator and workers.
+     *
+     * @throws IOException if a worker cannot be closed.
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        cluster.close();
+        for (PlannerWorker worker : workers) {
+            worker.close();
+        }
+    }
+
+    /**
+     * Names of the games in a stream of results.
+     *
+     * @param results the games.
+     * @return the names, in the same order.
+     */
+    private static List<String> names(Stream<BoardGame> results) {
+        return results.map(BoardGame::getName).toList();
+    }
+
+    /**
+     * Tests that results, across several pages, match a single planner.
+     */
+    @Test
+    void matchesSinglePlanner() {
+        IPlanner single = new Planner(new LiveCatalog(games), false);
+        for (GameData sortOn : List.of(GameData.NAME, GameData.YEAR, GameData.RATING)) {
+            for (boolean ascending : new boolean[] {true, false}) {
+                assertEquals(names(single.filter("", sortOn, ascending)),
+                        names(cluster.filter("", sortOn, ascending)), sortOn + " " + ascending);
+            }
+        }
+        assertEquals(names(single.filter("minplayers>=2").limit(5)),
+                names(cluster.filter("minplayers>=2").limit(5)));
+        assertEquals(names(single.filter("year<2000", GameData.RANK)),
+                names(cluster.filter("year<2000", GameData.RANK)));
+        assertTrue(single.undo());
+        assertTrue(cluster.undo());
+        assertEquals(names(single.filter("")), names(cluster.filter("")));
+    }
+
+    /**
+     * Tests sorting on extended columns, which the workers send with each game.
+     */
+    @Test
+    void sortsOnExtendedColumns() {
+        IPlanner single = new Planner(new LiveCatalog(games), false);
+        for (GameData sortOn : List.of(GameData.OWNED, GameData.GEEK_RATING,
+                GameData.BEST_PLAYERS, GameData.LANGUAGE)) {
+            assertEquals(names(single.filter("", sortOn, false)),
+                    names(cluster.filter("", sortOn, false)));
+        }
+        BoardGame expected = single.filter("", GameData.OWNED, false).findFirst().get();
+        BoardGame received = cluster.filter("", GameData.OWNED, false).findFirst().get();
+        assertTrue(received.getNumericValue(GameData.OWNED) > 0);
+        assertEquals(expected.getNumericValue(GameData.OWNED),
+                received.getNumericValue(GameData.OWNED));
+        assertEquals(expected.getStringValue(GameData.LANGUAGE),
+                received.getStringValue(GameData.LANGUAGE));
+    }
+
+    /**
+     * Tests that a dead worker is left out, and brought back to the same filters
+     * once it is back.
+     *
+     * @throws Exception if the worker cannot be restarted.
+     */
+    @Test
+    void deadWorkerLeftOutThenReplayed() throws Exception {
+        long expected = new Planner(new LiveCatalog(games), false).filter("year>=2010").count();
+        cluster.filter("year>=2010");
+
+        int port = workers.get(1).getPort();
+        workers.get(1).close();
+        long partial = cluster.filter("").count();
+        assertEquals(expected - new Planner(parts.get(1), false).filter("year>=2010").count(),
+                partial);
+
+        LiveCatalog catalog = parts.get(1);
+        workers.set(1, new PlannerWorker(port, () -> new Planner(catalog, false)));
+        Thread.sleep(TIMEOUT_MILLIS + 100);
+        assertEquals(expected, cluster.filter("").count());
+    }
+
+    /**
+     * Tests that a reset starts the replayed session over, so a worker brought back
+     * after it only needs the calls since.
+     *
+     * @throws Exception if the worker cannot be restarted.
+     */
+    @Test
+    void resetStartsReplayOver() throws Exception {
+        IPlanner single = new Planner(new LiveCatalog(games), false);
+        cluster.filter("year>=2010");
+        cluster.reset();
+        assertFalse(cluster.undo());
+        cluster.filter("minplayers>=3");
+        cluster.filter("maxplayers<=4");
+        assertTrue(cluster.undo());
+        single.filter("minplayers>=3");
+
+        int port = workers.get(2).getPort();
+        workers.get(2).close();
+        cluster.filter("");
+        LiveCatalog catalog = parts.get(2);
+        workers.set(2, new PlannerWorker(port, () -> new Planner(catalog, false)));
+        Thread.sleep(TIMEOUT_MILLIS + 100);
+        assertEquals(names(single.filter("")), names(cluster.filter("")));
+        assertTrue(cluster.redo());
+        assertFalse(cluster.redo());
+        assertEquals(names(single.filter("maxplayers<=4")), names(cluster.filter("")));
+    }
+
+    /**
+     * Tests that a slow worker does not hold up the results of the others.
+     *
+     * @throws IOException if the slow worker cannot listen.
+     */
+    @Test
+    void slowWorkerTimesOut() throws IOException {
+        IPlanner slow = new IPlanner() {
+            @Override
+            public Stream<BoardGame> filter(String filter) {
+                return filter(filter, GameData.NAME, true);
+            }
+
+            @Override
+            public Stream<BoardGame> filter(String filter, GameData sortOn) {
+                return filter(filter, sortOn, true);
+            }
+
+            @Override
+            public Stream<BoardGame> filter(String filter, GameData sortOn, boolean ascending) {
+                try {
+                    Thread.sleep(TIMEOUT_MILLIS * 4);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Stream.empty();
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+        PlannerWorker worker = new PlannerWorker(0, () -> slow);
+        workers.add(worker);
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (PlannerWorker each : workers) {
+            addresses.add(new InetSocketAddress("localhost", each.getPort()));
+        }
+        try (ClusterPlanner withSlow = new ClusterPlanner(addresses, TIMEOUT_MILLIS)) {
+            long start = System.nanoTime();
+            assertEquals(games.size(), withSlow.filter("").count());
+            assertTrue(System.nanoTime() - start < TIMEOUT_MILLIS * 3 * 1_000_000L);
+        }
+    }
+
+    /**
+     * Tests that a worker given only a port listens on the loopback address, and
+     * only listens on other interfaces when asked to.
+     */
+    @Test
+    void workerListensOnLoopbackByDefault() {
+        assertTrue(BGArenaPlanner.toBindAddress("7000").getAddress().isLoopbackAddress());
+        assertEquals(7000, BGArenaPlanner.toBindAddress("7000").getPort());
+        assertTrue(BGArenaPlanner.toBindAddress("0.0.0.0:7000").getAddress().isAnyLocalAddress());
+        assertTrue(BGArenaPlanner.toBindAddress("127.0.0.1:7001").getAddress()
+                .isLoopbackAddress());
+    }
+}
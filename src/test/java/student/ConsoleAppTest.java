@@ -0,0 +1,90 @@
+package student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for running the ConsoleApp as a batch.
+ */
+public class ConsoleAppTest {
+    private IPlanner planner;
+    private IGameList gameList;
+
+    /**
+     * Sets up the planner and list the scripts run against.
+     */
+    @BeforeEach
+    void setUp() {
+        planner = new Planner(Set.of(
+                new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005),
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007)));
+        gameList = new GameList();
+    }
+
+    /**
+     * Runs a script and returns everything written.
+     *
+     * @param script the commands, one per line.
+     * @return the output of the run.
+     */
+    private String run(String script) {
+        StringWriter out = new StringWriter();
+        new ConsoleApp(gameList, planner, new StringReader(script), out, false).runBatch();
+        return out.toString();
+    }
+
+    /**
+     * Tests that a batch runs filters and list commands without prompts.
+     */
+    @Test
+    void runBatch() {
+        String output = run("# comment\nfilter name~=go\n\nlist add all\nlist show\n");
+        assertFalse(output.contains(">"));
+        assertEquals(List.of("Go", "Go Fish"), gameList.getGameNames());
+        assertTrue(output.startsWith("1: Go" + System.lineSeparator() + "2: Go Fish"));
+    }
+
+    /**
+     * Tests undoing and redoing filters from the console.
+     */
+    @Test
+    void filterUndoRedo() {
+        String output = run("filter name~=go\nfilter minplayers>=6\nfilter undo\nlist add all\n"
+                + "filter redo\nfilter redo\n");
+        assertEquals(List.of("Go", "Go Fish"), gameList.getGameNames());
+        assertTrue(output.endsWith("No filters to redo." + System.lineSeparator()));
+    }
+
+    /**
+     * Tests that the words of a text filter stay apart, and each one must match.
+     */
+    @Test
+    void filterOnSeveralWords() {
+        run("filter text~=go  FISH\nlist add all\n");
+        assertEquals(List.of("Go Fish"), gameList.getGameNames());
+        assertEquals("text~=go  fish,minplayers>=2",
+                ConsoleApp.removeSpaces("text ~= go  fish , min players >= 2").toLowerCase());
+        assertEquals("(name~=gofish|text~=go fish)",
+                ConsoleApp.removeSpaces("( name ~= go fish | TEXT~= go fish )").toLowerCase());
+    }
+
+    /**
+     * Tests that the batch stops at exit, and invalid commands are reported.
+     */
+    @Test
+    void runBatchStopsAtExit() {
+        String output = run("nope\nexit\nlist add all\n");
+        assertTrue(output.contains("Invalid command"));
+        assertEquals(0, gameList.count());
+    }
+}
@@ -0,0 +1,124 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the extended csv columns.
+ */
+public class ExtendedColumnsTest {
+    private static Set<BoardGame> games;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+    }
+
+    /**
+     * Finds a game by name.
+     *
+     * @param name the name.
+     * @return the game.
+     */
+    private static BoardGame game(String name) {
+        return games.stream().filter(game -> game.getName().equals(name)).findFirst().get();
+    }
+
+    /**
+     * Tests reading the extended columns of a loaded game.
+     */
+    @Test
+    void readsLoadedValues() {
+        BoardGame clues = game("13 Clues");
+        assertEquals(8, clues.getNumericValue(GameData.MIN_AGE));
+        assertEquals(1920, clues.getNumericValue(GameData.OWNED));
+        assertEquals(5.92269, clues.getNumericValue(GameData.GEEK_RATING));
+        assertEquals(0, clues.getNumericValue(GameData.BEST_PLAYERS));
+        assertEquals("No necessary in-game text", clues.getStringValue(GameData.LANGUAGE));
+        assertEquals("13 Clues", clues.getStringValue(GameData.ORIGINAL_NAME));
+        assertEquals("", clues.getStringValue(GameData.COMMENT));
+        assertEquals("13 Clues (8)", clues.toStringWithInfo(GameData.MIN_AGE));
+        assertThrows(IllegalArgumentException.class,
+                () -> clues.getNumericValue(GameData.LANGUAGE));
+        assertThrows(IllegalArgumentException.class,
+                () -> clues.getStringValue(GameData.OWNED));
+
+        BoardGame built = new BoardGame("Built", 1, 2, 4, 30, 60, 2.5, 10, 7.5, 2020);
+        assertEquals(0, built.getNumericValue(GameData.GEEK_RATING));
+        assertEquals("", built.getStringValue(GameData.LANGUAGE));
+        assertEquals(GameData.GEEK_RATING, GameData.fromString("baverage"));
+        assertEquals(GameData.MIN_AGE, GameData.fromString("min_age"));
+    }
+
+    /**
+     * Tests that columns are only parsed when first read, one at a time.
+     */
+    @Test
+    void parsesColumnsOnFirstUse() {
+        Map<GameData, Integer> columnMap = Map.of(GameData.MIN_AGE, 0, GameData.LANGUAGE, 1);
+        ExtendedColumns extended = new ExtendedColumns(columnMap);
+        for (String line : List.of("10+,Some text", ",None", "12")) {
+            extended.add(GamesLoader.split(line));
+        }
+        extended.finish();
+        assertFalse(extended.isParsed(GameData.MIN_AGE));
+        assertEquals(10, extended.number(0, GameData.MIN_AGE));
+        assertTrue(extended.isParsed(GameData.MIN_AGE));
+        assertFalse(extended.isParsed(GameData.LANGUAGE));
+        assertEquals(0, extended.number(1, GameData.MIN_AGE));
+        assertEquals(12, extended.number(2, GameData.MIN_AGE));
+        assertEquals("", extended.text(2, GameData.LANGUAGE));
+        assertEquals("None", extended.text(1, GameData.LANGUAGE));
+        assertEquals(0, extended.number(0, GameData.OWNED));
+    }
+
+    /**
+     * Tests that a header without a base column loads no games rather than
+     * failing, and that short lines are skipped.
+     */
+    @Test
+    void missingColumnsLoadNothing() {
+        String header = "objectname,objectid,average,avgweight,rank,minplayers,maxplayers,"
+                + "minplaytime,maxplaytime";
+        List<String> lines = List.of("Azul,230802,7.75,1.7659,72,2,4,30,45");
+        assertTrue(GamesLoader.toBoardGames(lines, GamesLoader.processHeader(header)).isEmpty());
+
+        Map<GameData, Integer> columnMap = GamesLoader.processHeader(header + ",yearpublished,"
+                + "numowned");
+        List<BoardGame> loaded = GamesLoader.toBoardGames(List.of(
+                "Azul,230802,7.75,1.7659,72,2,4,30,45,2017,1234",
+                "Short,1,7.75,1.7659,72,2,4,30,45"), columnMap);
+        assertEquals(1, loaded.size());
+        assertEquals(1234, loaded.get(0).getNumericValue(GameData.OWNED));
+    }
+
+    /**
+     * Tests filtering and sorting on the extended columns.
+     */
+    @Test
+    void filtersAndSorts() {
+        List<BoardGame> expected = games.stream()
+                .filter(game -> game.getNumericValue(GameData.MIN_AGE) >= 12)
+                .filter(game -> game.getStringValue(GameData.LANGUAGE).contains("text"))
+                .sorted(Comparator.comparingDouble(
+                        (BoardGame game) -> game.getNumericValue(GameData.GEEK_RATING))
+                        .reversed().thenComparing(GameCatalog.BY_NAME))
+                .toList();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, new Planner(games).filter("min_age>=12,language~=text",
+                GameData.GEEK_RATING, false).toList());
+        assertEquals(expected.size(), new Planner(games).filter("bggrecagerange>=12")
+                .filter(game -> game.getStringValue(GameData.LANGUAGE).contains("text"))
+                .count());
+    }
+}
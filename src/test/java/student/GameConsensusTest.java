@@ -0,0 +1,98 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for counting games over many lists.
+ */
+public class GameConsensusTest {
+    private static Set<BoardGame> games;
+    private static List<BoardGame> popular;
+    private static List<GameList> lists;
+
+    /**
+     * Builds 200 lists, each holding some of a small pool of games.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+        popular = games.stream().sorted(GameCatalog.BY_NAME).limit(30).toList();
+        Random random = new Random(44);
+        lists = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            GameList list = new GameList();
+            for (int j = 0; j < 8; j++) {
+                list.addToList(popular.get(random.nextInt(popular.size())).getName(),
+                        games.stream());
+            }
+            list.addToList(popular.get(0).getName(), games.stream()); // on every list
+            lists.add(list);
+        }
+    }
+
+    /**
+     * Counts the lists each game is on by looking at every list.
+     *
+     * @return the count of each game on any list.
+     */
+    private static Map<BoardGame, Integer> bruteForce() {
+        Map<BoardGame, Integer> counts = new HashMap<>();
+        for (GameList list : lists) {
+            for (BoardGame game : list.getGames()) {
+                counts.merge(game, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Tests the games on at least M lists against counting every list.
+     */
+    @Test
+    void onAtLeastMatchesCounts() {
+        GameConsensus consensus = new GameConsensus(games, lists);
+        Map<BoardGame, Integer> counts = bruteForce();
+        for (int m : new int[] {1, 10, 50, 60, 199, 200}) {
+            List<BoardGame> expected = counts.entrySet().stream()
+                    .filter(entry -> entry.getValue() >= m)
+                    .sorted(Map.Entry.<BoardGame, Integer>comparingByValue(
+                            Comparator.reverseOrder()).thenComparing(
+                                    Map.Entry.comparingByKey(GameCatalog.BY_NAME)))
+                    .map(Map.Entry::getKey).toList();
+            assertEquals(expected, consensus.onAtLeast(m));
+        }
+        for (BoardGame game : popular) {
+            assertEquals((int) counts.getOrDefault(game, 0), consensus.count(game.getName()));
+        }
+        assertTrue(consensus.onAtLeast(201).isEmpty());
+        assertEquals(games.size(), consensus.onAtLeast(0).size());
+    }
+
+    /**
+     * Tests the games on all and on none of the lists.
+     */
+    @Test
+    void onAllAndNone() {
+        GameConsensus consensus = new GameConsensus(games, lists);
+        assertEquals(List.of(popular.get(0)), consensus.onAll());
+        List<BoardGame> none = consensus.onNone();
+        assertEquals(games.size() - bruteForce().size(), none.size());
+        assertTrue(none.stream().noneMatch(popular::contains));
+        assertEquals(none.stream().sorted(GameCatalog.BY_NAME).toList(), none);
+
+        GameConsensus empty = new GameConsensus(games, List.of());
+        assertTrue(empty.onAll().isEmpty());
+        assertEquals(games.size(), empty.onNone().size());
+    }
+}
@@ -0,0 +1,154 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for exporting games.
+ */
+public class GameExporterTest {
+    private static Set<BoardGame> games;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+    }
+
+    /**
+     * Exports games to a string.
+     *
+     * @param exported the games.
+     * @param format   the format.
+     * @return the exported text.
+     * @throws IOException if writing fails.
+     */
+    private static String export(Stream<BoardGame> exported, GameExporter.Format format)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GameExporter.export(exported, format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that a CSV export loads back as the same games.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Test
+    void csvLoadsBack() throws IOException {
+        Path file = Files.createTempFile("export", ".csv");
+        try {
+            assertEquals(games.size(), GameExporter.export(games.stream(), file));
+            assertEquals(games, GamesLoader.loadGamesFile(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Tests that names with commas, quotes and line breaks load back as written,
+     * and compare equal in a diff.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Test
+    void quotedNamesLoadBack() throws IOException {
+        Set<BoardGame> odd = Set.of(
+                new BoardGame("Go, Fish", 1, 2, 4, 30, 45, 1.5, 72, 7.75, 2017),
+                new BoardGame("Say \"Hi\"", 2, 1, 2, 0, 5, 2.5, 3, 6.5, 1999),
+                new BoardGame("Two\nLines, \"quoted\"", 3, 1, 2, 0, 5, 2.5, 4, 6.5, 1999),
+                new BoardGame("Plain", 4, 1, 2, 0, 5, 2.5, 5, 6.5, 1999));
+        Path file = Files.createTempFile("export", ".csv");
+        Path empty = Files.createTempFile("empty", ".csv");
+        try {
+            GameExporter.export(odd.stream(), file);
+            GameExporter.export(Stream.empty(), empty);
+            assertEquals(odd, GamesLoader.loadGamesFile(file));
+            List<CatalogDiff.Change> changes = new ArrayList<>();
+            CatalogDiff.diff(empty, file, changes::add);
+            assertEquals(odd.stream().map(BoardGame::getName).collect(Collectors.toSet()),
+                    changes.stream().map(CatalogDiff.Change::getName)
+                            .collect(Collectors.toSet()));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(empty);
+        }
+    }
+
+    /**
+     * Tests the text of both formats, with fields that need quoting or escaping.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Test
+    void formatsAndEscapes() throws IOException {
+        BoardGame plain = new BoardGame("Azul", 230802, 2, 4, 30, 45, 1.7659, 72, 7.75, 2017);
+        BoardGame odd = new BoardGame("Say \"Hi\", Caf\u00e9 \uD83C\uDFB2", 1, 1, 2, 0, 5,
+                1.0 / 3, -1, 0, -500);
+        assertEquals("objectname,objectid,average,avgweight,rank,minplayers,maxplayers,"
+                + "minplaytime,maxplaytime,yearpublished\n"
+                + "Azul,230802,7.75,1.7659,72,2,4,30,45,2017\n"
+                + "\"Say \"\"Hi\"\", Caf\u00e9 \uD83C\uDFB2\","
+                + "1,0,0.3333333333333333,-1,1,2,0,5,-500\n",
+                export(Stream.of(plain, odd), GameExporter.Format.CSV));
+        assertEquals("[\n{\"objectname\":\"Say \\\"Hi\\\", Caf\u00e9 \uD83C\uDFB2\","
+                + "\"objectid\":1,\"average\":0,\"avgweight\":0.3333333333333333,\"rank\":-1,"
+                + "\"minplayers\":1,\"maxplayers\":2,\"minplaytime\":0,\"maxplaytime\":5,"
+                + "\"yearpublished\":-500}\n]\n", export(Stream.of(odd), GameExporter.Format.JSON));
+        assertEquals("[]\n", export(Stream.empty(), GameExporter.Format.JSON));
+        assertEquals(GameExporter.Format.JSON, GameExporter.Format.forFile("out/Games.JSON"));
+        assertEquals(GameExporter.Format.CSV, GameExporter.Format.forFile("games.txt"));
+    }
+
+    /**
+     * Tests an export much larger than the buffer.
+     *
+     * @throws IOException if writing fails.
+     */
+    @Test
+    void exportsMoreThanTheBuffer() throws IOException {
+        List<BoardGame> many = new ArrayList<>();
+        StringBuilder expected = new StringBuilder("objectname,objectid,average,avgweight,rank,"
+                + "minplayers,maxplayers,minplaytime,maxplaytime,yearpublished\n");
+        for (int i = 0; i < 20000; i++) {
+            many.add(new BoardGame("Game \u00f1 " + i, i, 1, i % 7, 10, 20, i / 8.0, i,
+                    i / 100.0, 1900 + i % 120));
+            expected.append("Game \u00f1 ").append(i).append(',').append(i).append(",")
+                    .append(fixed(i / 100.0)).append(',').append(fixed(i / 8.0)).append(',')
+                    .append(i).append(",1,").append(i % 7).append(",10,20,")
+                    .append(1900 + i % 120).append('\n');
+        }
+        assertEquals(expected.toString(), export(many.stream(), GameExporter.Format.CSV));
+        Set<String> lines = new HashSet<>(List.of(export(many.stream(),
+                GameExporter.Format.JSON).split("\n")));
+        assertEquals(20002, lines.size());
+    }
+
+    /**
+     * Writes a number as the exporter does: whole numbers without decimals.
+     *
+     * @param value the number.
+     * @return the text.
+     */
+    private static String fixed(double value) {
+        String text = Double.toString(value);
+        return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    }
+}
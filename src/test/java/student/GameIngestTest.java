@@ -0,0 +1,152 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for streaming games into the catalog.
+ */
+public class GameIngestTest {
+    private static final String HEADER = "objectname,objectid,average,avgweight,rank,"
+            + "minplayers,maxplayers,minplaytime,maxplaytime,yearpublished";
+    private LiveCatalog catalog;
+    private GameIngest ingest;
+
+    /**
+     * Sets up the catalog the games are streamed into.
+     */
+    @BeforeEach
+    void setUp() {
+        catalog = new LiveCatalog(List.of(
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000)));
+    }
+
+    /**
+     * Stops the ingest.
+     */
+    @AfterEach
+    void tearDown() {
+        if (ingest != null) {
+            ingest.close();
+        }
+    }
+
+    /**
+     * Finds the version of a game in the catalog.
+     *
+     * @param name the name of the game.
+     * @param id   the objectid of the game.
+     * @return the game.
+     */
+    private BoardGame find(String name, int id) {
+        GameCatalog current = catalog.current();
+        return current.get(current.find(new BoardGame(name, id, 0, 0, 0, 0, 0, 0, 0, 0)));
+    }
+
+    /**
+     * Tests that lines are published in batches, with the last version of a game
+     * winning and bad lines skipped.
+     *
+     * @throws Exception if the stream cannot be read.
+     */
+    @Test
+    void publishesBatches() throws Exception {
+        ingest = new GameIngest(catalog, 3, 1000, 100);
+        String csv = String.join("\n", HEADER,
+                "Goban,9,6.0,4.0,900,2,2,30,60,2010",
+                "Chess,7,9.5,10.0,700,2,2,10,20,2006",
+                "not,a,game",
+                "Chess,7,9.0,10.0,700,2,2,10,20,2006",
+                "",
+                "Go,1,7.5,8.0,100,2,5,30,30,2000");
+        assertEquals(5, (int) ingest.feed(new StringReader(csv)));
+        ingest.flush();
+
+        assertEquals(3, catalog.count());
+        assertEquals(9.0, find("Chess", 7).getRating());
+        assertEquals(2010, find("Goban", 9).getYearPublished());
+        assertEquals(3, (int) ingest.getGames());
+        assertEquals(1, (int) ingest.getSkipped());
+        assertEquals(2, (int) ingest.getBatches());
+        assertEquals(2, (int) catalog.getVersion());
+    }
+
+    /**
+     * Tests that a full queue blocks the source until the publisher catches up.
+     *
+     * @throws Exception if the stream cannot be read.
+     */
+    @Test
+    void fullQueueBlocksTheSource() throws Exception {
+        ingest = new GameIngest(catalog, 1, 0, 2);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 20; i++) {
+            csv.append("\nGame ").append(i).append(',').append(100 + i)
+                    .append(",7.0,2.0,1,2,4,30,60,2020");
+        }
+        Thread source;
+        synchronized (catalog) { // the publisher cannot upsert meanwhile
+            source = new Thread(() -> {
+                try {
+                    ingest.feed(new StringReader(csv.toString()));
+                } catch (IOException | InterruptedException e) {
+                    fail(e.getMessage());
+                }
+            });
+            source.start();
+            source.join(300);
+            assertTrue(source.isAlive());
+        }
+        source.join(5000);
+        assertFalse(source.isAlive());
+        ingest.flush();
+        assertEquals(22, catalog.count());
+        assertEquals(20, (int) ingest.getBatches());
+    }
+
+    /**
+     * Tests that files dropped into a spool directory are published and marked done.
+     *
+     * @throws Exception if the files cannot be written.
+     */
+    @Test
+    void readsSpoolDirectory() throws Exception {
+        Path directory = Files.createTempDirectory("spool");
+        try {
+            Path written = directory.resolve("batch.tmp");
+            Files.writeString(written, HEADER + "\nGoban,9,6.0,4.0,900,2,2,30,60,2010\n",
+                    StandardCharsets.UTF_8);
+            ingest = new GameIngest(catalog);
+            ingest.follow(directory);
+            Files.move(written, directory.resolve("batch.csv"));
+
+            Path done = directory.resolve("batch.csv.done");
+            for (int i = 0; i < 100 && !Files.exists(done); i++) {
+                Thread.sleep(50);
+            }
+            assertTrue(Files.exists(done));
+            ingest.flush();
+            assertEquals(3, catalog.count());
+        } finally {
+            ingest.close();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package student;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the GameListStore class.
+ */
+public class GameListStoreTest {
+    private static final String FILENAME = "test_game_lists.bgls";
+    private Set<BoardGame> catalog;
+
+    /**
+     * Sets up the catalog to resolve ids against.
+     */
+    @BeforeEach
+    void setUp() {
+        catalog = Set.of(
+                new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005),
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("golang", 400000, 2, 7, 50, 55, 7.0, 400, 9.5, 2003),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007)
+        );
+    }
+
+    /**
+     * Removes the store file.
+     */
+    @AfterEach
+    void tearDown() {
+        new File(FILENAME).delete();
+    }
+
+    /**
+     * Builds a list from the catalog.
+     *
+     * @param names the names of the games to add.
+     * @return the list.
+     */
+    private GameList listOf(String... names) {
+        GameList list = new GameList();
+        for (String name : names) {
+            list.addToList(name, catalog.stream());
+        }
+        return list;
+    }
+
+    /**
+     * Tests saving several lists and loading each one back.
+     */
+    @Test
+    void saveAndLoad() {
+        Map<String, GameList> lists = new LinkedHashMap<>();
+        lists.put("zoe", listOf("Chess", "golang", "Go"));
+        lists.put("alex", listOf("Monopoly"));
+        lists.put("empty", new GameList());
+        GameListStore.save(FILENAME, lists);
+
+        GameListStore store = GameListStore.open(FILENAME);
+        assertEquals(List.of("alex", "empty", "zoe"), store.getListNames());
+        assertEquals(3, store.count("zoe"));
+        assertArrayEquals(new int[] {1, 7, 400000}, store.readIds("zoe"));
+
+        GameList zoe = store.load("zoe", catalog);
+        assertEquals(List.of("Chess", "Go", "golang"), zoe.getGameNames());
+        assertEquals(List.of("Monopoly"), store.load("alex", catalog).getGameNames());
+        assertEquals(0, store.load("empty", catalog).count());
+    }
+
+    /**
+     * Tests that ids no longer in the catalog are skipped on load.
+     */
+    @Test
+    void loadSkipsMissingGames() {
+        GameListStore.save(FILENAME, Map.of("list", listOf("Chess", "Go")));
+        Set<BoardGame> smaller = Set.of(new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        assertEquals(List.of("Go"), GameListStore.open(FILENAME).load("list", smaller).getGameNames());
+    }
+
+    /**
+     * Tests asking for a list that is not in the store.
+     */
+    @Test
+    void unknownList() {
+        GameListStore.save(FILENAME, Map.of("list", listOf("Chess")));
+        GameListStore store = GameListStore.open(FILENAME);
+        assertThrows(IllegalArgumentException.class, () -> store.readIds("missing"));
+    }
+
+    /**
+     * Tests the varint delta encoding round trip, including large and negative ids.
+     */
+    @Test
+    void encodeDecode() {
+        int[] ids = {-5, 0, 1, 127, 128, 300000, Integer.MAX_VALUE};
+        byte[] encoded = GameListStore.encode(ids);
+        assertArrayEquals(ids, GameListStore.decode(ByteBuffer.wrap(encoded), ids.length));
+        assertEquals(4, GameListStore.encode(new int[] {1, 2, 3, 4}).length);
+    }
+}
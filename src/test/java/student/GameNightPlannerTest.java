@@ -0,0 +1,103 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the game night planner.
+ */
+public class GameNightPlannerTest {
+    private static Set<BoardGame> games;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+    }
+
+    /**
+     * Finds the best summed rating with dynamic programming over the minutes.
+     *
+     * @param players the number of players.
+     * @param minutes the time available.
+     * @return the best summed rating.
+     */
+    private static double bestRating(int players, int minutes) {
+        double[] best = new double[minutes + 1];
+        for (BoardGame game : games) {
+            int time = GameNightPlanner.playTime(game);
+            if (game.getMinPlayers() <= players && players <= game.getMaxPlayers()
+                    && time > 0 && game.getRating() > 0) {
+                for (int t = minutes; t >= time; t--) {
+                    best[t] = Math.max(best[t], best[t - time] + game.getRating());
+                }
+            }
+        }
+        return best[minutes];
+    }
+
+    /**
+     * Tests that the plan is the best possible and fits.
+     */
+    @Test
+    void findsBestPlan() {
+        GameNightPlanner planner = new GameNightPlanner(games);
+        for (int[] night : new int[][] {{2, 45}, {4, 120}, {5, 180}, {1, 30}}) {
+            GameNight plan = planner.plan(night[0], night[1], 10_000);
+            assertTrue(plan.isOptimal());
+            assertEquals(bestRating(night[0], night[1]), plan.getScore(), 1e-9);
+            assertTrue(plan.getMinutes() <= night[1]);
+            assertEquals(plan.getMinutes(), plan.getGames().stream()
+                    .mapToInt(GameNightPlanner::playTime).sum());
+            for (BoardGame game : plan.getGames()) {
+                assertTrue(game.getMinPlayers() <= night[0] && night[0] <= game.getMaxPlayers());
+            }
+        }
+    }
+
+    /**
+     * Tests choosing only from a games list, with another score.
+     */
+    @Test
+    void choosesFromList() {
+        GameList list = new GameList();
+        list.addToList("7 Wonders", games.stream());
+        list.addToList("7 Wonders Duel", games.stream());
+        list.addToList("Azul", games.stream());
+        GameNight plan = new GameNightPlanner(games).plan(2, 60, list, game -> 1, 10_000);
+        assertEquals(2, plan.getGames().size());
+        assertTrue(plan.getGames().stream().allMatch(
+                game -> list.getGameNames().contains(game.getName())));
+    }
+
+    /**
+     * Tests that a search cut short still returns a plan that fits.
+     */
+    @Test
+    void timeLimitReturnsBestSoFar() {
+        GameNight plan = new GameNightPlanner(games).plan(3, 600, 1);
+        assertFalse(plan.getGames().isEmpty());
+        assertTrue(plan.getMinutes() <= 600);
+    }
+
+    /**
+     * Tests that invalid nights are rejected, and nights nothing fits are empty.
+     */
+    @Test
+    void invalidNights() {
+        GameNightPlanner planner = new GameNightPlanner(games);
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(0, 60, 100));
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(2, -1, 100));
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(2, 60, 0));
+        assertTrue(planner.plan(2, 0, 100).getGames().isEmpty());
+        assertTrue(new GameNightPlanner(Stream.<BoardGame>empty().toList()).plan(2, 60, 100)
+                .getGames().isEmpty());
+    }
+}
@@ -0,0 +1,203 @@
+package student;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for publishing results with backpressure.
+ */
+public class GamePublisherTest {
+
+    /**
+     * A subscriber that records what it receives, and requests nothing by itself.
+     */
+    private static class Recorder implements Flow.Subscriber<BoardGame> {
+        private Flow.Subscription subscription;
+        private final List<BoardGame> received = new ArrayList<>();
+        private Throwable error;
+        private boolean complete;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(BoardGame game) {
+            received.add(game);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            this.error = error;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    /**
+     * Makes a stream of games, counting how many are read.
+     *
+     * @param count the number of games.
+     * @param read  counts the games read from the stream.
+     * @return the games.
+     */
+    private static Stream<BoardGame> games(int count, AtomicInteger read) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new BoardGame("Game " + i, i, 1, 4, 10, 20, 2.0, i, 7.0, 2000))
+                .peek(game -> read.incrementAndGet());
+    }
+
+    /**
+     * Tests that games are only read and delivered as they are requested.
+     */
+    @Test
+    void deliversOnlyWhatIsRequested() {
+        AtomicInteger read = new AtomicInteger();
+        Recorder recorder = new Recorder();
+        new GamePublisher(games(5, read)).subscribe(recorder);
+        assertEquals(0, read.get());
+
+        recorder.subscription.request(2);
+        assertEquals(2, recorder.received.size());
+        assertEquals(2, read.get());
+        assertFalse(recorder.complete);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(5, recorder.received.size());
+        assertTrue(recorder.complete);
+        assertNull(recorder.error);
+    }
+
+    /**
+     * Tests that cancelling stops the query and closes the results.
+     */
+    @Test
+    void cancelClosesResults() {
+        AtomicInteger read = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        Recorder recorder = new Recorder();
+        new GamePublisher(games(100, read).onClose(() -> closed.set(true))).subscribe(recorder);
+        recorder.subscription.request(3);
+        recorder.subscription.cancel();
+        recorder.subscription.request(10);
+        assertEquals(3, recorder.received.size());
+        assertTrue(closed.get());
+        assertFalse(recorder.complete);
+    }
+
+    /**
+     * Tests invalid requests and a second subscriber.
+     */
+    @Test
+    void errors() {
+        GamePublisher publisher = new GamePublisher(games(3, new AtomicInteger()));
+        Recorder first = new Recorder();
+        publisher.subscribe(first);
+        first.subscription.request(0);
+        assertTrue(first.error instanceof IllegalArgumentException);
+
+        Recorder second = new Recorder();
+        publisher.subscribe(second);
+        assertTrue(second.error instanceof IllegalStateException);
+    }
+
+    /**
+     * Tests that a subscriber that throws is not sent onError after it completed,
+     * and that one throwing from onNext has its results closed.
+     */
+    @Test
+    void subscriberErrorsAreNotSignalled() {
+        Recorder completing = new Recorder() {
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        new GamePublisher(games(2, new AtomicInteger())).subscribe(completing);
+        assertThrows(IllegalStateException.class,
+                () -> completing.subscription.request(5));
+        assertTrue(completing.complete);
+        assertNull(completing.error);
+
+        AtomicBoolean closed = new AtomicBoolean();
+        Recorder receiving = new Recorder() {
+            @Override
+            public void onNext(BoardGame game) {
+                throw new IllegalStateException("subscriber failed");
+            }
+        };
+        new GamePublisher(games(5, new AtomicInteger()).onClose(() -> closed.set(true)))
+                .subscribe(receiving);
+        assertThrows(IllegalStateException.class, () -> receiving.subscription.request(1));
+        assertTrue(closed.get());
+        assertNull(receiving.error);
+        receiving.subscription.request(1);
+        assertFalse(receiving.complete);
+    }
+
+    /**
+     * Tests that requesting one at a time from onNext does not recurse.
+     */
+    @Test
+    void requestFromOnNext() {
+        AtomicInteger received = new AtomicInteger();
+        AtomicBoolean complete = new AtomicBoolean();
+        new GamePublisher(games(100_000, new AtomicInteger())).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(BoardGame game) {
+                received.incrementAndGet();
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                fail(error.toString());
+            }
+
+            @Override
+            public void onComplete() {
+                complete.set(true);
+            }
+        });
+        assertEquals(100_000, received.get());
+        assertTrue(complete.get());
+    }
+
+    /**
+     * Tests publishing from a planner, with the filter applied when published.
+     */
+    @Test
+    void publishFromPlanner() {
+        IPlanner planner = new Planner(GamesLoader.loadGamesFile("/collection.csv"), true);
+        Flow.Publisher<BoardGame> published = planner.publish("year>=2015", GameData.YEAR, false);
+        Recorder recorder = new Recorder();
+        published.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        assertEquals(planner.filter("").toList().size(), recorder.received.size());
+        assertTrue(recorder.received.get(0).getYearPublished()
+                >= recorder.received.get(recorder.received.size() - 1).getYearPublished());
+    }
+}
@@ -0,0 +1,146 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the players and playtime range queries.
+ */
+public class IntervalIndexTest {
+    private static Set<BoardGame> games;
+    private static GameCatalog catalog;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+        catalog = new GameCatalog(games);
+    }
+
+    /**
+     * Finds the games whose range contains a value by testing every game.
+     *
+     * @param span  the range.
+     * @param value the value.
+     * @return the games containing the value.
+     */
+    private static BitSet bruteForce(IntervalIndex.Span span, double value) {
+        return bruteForce(catalog, span, value);
+    }
+
+    /**
+     * Finds the games of a catalog version whose range contains a value by testing
+     * every game.
+     *
+     * @param catalog the catalog version.
+     * @param span    the range.
+     * @param value   the value.
+     * @return the games containing the value.
+     */
+    private static BitSet bruteForce(GameCatalog catalog, IntervalIndex.Span span,
+            double value) {
+        BitSet result = new BitSet();
+        for (int i = 0; i < catalog.size(); i++) {
+            if (catalog.get(i) != null && span.contains(catalog.get(i), value)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tests that the tree finds the same games as testing every game.
+     */
+    @Test
+    void matchesBruteForce() {
+        for (int players = 0; players <= 12; players++) {
+            BitSet found = new BitSet();
+            catalog.intervals(IntervalIndex.Span.PLAYERS).stab(players, found);
+            assertEquals(bruteForce(IntervalIndex.Span.PLAYERS, players), found);
+        }
+        for (int minutes : new int[] {0, 5, 15, 30, 45, 60, 90, 120, 240, 600, 6000}) {
+            BitSet found = new BitSet();
+            catalog.intervals(IntervalIndex.Span.PLAY_TIME).stab(minutes, found);
+            assertEquals(bruteForce(IntervalIndex.Span.PLAY_TIME, minutes), found);
+        }
+    }
+
+    /**
+     * Tests that players==n is the same as the column comparisons it replaces.
+     */
+    @Test
+    void filterMatchesColumnComparisons() {
+        List<BoardGame> contains = new Planner(games)
+                .filter("players==5,maxPlaytime<=60").toList();
+        List<BoardGame> columns = new Planner(games)
+                .filter("minPlayers<=5,maxPlayers>=5,maxPlaytime<=60").toList();
+        assertFalse(contains.isEmpty());
+        assertEquals(columns, contains);
+
+        assertEquals(new Planner(games).filter("minPlaytime<=45,maxPlaytime>=45").toList(),
+                new Planner(games).filter("playtime == 45").toList());
+        assertEquals(new Planner(games).filter("!(minPlayers<=1,maxPlayers>=1)").toList(),
+                new Planner(games).filter("players!=1").toList());
+    }
+
+    /**
+     * Tests that other operators and values that are not numbers are ignored.
+     */
+    @Test
+    void invalidClausesIgnored() {
+        long all = new Planner(games).filter("").count();
+        assertEquals(all, new Planner(games).filter("players>5").count());
+        assertEquals(all, new Planner(games).filter("players==many").count());
+    }
+
+    /**
+     * Tests that a later catalog version indexes the changed games.
+     */
+    @Test
+    void followsCatalogChanges() {
+        LiveCatalog live = new LiveCatalog(games);
+        Planner planner = new Planner(live, false);
+        long before = planner.filter("players==99").count();
+        live.add(new BoardGame("Crowd Game", 1, 20, 100, 10, 20, 1.0, 1, 7.0, 2020));
+        assertEquals(before + 1, planner.filter("players==99").count());
+    }
+
+
+    /**
+     * Tests that the trees carried over to later versions, with games added,
+     * changed and removed, find the same games as testing every game.
+     */
+    @Test
+    void appliedIndexMatchesBruteForce() {
+        GameCatalog version = new GameCatalog(games);
+        version.intervals(IntervalIndex.Span.PLAYERS);
+        List<BoardGame> changed = new ArrayList<>(games);
+        changed.sort(GameCatalog.BY_NAME);
+        for (int step = 0; step < 3; step++) {
+            for (int i = step; i < 60; i += 3) {
+                BoardGame game = changed.get(i);
+                changed.set(i, new BoardGame(game.getName(), game.getId(), i % 7, i % 5 + 3,
+                        game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(),
+                        game.getRank(), game.getRating(), game.getYearPublished()));
+            }
+            changed.remove(changed.size() - 1 - step);
+            changed.add(new BoardGame("Crowd Game " + step, -1 - step, 20, 100, 10, 20, 1.0, 1,
+                    7.0, 2020));
+            version = version.apply(CatalogChanges.between(version, changed));
+            for (int players : new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 10, 12, 50}) {
+                BitSet found = new BitSet();
+                version.intervals(IntervalIndex.Span.PLAYERS).stab(players, found);
+                assertEquals(bruteForce(version, IntervalIndex.Span.PLAYERS, players), found);
+            }
+        }
+    }
+}
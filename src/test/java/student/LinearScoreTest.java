@@ -0,0 +1,80 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for ranking games by a score.
+ */
+public class LinearScoreTest {
+    private static Set<BoardGame> games;
+    private static GameCatalog catalog;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+        catalog = new GameCatalog(games);
+    }
+
+    /**
+     * Tests reading score expressions.
+     */
+    @Test
+    void parsesScores() {
+        BoardGame game = new BoardGame("Game", 1, 2, 4, 30, 60, 2.5, 10, 7.5, 2020);
+        assertEquals(7.5 * 2 - 2.5 + 0.1 * 2020,
+                LinearScore.parse("rating*2 - difficulty + 0.1*year").score(game), 1e-9);
+        assertEquals(60 / 2.0 + 3 - 7.5 * 2,
+                LinearScore.parse("maxPlaytime/2+3-2*rating").score(game), 1e-9);
+        assertEquals(0, LinearScore.parse("rating - Rating").score(game), 1e-9);
+        assertEquals(-7.5, LinearScore.parse("2*-rating+rating").score(game), 1e-9);
+        assertEquals(1e-3 * 2020 + 2.5E+1 - 7.5,
+                LinearScore.parse("1e-3*year + 2.5E+1 - rating").score(game), 1e-9);
+        assertEquals(2020 / 1e2 - 2.5, LinearScore.parse("year/1e2-difficulty").score(game), 1e-9);
+        for (String invalid : new String[] {"", "name", "rating*difficulty", "2/rating",
+            "rating+", "rating*x"}) {
+            assertThrows(IllegalArgumentException.class, () -> LinearScore.parse(invalid));
+        }
+    }
+
+    /**
+     * Tests that the threshold algorithm finds the same games as scoring every game.
+     */
+    @Test
+    void topMatchesFullSort() {
+        for (String expression : new String[] {"rating", "rating*2 - difficulty + 0.1*year",
+            "-difficulty", "maxPlayers - minPlaytime/30", "rank"}) {
+            LinearScore score = LinearScore.parse(expression);
+            for (int k : new int[] {1, 10, 100}) {
+                List<BoardGame> expected = games.stream().sorted(score.order()).limit(k).toList();
+                assertEquals(expected, score.top(catalog, catalog.all(), k));
+            }
+        }
+    }
+
+    /**
+     * Tests that the planner ranks only the filtered games, like the default
+     * implementation.
+     */
+    @Test
+    void plannerRanksFilteredGames() {
+        String score = "rating*2 - difficulty + 0.1*year";
+        List<BoardGame> ranked = new Planner(games).rank("maxPlayers>=4", score, 20).toList();
+        IPlanner sharded = new ShardedPlanner(games, 2);
+        assertEquals(sharded.rank("maxPlayers>=4", score, 20).toList(), ranked);
+        assertEquals(20, ranked.size());
+        assertTrue(ranked.stream().allMatch(game -> game.getMaxPlayers() >= 4));
+
+        Planner planner = new Planner(games);
+        assertThrows(IllegalArgumentException.class, () -> planner.rank("maxPlayers>=4", "x", 5));
+        assertEquals(games.size(), planner.filter("").count());
+    }
+}
@@ -0,0 +1,368 @@
+package student;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for reloading the catalog while planners use it.
+ */
+public class LiveCatalogTest {
+    private List<BoardGame> games;
+    private LiveCatalog catalog;
+
+    /**
+     * Sets up the catalog the tests reload.
+     */
+    @BeforeEach
+    void setUp() {
+        games = new ArrayList<>(List.of(
+                new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 2005),
+                new BoardGame("Chess", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Go Fish", 2, 2, 10, 20, 120, 3.0, 200, 6.5, 2001),
+                new BoardGame("Monopoly", 8, 6, 10, 20, 1000, 1.0, 800, 5.0, 2007)));
+        catalog = new LiveCatalog(games);
+    }
+
+    /**
+     * Names of the games in a stream of results.
+     *
+     * @param results the games.
+     * @return the names, in the same order.
+     */
+    private static List<String> names(Stream<BoardGame> results) {
+        return results.map(BoardGame::getName).toList();
+    }
+
+    /**
+     * Tests that a reload finds only the games inserted, updated and deleted.
+     */
+    @Test
+    void reloadFindsChanges() {
+        games.remove(4); // Monopoly
+        games.set(1, new BoardGame("Chess", 7, 2, 2, 10, 25, 10.0, 700, 10.0, 2006));
+        games.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010));
+
+        CatalogChanges changes = catalog.reload(games);
+        assertEquals(List.of("Goban"), changes.getInserted().stream().map(BoardGame::getName).toList());
+        assertEquals(List.of("Chess"), changes.getUpdated().stream().map(BoardGame::getName).toList());
+        assertEquals(List.of("Monopoly"), changes.getDeleted().stream().map(BoardGame::getName).toList());
+        assertEquals(1, catalog.getVersion());
+        assertEquals(5, catalog.count());
+
+        assertTrue(catalog.reload(games).isEmpty());
+        assertEquals(1, catalog.getVersion());
+    }
+
+    /**
+     * Tests that games sharing an objectid are matched by name.
+     */
+    @Test
+    void reloadMatchesDuplicateIds() {
+        games.add(new BoardGame("Goose", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        catalog = new LiveCatalog(games);
+        assertTrue(catalog.reload(new ArrayList<>(games)).isEmpty());
+
+        games.remove(games.size() - 1);
+        CatalogChanges changes = catalog.reload(games);
+        assertEquals(List.of("Goose"), changes.getDeleted().stream().map(BoardGame::getName).toList());
+        assertTrue(changes.getUpdated().isEmpty());
+    }
+
+    /**
+     * Tests that a batch of upserts matches only the games with its objectids,
+     * by name first, and leaves the rest of the catalog alone.
+     */
+    @Test
+    void upsertMatchesBatchIds() {
+        games.add(new BoardGame("Goose", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        catalog = new LiveCatalog(games);
+
+        CatalogChanges changes = catalog.upsert(List.of(
+                new BoardGame("Goose", 1, 2, 6, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Chess 2", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006),
+                new BoardGame("Go", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000),
+                new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010)));
+        assertEquals(List.of("Goban"), changes.getInserted().stream().map(BoardGame::getName).toList());
+        assertEquals(List.of("Chess 2", "Goose"),
+                changes.getUpdated().stream().map(BoardGame::getName).toList());
+        assertTrue(changes.getDeleted().isEmpty());
+        assertEquals(7, catalog.count());
+        assertEquals(6, catalog.current().get(catalog.current().find(
+                new BoardGame("goose", 1, 0, 0, 0, 0, 0, 0, 0, 0))).getMaxPlayers());
+    }
+
+    /**
+     * Tests that a planner's filtered selection follows reloads, in both modes.
+     */
+    @Test
+    void plannerFollowsReload() {
+        for (boolean lazy : new boolean[] {false, true}) {
+            setUp();
+            IPlanner planner = new Planner(catalog, lazy);
+            assertEquals(List.of("Go", "Go Fish"), names(planner.filter("name~=go")));
+            planner.filter("maxplaytime<=60");
+
+            games.set(3, new BoardGame("Go Fish", 2, 2, 10, 20, 45, 3.0, 200, 6.5, 2001));
+            games.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010));
+            games.add(new BoardGame("Gold Rush", 10, 2, 4, 30, 90, 4.0, 950, 6.0, 2011));
+            games.remove(2); // Go
+            catalog.reload(games);
+
+            assertEquals(List.of("Go Fish", "Goban"), names(planner.filter("")));
+            assertEquals(List.of("Goban", "Go Fish"), planner.filter("", GameData.MAX_PLAYERS)
+                    .map(BoardGame::getName).toList());
+        }
+    }
+
+    /**
+     * Tests that undo goes back to the filter, not the old version of the catalog.
+     */
+    @Test
+    void undoAfterReload() {
+        IPlanner planner = new Planner(catalog, false);
+        planner.filter("name~=go");
+        planner.filter("minplayers>=2,maxplayers<=5");
+        assertEquals(List.of("Go"), names(planner.filter("")));
+
+        games.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010));
+        catalog.reload(games);
+
+        assertTrue(planner.undo());
+        assertEquals(List.of("Go", "Go Fish", "Goban"), names(planner.filter("")));
+        assertTrue(planner.redo());
+        assertEquals(List.of("Go", "Goban"), names(planner.filter("")));
+    }
+
+    /**
+     * Tests that column indexes built before a reload answer queries after it.
+     */
+    @Test
+    void indexesFollowReload() {
+        IPlanner planner = new Planner(catalog, false);
+        assertEquals(3, planner.filter("year in 2001..2006").count());
+
+        games.set(0, new BoardGame("17 days", 6, 1, 8, 70, 70, 9.0, 600, 9.0, 1999));
+        games.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2003));
+        catalog.reload(games);
+
+        IPlanner other = new Planner(catalog, false);
+        assertEquals(List.of("Chess", "Go Fish", "Goban"),
+                names(other.filter("year in 2001..2006")));
+        other.reset();
+        assertEquals(List.of("17 days", "Go"), names(other.filter("year<2001")));
+    }
+
+    /**
+     * Tests loading a collection from a file on disk.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    void loadFromPath() throws IOException {
+        Path file = Files.createTempFile("collection", ".csv");
+        try {
+            Files.writeString(file, "objectname,objectid,minplayers,maxplayers,minplaytime,"
+                    + "maxplaytime,avgweight,rank,average,yearpublished\n"
+                    + "Chess,7,2,2,10,20,3.7,700,7.5,1475\n");
+            List<BoardGame> loaded = new ArrayList<>(GamesLoader.loadGamesFile(file));
+            assertEquals(1, loaded.size());
+            assertEquals("Chess", loaded.get(0).getName());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that a reload updates a game whose only change is in an extended column.
+     *
+     * @throws IOException if the temporary file cannot be written.
+     */
+    @Test
+    void reloadFindsExtendedChanges() throws IOException {
+        String header = "objectname,objectid,minplayers,maxplayers,minplaytime,"
+                + "maxplaytime,avgweight,rank,average,yearpublished,numowned,comment\n";
+        Path file = Files.createTempFile("collection", ".csv");
+        try {
+            Files.writeString(file, header + "Chess,7,2,2,10,20,3.7,700,7.5,1475,100,old\n");
+            catalog = new LiveCatalog(GamesLoader.loadGamesFile(file));
+            Files.writeString(file, header + "Chess,7,2,2,10,20,3.7,700,7.5,1475,999,old\n");
+            CatalogChanges changes = catalog.reload(GamesLoader.loadGamesFile(file));
+            assertEquals(1, changes.getUpdated().size());
+            IPlanner planner = new Planner(catalog, false);
+            assertEquals(List.of("Chess"), names(planner.filter("numowned>500")));
+            assertTrue(catalog.reload(GamesLoader.loadGamesFile(file)).isEmpty());
+
+            Files.writeString(file, header + "Chess,7,2,2,10,20,3.7,700,7.5,1475,999,new\n");
+            assertEquals(1, catalog.reload(GamesLoader.loadGamesFile(file)).getUpdated().size());
+            assertEquals(3, (int) catalog.update(
+                    new BoardGame("Chess", 7, 2, 2, 10, 20, 3.7, 700, 7.5, 1475)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that the watcher reloads a collection file when it changes.
+     *
+     * @throws Exception if the temporary file cannot be written.
+     */
+    @Test
+    void watcherReloads() throws Exception {
+        Path dir = Files.createTempDirectory("collection");
+        Path file = dir.resolve("collection.csv");
+        String header = "objectname,objectid,minplayers,maxplayers,minplaytime,"
+                + "maxplaytime,avgweight,rank,average,yearpublished\n";
+        Files.writeString(file, header + "Chess,7,2,2,10,20,3.7,700,7.5,1475\n");
+        catalog = new LiveCatalog(GamesLoader.loadGamesFile(file));
+        List<CatalogChanges> reloads = new CopyOnWriteArrayList<>();
+        try (CollectionWatcher watcher = new CollectionWatcher(file, catalog, reloads::add)) {
+            Files.writeString(file, header + "Chess,7,2,2,10,20,3.7,700,7.5,1475\n"
+                    + "Go,1,2,2,30,180,3.9,100,7.6,-2200\n");
+            for (int wait = 0; wait < 100 && catalog.getVersion() == 0; wait++) {
+                Thread.sleep(100);
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(dir);
+        }
+        assertEquals(1, catalog.getVersion());
+        assertEquals(2, catalog.count());
+        assertEquals(1, reloads.size());
+        assertEquals("Go", reloads.get(0).getInserted().get(0).getName());
+    }
+
+    /**
+     * Tests adding, updating and retiring single games.
+     */
+    @Test
+    void addUpdateRetire() {
+        IPlanner planner = new Planner(catalog, false);
+        planner.filter("name~=go");
+
+        assertEquals(1, catalog.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010)));
+        assertEquals(2, catalog.update(new BoardGame("Go", 1, 2, 2, 30, 30, 8.0, 100, 7.5, 2000)));
+        assertEquals(2, catalog.update(new BoardGame("Go", 1, 2, 2, 30, 30, 8.0, 100, 7.5, 2000)));
+        assertEquals(3, catalog.retire(new BoardGame("go fish", 2, 0, 0, 0, 0, 0, 0, 0, 0)));
+        assertEquals(List.of("Go", "Goban"), names(planner.filter("maxplayers==2")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.add(new BoardGame("Goban", 9, 2, 2, 30, 60, 4.0, 900, 6.0, 2010)));
+        assertThrows(IllegalArgumentException.class,
+                () -> catalog.retire(new BoardGame("Go Fish", 2, 0, 0, 0, 0, 0, 0, 0, 0)));
+        assertEquals(3, catalog.getVersion());
+    }
+
+    /**
+     * Tests finding games by objectid as versions add, rename and remove them.
+     */
+    @Test
+    void findsByObjectid() {
+        catalog.add(new BoardGame("Goose", 1, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        catalog.add(new BoardGame("Negative", -3, 2, 5, 30, 30, 8.0, 100, 7.5, 2000));
+        catalog.update(new BoardGame("Chess 2", 7, 2, 2, 10, 20, 10.0, 700, 10.0, 2006));
+        catalog.retire(new BoardGame("Monopoly", 8, 0, 0, 0, 0, 0, 0, 0, 0));
+
+        GameCatalog current = catalog.current();
+        assertEquals(2, current.ordinalsOf(1).length);
+        assertEquals("Goose", current.get(current.find(
+                new BoardGame("goose", 1, 0, 0, 0, 0, 0, 0, 0, 0))).getName());
+        assertEquals(-1, current.find(new BoardGame("Other", 1, 0, 0, 0, 0, 0, 0, 0, 0)));
+        assertEquals("Chess 2", current.get(current.find(
+                new BoardGame("Chess", 7, 0, 0, 0, 0, 0, 0, 0, 0))).getName());
+        assertEquals("Negative", current.get(current.ordinalsOf(-3)[0]).getName());
+        assertEquals(0, current.ordinalsOf(8).length);
+        assertEquals(0, current.ordinalsOf(4).length);
+    }
+
+    /**
+     * Tests that planners reading under concurrent writers always see a consistent
+     * version of the catalog, and catch up with the last one.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads.
+     */
+    @Test
+    void concurrentWritersAndReaders() throws InterruptedException {
+        final int writers = 2;
+        final int readers = 8;
+        final int added = 300;
+        final int kept = 20;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        List<IPlanner> planners = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                for (int k = 0; k < added; k++) {
+                    catalog.add(wave(writer, k, 0));
+                    catalog.update(wave(writer, k, 1));
+                    if (k >= kept) {
+                        catalog.retire(wave(writer, k - kept, 1));
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            IPlanner planner = new Planner(catalog, r % 2 == 0);
+            planners.add(planner);
+            threads.add(new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        planner.reset();
+                        List<BoardGame> found = planner.filter("name~=wave,minplayers==1").toList();
+                        // at most kept + 1 games per writer are ever in the catalog
+                        assertTrue(found.size() <= writers * (kept + 1), "too many " + found.size());
+                        for (int i = 0; i < found.size(); i++) {
+                            assertEquals(1, found.get(i).getMinPlayers());
+                            assertTrue(i == 0 || GameCatalog.BY_NAME.compare(found.get(i - 1),
+                                    found.get(i)) < 0, "out of order");
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (int w = 0; w < writers; w++) {
+            threads.get(w).join();
+        }
+        writing.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(writers * added * 2 + writers * (added - kept), catalog.getVersion());
+        for (IPlanner planner : planners) {
+            assertEquals(writers * kept, planner.filter("").count());
+        }
+    }
+
+    /**
+     * A game added by the stress test.
+     *
+     * @param writer  the writer adding it.
+     * @param k       the number of the game for the writer.
+     * @param players the minimum players, 0 when added and 1 once updated.
+     * @return the game.
+     */
+    private static BoardGame wave(int writer, int k, int players) {
+        return new BoardGame(String.format("Wave %d-%03d", writer, k), 10000 * (writer + 1) + k,
+                players, 4, 30, 60, 2.0, 1000 + k, 6.5, 2020);
+    }
+}
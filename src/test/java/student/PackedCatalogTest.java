@@ -0,0 +1,109 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the bit packed catalog.
+ */
+public class PackedCatalogTest {
+    private static Set<BoardGame> games;
+    private static PackedCatalog packed;
+
+    /**
+     * Loads and packs the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+        packed = new PackedCatalog(games);
+    }
+
+    /**
+     * Tests that every game is unpacked exactly as it was packed, in name order.
+     */
+    @Test
+    void roundTripsEveryGame() {
+        List<BoardGame> sorted = games.stream().sorted(GameCatalog.BY_NAME).toList();
+        assertEquals(sorted.size(), packed.size());
+        for (int i = 0; i < sorted.size(); i++) {
+            BoardGame expected = sorted.get(i);
+            BoardGame actual = packed.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            for (GameData column : new GameData[] {GameData.ID, GameData.MIN_PLAYERS,
+                GameData.MAX_PLAYERS, GameData.MIN_TIME, GameData.MAX_TIME, GameData.RANK,
+                GameData.YEAR, GameData.RATING, GameData.DIFFICULTY}) {
+                assertEquals(expected.getNumericValue(column), actual.getNumericValue(column));
+            }
+        }
+    }
+
+    /**
+     * Tests that filters on the packed values find the same games as the planner.
+     */
+    @Test
+    void filtersMatchPlanner() {
+        for (String filter : new String[] {"", "minPlayers>2", "rating>=7.5,difficulty<2.1",
+            "maxPlayers==4", "maxPlayers!=4", "year<2000", "players==5", "playtime!=60",
+            "rating>8|difficulty<=1.5", "!(minPlayers>=2)", "name~=catan", "name<b",
+            "rating>=100", "difficulty>-1", "rating>=7,name~=an"}) {
+            List<BoardGame> expected = new Planner(games).filter(filter, GameData.NAME).toList();
+            assertEquals(expected, packed.filter(filter).toList());
+        }
+    }
+
+    /**
+     * Tests that fractional values that are not exact in any few decimals still
+     * round trip and compare exactly.
+     */
+    @Test
+    void keepsUnroundedValues() {
+        BoardGame odd = new BoardGame("Odd", 1, 1, 2, 10, 20, Math.PI, 5, 1.0 / 3, 1999);
+        BoardGame even = new BoardGame("Even", 2, 2, 2, 10, 10, 2.25, 4, 7.5, 2001);
+        PackedCatalog small = new PackedCatalog(List.of(odd, even));
+        assertEquals(Math.PI, small.get(1).getDifficulty());
+        assertEquals(1.0 / 3, small.get(1).getRating());
+        assertEquals(List.of(odd), small.filter("difficulty>3.14159").toList());
+        assertEquals(List.of(even), small.filter("difficulty<=2.25").toList());
+        assertEquals(0, new PackedCatalog(List.of()).filter("rating>1").count());
+    }
+
+    /**
+     * Tests that the packed games take less room than the objects would.
+     */
+    @Test
+    void isSmallerThanObjects() {
+        // an object header, nine numbers and a name reference, before the name
+        long objects = games.size() * (16L + 9 * 8 + 8);
+        assertTrue(packed.sizeInBytes() * 3 < objects);
+    }
+
+    /**
+     * Tests that reading names a block at a time finds the same rows as reading
+     * each name on its own.
+     */
+    @Test
+    void selectsNamesByBlock() {
+        for (int step : new int[] {1, 3, 17, 40}) {
+            BitSet candidates = new BitSet();
+            for (int i = step / 2; i < packed.size(); i += step) {
+                candidates.set(i);
+            }
+            BitSet expected = new BitSet();
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                if (packed.name(i).toLowerCase(Locale.ROOT).contains("an")) {
+                    expected.set(i);
+                }
+            }
+            assertEquals(expected, packed.selectNames(
+                    name -> name.toLowerCase(Locale.ROOT).contains("an"), candidates));
+        }
+    }
+}
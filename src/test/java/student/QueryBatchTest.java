@@ -0,0 +1,59 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for running queries as a batch.
+ */
+public class QueryBatchTest {
+    private static Set<BoardGame> games;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+    }
+
+    /**
+     * Tests that each query of a batch gets the same results as a planner.
+     */
+    @Test
+    void matchesPlanner() {
+        List<String> filters = List.of("", "minplayers>=2,maxplayers<=4", "name~=the|year<1990",
+                "year in 2010..2015", "minplayers>=2,maxplayers<=4");
+        QueryBatch batch = new QueryBatch(games);
+        IPlanner planner = new Planner(games);
+        for (String filter : filters) {
+            for (GameData sortOn : List.of(GameData.NAME, GameData.YEAR, GameData.RATING)) {
+                assertEquals(batch.size(), batch.add(filter, sortOn, false));
+            }
+        }
+        assertEquals(filters.size() * 3, batch.size());
+
+        List<List<BoardGame>> results = batch.run();
+        int query = 0;
+        for (String filter : filters) {
+            for (GameData sortOn : List.of(GameData.NAME, GameData.YEAR, GameData.RATING)) {
+                planner.reset();
+                assertEquals(planner.filter(filter, sortOn, false).toList(), results.get(query++),
+                        filter + " " + sortOn);
+            }
+        }
+    }
+
+    /**
+     * Tests that an empty batch runs.
+     */
+    @Test
+    void emptyBatch() {
+        assertTrue(new QueryBatch(games).run().isEmpty());
+    }
+}
@@ -0,0 +1,62 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the ShardedPlanner, checked against a single Planner.
+ */
+public class ShardedPlannerTest {
+    private static Set<BoardGame> games;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+    }
+
+    /**
+     * Tests that every sort and direction matches a single planner.
+     */
+    @Test
+    void matchesSinglePlanner() {
+        IPlanner single = new Planner(games);
+        IPlanner sharded = new ShardedPlanner(games, 5);
+        for (String filter : List.of("", "minplayers>=2,maxplayers<=4", "name~=the|year<1990")) {
+            for (GameData sortOn : GameData.values()) {
+                for (boolean ascending : new boolean[] {true, false}) {
+                    single.reset();
+                    sharded.reset();
+                    assertEquals(single.filter(filter, sortOn, ascending).map(BoardGame::getName).toList(),
+                            sharded.filter(filter, sortOn, ascending).map(BoardGame::getName).toList(),
+                            filter + " " + sortOn + " " + ascending);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that progressive filters, reset and undo apply to every shard.
+     */
+    @Test
+    void progressiveFiltersAndUndo() {
+        IPlanner sharded = new ShardedPlanner(games, 3);
+        IPlanner single = new Planner(games);
+        sharded.filter("year>=2010");
+        single.filter("year>=2010");
+        assertEquals(single.filter("maxplayers<=2").count(), sharded.filter("maxplayers<=2").count());
+        assertTrue(sharded.undo());
+        assertTrue(single.undo());
+        assertEquals(single.filter("").count(), sharded.filter("").count());
+        sharded.reset();
+        assertEquals(games.size(), sharded.filter("").count());
+        assertThrows(IllegalArgumentException.class, () -> new ShardedPlanner(games, 0));
+    }
+}
@@ -0,0 +1,133 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the similar games search.
+ */
+public class SimilarityIndexTest {
+    private static GameCatalog catalog;
+    private static SimilarityIndex index;
+
+    /**
+     * Builds the index over the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        catalog = new GameCatalog(GamesLoader.loadGamesFile("/collection.csv"));
+        index = catalog.similarity();
+    }
+
+    /**
+     * Finds the nearest games by comparing against every candidate.
+     *
+     * @param ordinal    the game.
+     * @param k          the most games to find.
+     * @param candidates the games to choose from.
+     * @return the nearest games, nearest first.
+     */
+    private static int[] bruteForce(int ordinal, int k, BitSet candidates) {
+        return bruteForce(index, ordinal, k, candidates);
+    }
+
+    /**
+     * Finds the nearest games by comparing against every candidate, by the
+     * distances of an index.
+     *
+     * @param index      the index.
+     * @param ordinal    the game.
+     * @param k          the most games to find.
+     * @param candidates the games to choose from.
+     * @return the nearest games, nearest first.
+     */
+    private static int[] bruteForce(SimilarityIndex index, int ordinal, int k,
+            BitSet candidates) {
+        BitSet others = (BitSet) candidates.clone();
+        others.clear(ordinal);
+        return others.stream().boxed()
+                .sorted(Comparator.<Integer>comparingDouble(i -> index.distance(ordinal, i))
+                        .thenComparingInt(i -> i))
+                .limit(k).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Tests that the tree search finds the same games as comparing every game.
+     */
+    @Test
+    void matchesBruteForce() {
+        BitSet all = catalog.all();
+        BitSet modern = new BitSet();
+        for (int i = all.nextSetBit(0); i >= 0; i = all.nextSetBit(i + 1)) {
+            if (catalog.get(i).getYearPublished() >= 2010 && catalog.get(i).getMaxPlayers() >= 4) {
+                modern.set(i);
+            }
+        }
+        for (int ordinal : IntStream.range(0, catalog.size()).filter(i -> i % 37 == 0).toArray()) {
+            for (int k : new int[] {1, 5, 25}) {
+                assertArrayEquals(bruteForce(ordinal, k, all), index.nearest(ordinal, k, all));
+                assertArrayEquals(bruteForce(ordinal, k, modern), index.nearest(ordinal, k, modern));
+            }
+        }
+        assertEquals(0, index.nearest(0, 0, all).length);
+    }
+
+    /**
+     * Tests similar through a planner, within the current filter.
+     */
+    @Test
+    void similarInPlanner() {
+        IPlanner planner = new Planner(GamesLoader.loadGamesFile("/collection.csv"), true);
+        List<BoardGame> similar = planner.similar("7 WONDERS DUEL", 10).toList();
+        assertEquals(10, similar.size());
+        assertTrue(similar.stream().noneMatch(game -> game.getName().equals("7 Wonders Duel")));
+
+        planner.filter("maxplayers<=2");
+        List<BoardGame> twoPlayer = planner.similar("7 wonders duel", 10).toList();
+        assertEquals(10, twoPlayer.size());
+        assertTrue(twoPlayer.stream().allMatch(game -> game.getMaxPlayers() <= 2));
+
+        assertThrows(IllegalArgumentException.class, () -> planner.similar("no such game", 3));
+    }
+
+    /**
+     * Tests that the index carried over to later versions, with games added,
+     * changed and removed, finds the same games as comparing every game.
+     */
+    @Test
+    void appliedIndexMatchesBruteForce() {
+        GameCatalog version = catalog;
+        List<BoardGame> games = new ArrayList<>(GamesLoader.loadGamesFile("/collection.csv"));
+        games.sort(GameCatalog.BY_NAME);
+        for (int step = 0; step < 3; step++) {
+            for (int i = step; i < 60; i += 3) {
+                BoardGame game = games.get(i);
+                games.set(i, new BoardGame(game.getName(), game.getId(), game.getMinPlayers(),
+                        game.getMaxPlayers() + 2, game.getMinPlayTime(), game.getMaxPlayTime(),
+                        game.getDifficulty(), game.getRank(), game.getRating(), 1990 + i));
+            }
+            games.remove(games.size() - 1 - step);
+            games.add(new BoardGame("New Game " + step, -1 - step, 2, 4, 30, 60, 2.5, 0, 7.0,
+                    2021));
+            version = version.apply(CatalogChanges.between(version, games));
+            SimilarityIndex carried = version.similarity();
+
+            BitSet all = version.all();
+            for (int ordinal : all.stream().filter(i -> i % 23 == 0 || i >= catalog.size())
+                    .toArray()) {
+                for (int k : new int[] {1, 5, 40}) {
+                    assertArrayEquals(bruteForce(carried, ordinal, k, all),
+                            carried.nearest(ordinal, k, all));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package student;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the text index and BM25 search.
+ */
+public class TextIndexTest {
+    private static Set<BoardGame> games;
+    private static GameCatalog catalog;
+
+    /**
+     * Loads the full collection.
+     */
+    @BeforeAll
+    static void setUp() {
+        games = GamesLoader.loadGamesFile("/collection.csv");
+        catalog = new GameCatalog(games);
+    }
+
+    /**
+     * Scores every game for a query by BM25 directly from its words.
+     *
+     * @param query the query.
+     * @return the score of each game with any of the words.
+     */
+    private static Map<BoardGame, Double> bruteForce(String query) {
+        double total = 0;
+        for (BoardGame game : games) {
+            total += TextIndex.words(game).size();
+        }
+        double average = total / games.size();
+        Map<BoardGame, Double> scores = new HashMap<>();
+        for (String word : new HashSet<>(TextIndex.tokens(query))) {
+            long documents = games.stream().filter(g -> TextIndex.words(g).contains(word)).count();
+            double idf = Math.log(1 + (games.size() - documents + 0.5) / (documents + 0.5));
+            for (BoardGame game : games) {
+                List<String> words = TextIndex.words(game);
+                long count = words.stream().filter(word::equals).count();
+                if (count > 0) {
+                    double norm = 1.2 * (1 - 0.75 + 0.75 * words.size() / average);
+                    scores.merge(game, idf * count * 2.2 / (count + norm), Double::sum);
+                }
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Tests splitting text into words.
+     */
+    @Test
+    void splitsWords() {
+        assertEquals(List.of("7", "wonders", "duel"), TextIndex.tokens("7 Wonders: DUEL"));
+        assertEquals(List.of("in", "game", "text"), TextIndex.tokens("--in-game text."));
+        assertTrue(TextIndex.tokens(" ,; ").isEmpty());
+    }
+
+    /**
+     * Tests that search ranks games like scoring each of them.
+     */
+    @Test
+    void searchMatchesBruteForce() {
+        for (String query : new String[] {"war", "text crib sheet", "the game of", "zzz"}) {
+            Map<BoardGame, Double> scores = bruteForce(query);
+            List<BoardGame> expected = scores.keySet().stream()
+                    .sorted(Comparator.comparingDouble((BoardGame game) -> scores.get(game))
+                            .reversed().thenComparing(GameCatalog.BY_NAME))
+                    .limit(15).toList();
+            List<BoardGame> actual = Arrays.stream(
+                    catalog.text().search(query, 15, catalog.all())).mapToObj(catalog::get)
+                    .toList();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(scores.get(expected.get(i)), scores.get(actual.get(i)), 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Tests the text filter clause, alone and with other filters.
+     */
+    @Test
+    void textClauseFilters() {
+        List<BoardGame> expected = games.stream()
+                .filter(game -> TextIndex.words(game).containsAll(List.of("crib", "sheet")))
+                .filter(game -> game.getMaxPlayers() >= 4)
+                .sorted(GameCatalog.BY_NAME).toList();
+        assertFalse(expected.isEmpty());
+        Planner planner = new Planner(games);
+        assertEquals(expected, planner.filter("text~=Crib Sheet,maxPlayers>=4").toList());
+        FilterExpression clause = FilterClause.parse("text~=crib sheet");
+        assertTrue(expected.stream().allMatch(clause::test));
+        assertEquals(FilterExpression.ALL, FilterClause.parse("text==crib"));
+        assertEquals(0, new Planner(games).filter("text~=zzzunknown").count());
+    }
+
+    /**
+     * Tests that the planner searches only the filtered games.
+     */
+    @Test
+    void plannerSearchesFilteredGames() {
+        Planner planner = new Planner(games);
+        planner.filter("maxPlayers>=6");
+        List<BoardGame> found = planner.search("war", 50).toList();
+        assertFalse(found.isEmpty());
+        assertTrue(found.stream().allMatch(game -> game.getMaxPlayers() >= 6));
+        assertTrue(found.stream().allMatch(game -> TextIndex.words(game).contains("war")));
+        assertEquals(0, planner.search("", 5).count());
+        assertEquals(0, new ShardedPlanner(games, 2).search("war", 5).count());
+    }
+
+    /**
+     * Renames a game, keeping its objectid and numbers.
+     *
+     * @param game the game.
+     * @param name the new name.
+     * @return the renamed game.
+     */
+    private static BoardGame rename(BoardGame game, String name) {
+        return new BoardGame(name, game.getId(), game.getMinPlayers(), game.getMaxPlayers(),
+                game.getMinPlayTime(), game.getMaxPlayTime(), game.getDifficulty(),
+                game.getRank(), game.getRating(), game.getYearPublished());
+    }
+
+    /**
+     * Tests that the index carried over to later versions finds the same games,
+     * with the same scores, as one built for them.
+     */
+    @Test
+    void appliedIndexMatchesRebuilt() {
+        GameCatalog version = new GameCatalog(games);
+        version.text();
+        List<BoardGame> changed = new ArrayList<>(games);
+        changed.sort(GameCatalog.BY_NAME);
+        for (int step = 0; step < 3; step++) {
+            for (int i = step; i < 30; i += 3) {
+                changed.set(i, rename(changed.get(i), changed.get(i).getName() + " zebra war"));
+            }
+            changed.remove(changed.size() - 1 - step);
+            changed.add(new BoardGame("War of Zebras " + step, -1 - step, 2, 4, 30, 60, 2.0,
+                    0, 6.0, 2020));
+            version = version.apply(CatalogChanges.between(version, changed));
+
+            TextIndex carried = version.text();
+            TextIndex rebuilt = new TextIndex(version);
+            for (String query : new String[] {"war", "zebra war", "the game of", "crib sheet"}) {
+                assertArrayEquals(rebuilt.search(query, 40, version.all()),
+                        carried.search(query, 40, version.all()));
+                assertEquals(rebuilt.matchAll(query, version.all()),
+                        carried.matchAll(query, version.all()));
+            }
+        }
+    }
+}